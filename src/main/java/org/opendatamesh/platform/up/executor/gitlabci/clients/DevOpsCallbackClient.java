@@ -0,0 +1,82 @@
+package org.opendatamesh.platform.up.executor.gitlabci.clients;
+
+import org.opendatamesh.platform.up.executor.gitlabci.config.CallbackConfiguration;
+import org.opendatamesh.platform.up.executor.gitlabci.dao.CallbackDelivery;
+import org.opendatamesh.platform.up.executor.gitlabci.resources.TaskResource;
+import org.opendatamesh.platform.up.executor.gitlabci.utils.RestTemplateFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.List;
+
+/**
+ * Client that pushes the task status to the callback reference received from the DevOps module.
+ * <p>
+ * All the callbacks share one keep-alive connection pool, so consecutive callbacks towards the same host
+ * reuse the same connection.
+ */
+@Component
+public class DevOpsCallbackClient implements DisposableBean {
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
+    private static final int MAX_CONNECTIONS = 20;
+    private static final int KEEP_ALIVE_SECONDS = 60;
+    private static final int CONNECTION_TTL_SECONDS = 0;
+
+    private final HttpComponentsClientHttpRequestFactory requestFactory;
+    private final RestTemplate rest;
+
+    public DevOpsCallbackClient(CallbackConfiguration callbackConfiguration) {
+        this.requestFactory = RestTemplateFactory.createPooledRequestFactory(
+                callbackConfiguration.getTimeoutMillis(),
+                callbackConfiguration.getTimeoutMillis(),
+                MAX_CONNECTIONS,
+                KEEP_ALIVE_SECONDS,
+                CONNECTION_TTL_SECONDS
+        );
+        this.rest = RestTemplateFactory.create(requestFactory);
+    }
+
+    /**
+     * Send the status of a task to its callback reference.
+     * The request carries an idempotency key derived from the task and the status, so that the receiver
+     * can discard a callback delivered twice (e.g. after a restart in the middle of a delivery).
+     *
+     * @param callbackDelivery the callback to be delivered.
+     * @return the response of the callback target.
+     */
+    public ResponseEntity<Void> postTaskStatus(CallbackDelivery callbackDelivery) {
+        TaskResource task = new TaskResource();
+        task.setId(callbackDelivery.getTaskId());
+        task.setStatus(callbackDelivery.getStatus());
+        task.setCallbackRef(callbackDelivery.getCallbackRef());
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.setAccept(List.of(MediaType.APPLICATION_JSON));
+        headers.set(IDEMPOTENCY_KEY_HEADER, idempotencyKey(callbackDelivery));
+
+        return rest.exchange(
+                callbackDelivery.getCallbackRef(),
+                HttpMethod.POST,
+                new HttpEntity<>(task, headers),
+                Void.class
+        );
+    }
+
+    public static String idempotencyKey(CallbackDelivery callbackDelivery) {
+        return "gitlab-task-" + callbackDelivery.getTaskId() + "-" + callbackDelivery.getStatus();
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        requestFactory.destroy();
+    }
+}
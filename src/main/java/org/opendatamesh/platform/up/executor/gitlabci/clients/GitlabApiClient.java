@@ -0,0 +1,35 @@
+package org.opendatamesh.platform.up.executor.gitlabci.clients;
+
+import org.opendatamesh.platform.up.executor.gitlabci.resources.client.gitlab.GitlabPipelineResource;
+import org.opendatamesh.platform.up.executor.gitlabci.resources.client.gitlab.GitlabRunResourceResponse;
+import org.opendatamesh.platform.up.executor.gitlabci.resources.exceptions.GitlabClientException;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking access to the pipelines of a GitLab instance.
+ * <p>
+ * Responses other than 2xx are signaled as a {@link GitlabClientException} carrying the status code and the body.
+ *
+ * @see GitlabWebClient
+ * @see GitlabClientAdapter
+ */
+public interface GitlabApiClient {
+
+    /**
+     * Create a new task on GitLab pipeline and run it.
+     *
+     * @param pipelineResource the object that contains pipeline details.
+     * @param projectId        the id of the gitlab project.
+     * @return the created GitLab pipeline.
+     */
+    Mono<GitlabRunResourceResponse> postTask(GitlabPipelineResource pipelineResource, String projectId);
+
+    /**
+     * Check the status of a GitLab pipeline.
+     *
+     * @param projectId  the id of the GitLab project.
+     * @param pipelineId the id of the running pipeline.
+     * @return the GitLab pipeline.
+     */
+    Mono<GitlabRunResourceResponse> readTask(String projectId, String pipelineId);
+}
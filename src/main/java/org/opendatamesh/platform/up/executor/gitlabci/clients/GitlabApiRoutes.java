@@ -9,6 +9,7 @@ import lombok.Getter;
 public enum GitlabApiRoutes {
 
     GITLAB_PIPELINE_STATUS("/api/v4/projects/{projectId}/pipelines/{pipelineId}"),
+    GITLAB_PIPELINE_LIST("/api/v4/projects/{projectId}/pipelines"),
     GITLAB_PIPELINE_RUN("/api/v4/projects/{projectId}/pipeline");
 
     private final String path;
@@ -0,0 +1,258 @@
+package org.opendatamesh.platform.up.executor.gitlabci.clients;
+
+import org.opendatamesh.platform.up.executor.gitlabci.resources.ExecutorApiStandardErrors;
+import org.opendatamesh.platform.up.executor.gitlabci.resources.exceptions.InternalServerException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Circuit breaker and bulkhead protecting the calls to a single GitLab instance.
+ * <p>
+ * The outcome of the last calls is kept in a sliding window: when the rate of failed calls (connection errors,
+ * timeouts and 5xx responses) or of slow calls reaches its threshold, the circuit opens and the calls fail fast
+ * for the configured time. Then a few trial calls are let through (half-open): the circuit closes if all of
+ * them succeed, otherwise it opens again.
+ * <p>
+ * The bulkhead limits the calls in flight towards the instance, so that an instance that stopped responding
+ * cannot hold all the threads of the executor while the circuit is still closed.
+ */
+public class GitlabCircuitBreaker {
+    private static final Logger logger = LoggerFactory.getLogger(GitlabCircuitBreaker.class);
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final String gitlabInstanceUrl;
+    private final int failureRateThreshold;
+    private final int slowCallRateThreshold;
+    private final long slowCallDurationNanos;
+    private final int minimumCalls;
+    private final long openDurationNanos;
+    private final int halfOpenCalls;
+    private final Semaphore bulkhead;
+
+    private final boolean[] failedCalls;
+    private final boolean[] slowCalls;
+    private int recordedCalls;
+    private int nextSlot;
+    private int failureCount;
+    private int slowCount;
+
+    private State state = State.CLOSED;
+    private long openedAtNanos;
+    private int halfOpenStarted;
+    private int halfOpenSucceeded;
+
+    /**
+     * @param gitlabInstanceUrl     the url of the GitLab instance.
+     * @param failureRateThreshold  the percentage of failed calls that opens the circuit.
+     * @param slowCallRateThreshold the percentage of slow calls that opens the circuit.
+     * @param slowCallDuration      the duration above which a call is slow.
+     * @param windowSize            the number of calls in the sliding window.
+     * @param minimumCalls          the number of calls recorded before the rates are evaluated.
+     * @param openDuration          the time the circuit stays open before the trial calls.
+     * @param halfOpenCalls         the number of trial calls.
+     * @param maxConcurrentCalls    the maximum number of calls in flight.
+     */
+    public GitlabCircuitBreaker(String gitlabInstanceUrl,
+                                int failureRateThreshold,
+                                int slowCallRateThreshold,
+                                Duration slowCallDuration,
+                                int windowSize,
+                                int minimumCalls,
+                                Duration openDuration,
+                                int halfOpenCalls,
+                                int maxConcurrentCalls) {
+        this.gitlabInstanceUrl = gitlabInstanceUrl;
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallRateThreshold = slowCallRateThreshold;
+        this.slowCallDurationNanos = slowCallDuration.toNanos();
+        this.minimumCalls = Math.min(minimumCalls, windowSize);
+        this.openDurationNanos = openDuration.toNanos();
+        this.halfOpenCalls = halfOpenCalls;
+        this.bulkhead = new Semaphore(maxConcurrentCalls);
+        this.failedCalls = new boolean[windowSize];
+        this.slowCalls = new boolean[windowSize];
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * Ask the permission to send a call, taking a slot of the bulkhead.
+     * Every granted permission must be followed by {@link #release()}.
+     *
+     * @throws InternalServerException if the circuit is open or the bulkhead is full.
+     */
+    public void acquire() {
+        if (!tryStartCall()) {
+            throw rejected("circuit open");
+        }
+        if (!bulkhead.tryAcquire()) {
+            onIgnored();
+            throw rejected("too many concurrent calls");
+        }
+    }
+
+    /**
+     * Give back the bulkhead slot taken by {@link #acquire()}.
+     */
+    public void release() {
+        bulkhead.release();
+    }
+
+    /**
+     * Record the outcome of a call.
+     *
+     * @param durationNanos the time spent waiting for the response.
+     * @param failed        true if the call failed.
+     */
+    public synchronized void onResult(long durationNanos, boolean failed) {
+        boolean slow = durationNanos >= slowCallDurationNanos;
+        if (state == State.HALF_OPEN) {
+            if (failed || slow) {
+                open(System.nanoTime(), failed ? "a trial call failed" : "a trial call was slow");
+            } else if (++halfOpenSucceeded >= halfOpenCalls) {
+                close();
+            }
+            return;
+        }
+        if (state == State.OPEN) {
+            // Call started before the circuit opened.
+            return;
+        }
+        record(failed, slow);
+        if (recordedCalls < minimumCalls) {
+            return;
+        }
+        int failureRate = failureCount * 100 / recordedCalls;
+        int slowCallRate = slowCount * 100 / recordedCalls;
+        if (failureRate >= failureRateThreshold) {
+            open(System.nanoTime(), "failure rate " + failureRate + "%");
+        } else if (slowCallRate >= slowCallRateThreshold) {
+            open(System.nanoTime(), "slow call rate " + slowCallRate + "%");
+        }
+    }
+
+    /**
+     * Forget a permitted call that was cancelled before its outcome was known.
+     */
+    public synchronized void onIgnored() {
+        if (state == State.HALF_OPEN && halfOpenStarted > halfOpenSucceeded) {
+            halfOpenStarted--;
+        }
+    }
+
+    /**
+     * @return an interceptor applying the circuit breaker to the requests of a {@code RestTemplate}.
+     */
+    public ClientHttpRequestInterceptor interceptor() {
+        return (request, body, execution) -> {
+            acquire();
+            long start = System.nanoTime();
+            try {
+                ClientHttpResponse response = execution.execute(request, body);
+                onResult(System.nanoTime() - start, isFailure(response.getRawStatusCode()));
+                return response;
+            } catch (IOException | RuntimeException e) {
+                onResult(System.nanoTime() - start, true);
+                throw e;
+            } finally {
+                release();
+            }
+        };
+    }
+
+    /**
+     * @return a filter applying the circuit breaker to the requests of a {@code WebClient}.
+     */
+    public ExchangeFilterFunction filter() {
+        return (request, next) -> Mono.defer(() -> {
+            acquire();
+            long start = System.nanoTime();
+            return next.exchange(request)
+                    .doOnNext(response -> onResult(System.nanoTime() - start, isFailure(response.rawStatusCode())))
+                    .doOnError(e -> onResult(System.nanoTime() - start, true))
+                    .doOnCancel(this::onIgnored)
+                    .doFinally(signal -> release());
+        });
+    }
+
+    private synchronized boolean tryStartCall() {
+        if (state == State.OPEN) {
+            long now = System.nanoTime();
+            if (now - openedAtNanos < openDurationNanos) {
+                return false;
+            }
+            state = State.HALF_OPEN;
+            halfOpenStarted = 0;
+            halfOpenSucceeded = 0;
+            logger.info("Circuit of Gitlab instance {} is half-open, sending {} trial calls", gitlabInstanceUrl, halfOpenCalls);
+        }
+        if (state == State.HALF_OPEN) {
+            if (halfOpenStarted >= halfOpenCalls) {
+                return false;
+            }
+            halfOpenStarted++;
+        }
+        return true;
+    }
+
+    private void record(boolean failed, boolean slow) {
+        if (recordedCalls == failedCalls.length) {
+            failureCount -= failedCalls[nextSlot] ? 1 : 0;
+            slowCount -= slowCalls[nextSlot] ? 1 : 0;
+        } else {
+            recordedCalls++;
+        }
+        failedCalls[nextSlot] = failed;
+        slowCalls[nextSlot] = slow;
+        failureCount += failed ? 1 : 0;
+        slowCount += slow ? 1 : 0;
+        nextSlot = (nextSlot + 1) % failedCalls.length;
+    }
+
+    private void open(long now, String reason) {
+        logger.warn("Circuit of Gitlab instance {} opened ({}), calls fail fast for {} seconds",
+                gitlabInstanceUrl, reason, Duration.ofNanos(openDurationNanos).getSeconds());
+        state = State.OPEN;
+        openedAtNanos = now;
+        resetWindow();
+    }
+
+    private void close() {
+        logger.info("Circuit of Gitlab instance {} closed", gitlabInstanceUrl);
+        state = State.CLOSED;
+        resetWindow();
+    }
+
+    private void resetWindow() {
+        recordedCalls = 0;
+        nextSlot = 0;
+        failureCount = 0;
+        slowCount = 0;
+    }
+
+    private static boolean isFailure(int statusCode) {
+        return statusCode >= 500;
+    }
+
+    private InternalServerException rejected(String reason) {
+        return new InternalServerException(
+                ExecutorApiStandardErrors.SC500_50_EXECUTOR_SERVICE_ERROR,
+                "Gitlab instance " + gitlabInstanceUrl + " is unavailable (" + reason + "), retry later."
+        );
+    }
+}
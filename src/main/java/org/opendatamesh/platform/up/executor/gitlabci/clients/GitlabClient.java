@@ -5,27 +5,52 @@ import org.opendatamesh.platform.up.executor.gitlabci.resources.client.gitlab.Gi
 import org.opendatamesh.platform.up.executor.gitlabci.resources.client.gitlab.GitlabRunResourceResponse;
 import org.opendatamesh.platform.up.executor.gitlabci.resources.exceptions.GitlabClientException;
 import org.opendatamesh.platform.up.executor.gitlabci.utils.ObjectMapperFactory;
-import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.*;
-import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClientResponseException;
+import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriComponentsBuilder;
 
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
  * Service class to connect to the GitLab server instance (either on-premise or self-hosted).
+ * GitLab error responses are raised as {@link GitlabClientException}, with the status code and the body of the response.
  */
 public class GitlabClient {
+    public static final String NEXT_PAGE_HEADER = "X-Next-Page";
+
     private final String gitlabToken;
     protected String serverAddress;
     protected ObjectMapper mapper;
-    public TestRestTemplate rest = new TestRestTemplate();
+    protected final RestTemplate rest;
 
-    public GitlabClient(String serverAddress, String gitlabToken) {
+    /**
+     * @param serverAddress the url of the GitLab instance.
+     * @param gitlabToken   the token used to authenticate against the GitLab instance.
+     * @param rest          the rest template, shared by all the clients of the same GitLab instance.
+     * @see GitlabClientRegistry
+     */
+    public GitlabClient(String serverAddress, String gitlabToken, RestTemplate rest) {
         this.serverAddress = serverAddress;
         this.mapper = ObjectMapperFactory.JSON_MAPPER;
         this.gitlabToken = gitlabToken;
+        this.rest = rest;
+    }
+
+    /**
+     * @param gitlabToken the token to compare.
+     * @return true if the client authenticates with the given token.
+     */
+    public boolean usesToken(String gitlabToken) {
+        return this.gitlabToken.equals(gitlabToken);
     }
 
     /**
@@ -46,7 +71,7 @@ public class GitlabClient {
                     GitlabRunResourceResponse.class,
                     projectId
             );
-        } catch (HttpClientErrorException e) {
+        } catch (RestClientResponseException e) {
             throw new GitlabClientException(e.getRawStatusCode(), e.getResponseBodyAsString());
         }
     }
@@ -69,12 +94,44 @@ public class GitlabClient {
                     projectId,
                     pipelineId
             );
-        }
-        catch (HttpClientErrorException e) {
+        } catch (RestClientResponseException e) {
             throw new GitlabClientException(e.getRawStatusCode(), e.getResponseBodyAsString());
         }
     }
 
+    /**
+     * List the pipelines of a GitLab project updated after a given instant, one page at a time.
+     * The number of the next page, if any, is returned in the {@value #NEXT_PAGE_HEADER} response header.
+     *
+     * @param projectId    the id of the GitLab project.
+     * @param updatedAfter only pipelines updated after this instant are returned, null to return all of them.
+     * @param page         the number of the page, starting from 1.
+     * @param perPage      the size of the page.
+     * @return the page of GitLab pipelines.
+     */
+    public ResponseEntity<List<GitlabRunResourceResponse>> listPipelines(String projectId, ZonedDateTime updatedAfter, int page, int perPage) {
+        HttpEntity<GitlabPipelineResource> entity = new HttpEntity<>(getHttpHeaders());
+        Map<String, Object> queryParams = new LinkedHashMap<>();
+        queryParams.put("page", page);
+        queryParams.put("per_page", perPage);
+        if (updatedAfter != null) {
+            queryParams.put("updated_after", updatedAfter.withZoneSameInstant(ZoneOffset.UTC).format(DateTimeFormatter.ISO_INSTANT));
+        }
+        Map<String, Object> uriVariables = new HashMap<>(queryParams);
+        uriVariables.put("projectId", projectId);
+        try {
+            return rest.exchange(
+                    apiUrl(GitlabApiRoutes.GITLAB_PIPELINE_LIST, "", queryParams),
+                    HttpMethod.GET,
+                    entity,
+                    new ParameterizedTypeReference<>() {
+                    },
+                    uriVariables
+            );
+        } catch (RestClientResponseException e) {
+            throw new GitlabClientException(e.getRawStatusCode(), e.getResponseBodyAsString());
+        }
+    }
 
     /**
      * Create the http headers object, injecting the bearer token.
@@ -0,0 +1,42 @@
+package org.opendatamesh.platform.up.executor.gitlabci.clients;
+
+import org.opendatamesh.platform.up.executor.gitlabci.resources.client.gitlab.GitlabPipelineResource;
+import org.opendatamesh.platform.up.executor.gitlabci.resources.client.gitlab.GitlabRunResourceResponse;
+import org.opendatamesh.platform.up.executor.gitlabci.resources.exceptions.GitlabClientException;
+import org.springframework.http.ResponseEntity;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.Objects;
+
+/**
+ * {@link GitlabApiClient} on top of the blocking {@link GitlabClient}. The blocking calls run on the
+ * bounded elastic scheduler, so that they never block an event loop thread.
+ */
+public class GitlabClientAdapter implements GitlabApiClient {
+
+    private final GitlabClient gitlabClient;
+
+    public GitlabClientAdapter(GitlabClient gitlabClient) {
+        this.gitlabClient = gitlabClient;
+    }
+
+    @Override
+    public Mono<GitlabRunResourceResponse> postTask(GitlabPipelineResource pipelineResource, String projectId) {
+        return Mono.fromCallable(() -> toPipeline(gitlabClient.postTask(pipelineResource, projectId)))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    @Override
+    public Mono<GitlabRunResourceResponse> readTask(String projectId, String pipelineId) {
+        return Mono.fromCallable(() -> toPipeline(gitlabClient.readTask(projectId, pipelineId)))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private static GitlabRunResourceResponse toPipeline(ResponseEntity<GitlabRunResourceResponse> response) {
+        if (!response.getStatusCode().is2xxSuccessful()) {
+            throw new GitlabClientException(response.getStatusCodeValue(), Objects.toString(response.getBody(), ""));
+        }
+        return response.getBody();
+    }
+}
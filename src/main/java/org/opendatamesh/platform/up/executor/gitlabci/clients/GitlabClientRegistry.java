@@ -0,0 +1,219 @@
+package org.opendatamesh.platform.up.executor.gitlabci.clients;
+
+import io.netty.channel.ChannelOption;
+import lombok.RequiredArgsConstructor;
+import org.opendatamesh.platform.up.executor.gitlabci.config.GitlabClientConfiguration;
+import org.opendatamesh.platform.up.executor.gitlabci.utils.RestTemplateFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry that keeps one long-lived {@link GitlabClient} per GitLab instance.
+ * <p>
+ * Each instance owns a bounded, keep-alive connection pool, so that consecutive triggers and status
+ * reads reuse the same connections instead of paying a new TLS handshake and DNS lookup every time.
+ * <p>
+ * When the reactive client is enabled, {@link #getApiClient(String, String)} returns a {@link GitlabWebClient}
+ * backed by a per-instance Reactor Netty connection pool, otherwise it adapts the blocking client.
+ * <p>
+ * All the requests towards an instance go through the same {@link GitlabRateLimiter} and, once admitted,
+ * the same {@link GitlabCircuitBreaker}: an unhealthy instance fails fast without affecting the others.
+ */
+@Component
+@RequiredArgsConstructor
+public class GitlabClientRegistry implements DisposableBean {
+    private static final Logger logger = LoggerFactory.getLogger(GitlabClientRegistry.class);
+
+    private final GitlabClientConfiguration clientConfiguration;
+
+    private final Map<String, InstanceClient> clients = new ConcurrentHashMap<>();
+    private final Map<String, ReactiveInstanceClient> reactiveClients = new ConcurrentHashMap<>();
+    private final Map<String, GitlabRateLimiter> rateLimiters = new ConcurrentHashMap<>();
+    private final Map<String, GitlabCircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
+
+    /**
+     * @return true if the non-blocking {@link GitlabWebClient} is used.
+     */
+    public boolean isReactive() {
+        return Boolean.TRUE.equals(clientConfiguration.getReactive());
+    }
+
+    /**
+     * Get the non-blocking client of a GitLab instance, creating it on first use.
+     *
+     * @param gitlabInstanceUrl the url of the GitLab instance.
+     * @param gitlabToken       the token of the GitLab instance.
+     * @return the shared client.
+     */
+    public GitlabApiClient getApiClient(String gitlabInstanceUrl, String gitlabToken) {
+        if (!isReactive()) {
+            return new GitlabClientAdapter(getClient(gitlabInstanceUrl, gitlabToken));
+        }
+        ReactiveInstanceClient instanceClient = reactiveClients.get(gitlabInstanceUrl);
+        if (instanceClient != null && instanceClient.client.usesToken(gitlabToken)) {
+            return instanceClient.client;
+        }
+        return reactiveClients.compute(gitlabInstanceUrl, (url, current) -> {
+            if (current == null) {
+                logger.info("Creating reactive client for GitLab instance {}", url);
+                ConnectionProvider connectionProvider = ConnectionProvider.builder("gitlab-" + url)
+                        .maxConnections(clientConfiguration.getPoolMaxConnections())
+                        .pendingAcquireMaxCount(clientConfiguration.getPoolPendingAcquireMaxCount())
+                        .maxIdleTime(Duration.ofSeconds(clientConfiguration.getPoolKeepAliveSeconds()))
+                        .evictInBackground(Duration.ofSeconds(clientConfiguration.getPoolKeepAliveSeconds()))
+                        .build();
+                HttpClient httpClient = HttpClient.create(connectionProvider)
+                        .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, clientConfiguration.getConnectTimeoutMillis())
+                        .responseTimeout(Duration.ofMillis(clientConfiguration.getReadTimeoutMillis()));
+                WebClient webClient = WebClient.builder()
+                        .clientConnector(new ReactorClientHttpConnector(httpClient))
+                        .filter(getRateLimiter(url).filter())
+                        .filter(getCircuitBreaker(url).filter())
+                        .build();
+                return new ReactiveInstanceClient(connectionProvider, webClient, new GitlabWebClient(url, gitlabToken, webClient));
+            }
+            if (!current.client.usesToken(gitlabToken)) {
+                return new ReactiveInstanceClient(current.connectionProvider, current.webClient, new GitlabWebClient(url, gitlabToken, current.webClient));
+            }
+            return current;
+        }).client;
+    }
+
+    /**
+     * Get the client of a GitLab instance, creating it on first use.
+     * If the token changed since the client was created, the client is rebuilt on top of the same connection pool.
+     *
+     * @param gitlabInstanceUrl the url of the GitLab instance.
+     * @param gitlabToken       the token of the GitLab instance.
+     * @return the shared client.
+     */
+    public GitlabClient getClient(String gitlabInstanceUrl, String gitlabToken) {
+        InstanceClient instanceClient = clients.get(gitlabInstanceUrl);
+        if (instanceClient != null && instanceClient.client.usesToken(gitlabToken)) {
+            return instanceClient.client;
+        }
+        return clients.compute(gitlabInstanceUrl, (url, current) -> {
+            if (current == null) {
+                logger.info("Creating pooled client for GitLab instance {}", url);
+                HttpComponentsClientHttpRequestFactory requestFactory = RestTemplateFactory.createPooledRequestFactory(
+                        clientConfiguration.getConnectTimeoutMillis(),
+                        clientConfiguration.getReadTimeoutMillis(),
+                        clientConfiguration.getPoolMaxConnections(),
+                        clientConfiguration.getPoolKeepAliveSeconds(),
+                        clientConfiguration.getPoolConnectionTtlSeconds()
+                );
+                RestTemplate rest = RestTemplateFactory.createRaisingErrors(requestFactory);
+                rest.getInterceptors().add(getRateLimiter(url).interceptor());
+                rest.getInterceptors().add(getCircuitBreaker(url).interceptor());
+                return new InstanceClient(requestFactory, rest, new GitlabClient(url, gitlabToken, rest));
+            }
+            if (!current.client.usesToken(gitlabToken)) {
+                return new InstanceClient(current.requestFactory, current.rest, new GitlabClient(url, gitlabToken, current.rest));
+            }
+            return current;
+        }).client;
+    }
+
+    /**
+     * @param gitlabInstanceUrl the url of the GitLab instance.
+     * @return the rate limiter shared by the blocking and the reactive clients of the instance.
+     */
+    private GitlabRateLimiter getRateLimiter(String gitlabInstanceUrl) {
+        return rateLimiters.computeIfAbsent(gitlabInstanceUrl, url -> new GitlabRateLimiter(
+                url,
+                clientConfiguration.getRateLimitRequestsPerSecond(),
+                clientConfiguration.getRateLimitBurst(),
+                Duration.ofSeconds(clientConfiguration.getRateLimitMaxWaitSeconds())
+        ));
+    }
+
+    /**
+     * @param gitlabInstanceUrl the url of the GitLab instance.
+     * @return the circuit breaker shared by the blocking and the reactive clients of the instance.
+     */
+    public GitlabCircuitBreaker getCircuitBreaker(String gitlabInstanceUrl) {
+        return circuitBreakers.computeIfAbsent(gitlabInstanceUrl, url -> new GitlabCircuitBreaker(
+                url,
+                clientConfiguration.getCircuitBreakerFailureRateThreshold(),
+                clientConfiguration.getCircuitBreakerSlowCallRateThreshold(),
+                Duration.ofMillis(clientConfiguration.getCircuitBreakerSlowCallDurationMillis()),
+                clientConfiguration.getCircuitBreakerWindowSize(),
+                clientConfiguration.getCircuitBreakerMinimumCalls(),
+                Duration.ofSeconds(clientConfiguration.getCircuitBreakerOpenDurationSeconds()),
+                clientConfiguration.getCircuitBreakerHalfOpenCalls(),
+                clientConfiguration.getBulkheadMaxConcurrentCalls()
+        ));
+    }
+
+    /**
+     * Remove the client of a GitLab instance and release its connection pool.
+     *
+     * @param gitlabInstanceUrl the url of the GitLab instance.
+     */
+    public void evict(String gitlabInstanceUrl) {
+        InstanceClient instanceClient = clients.remove(gitlabInstanceUrl);
+        if (instanceClient != null) {
+            logger.info("Evicting pooled client for GitLab instance {}", gitlabInstanceUrl);
+            close(instanceClient);
+        }
+        rateLimiters.remove(gitlabInstanceUrl);
+        circuitBreakers.remove(gitlabInstanceUrl);
+        ReactiveInstanceClient reactiveInstanceClient = reactiveClients.remove(gitlabInstanceUrl);
+        if (reactiveInstanceClient != null) {
+            logger.info("Evicting reactive client for GitLab instance {}", gitlabInstanceUrl);
+            reactiveInstanceClient.connectionProvider.dispose();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        clients.values().forEach(this::close);
+        clients.clear();
+        reactiveClients.values().forEach(reactiveInstanceClient -> reactiveInstanceClient.connectionProvider.dispose());
+        reactiveClients.clear();
+    }
+
+    private void close(InstanceClient instanceClient) {
+        try {
+            instanceClient.requestFactory.destroy();
+        } catch (Exception e) {
+            logger.warn("Error while closing GitLab connection pool: {}", e.getMessage());
+        }
+    }
+
+    private static class InstanceClient {
+        private final HttpComponentsClientHttpRequestFactory requestFactory;
+        private final RestTemplate rest;
+        private final GitlabClient client;
+
+        private InstanceClient(HttpComponentsClientHttpRequestFactory requestFactory, RestTemplate rest, GitlabClient client) {
+            this.requestFactory = requestFactory;
+            this.rest = rest;
+            this.client = client;
+        }
+    }
+
+    private static class ReactiveInstanceClient {
+        private final ConnectionProvider connectionProvider;
+        private final WebClient webClient;
+        private final GitlabWebClient client;
+
+        private ReactiveInstanceClient(ConnectionProvider connectionProvider, WebClient webClient, GitlabWebClient client) {
+            this.connectionProvider = connectionProvider;
+            this.webClient = webClient;
+            this.client = client;
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package org.opendatamesh.platform.up.executor.gitlabci.clients;
+
+import org.opendatamesh.platform.up.executor.gitlabci.resources.ExecutorApiStandardErrors;
+import org.opendatamesh.platform.up.executor.gitlabci.resources.exceptions.TooManyRequestsException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.util.StringUtils;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket limiting the requests sent to a single GitLab instance.
+ * <p>
+ * The bucket refills at the configured rate, lowered when GitLab reports (through the {@code RateLimit-Remaining}
+ * and {@code RateLimit-Reset} headers) that fewer requests are left until the reset, and it is emptied until the
+ * instant given by {@code Retry-After}.
+ * <p>
+ * Pipeline triggers (POST) are rejected with a {@link TooManyRequestsException} when no token is available,
+ * while reads wait for a token up to the configured maximum wait.
+ */
+public class GitlabRateLimiter {
+    private static final Logger logger = LoggerFactory.getLogger(GitlabRateLimiter.class);
+
+    public static final String RATE_LIMIT_REMAINING = "RateLimit-Remaining";
+    public static final String RATE_LIMIT_RESET = "RateLimit-Reset";
+
+    private final String gitlabInstanceUrl;
+    private final double configuredRate;
+    private final double capacity;
+    private final long maxWaitNanos;
+
+    private double tokens;
+    private double rate;
+    private long lastRefillNanos;
+    private long rateRestoredAtNanos;
+
+    /**
+     * @param gitlabInstanceUrl the url of the GitLab instance.
+     * @param requestsPerSecond the maximum sustained rate.
+     * @param burst             the maximum number of requests sent at once.
+     * @param maxWait           the maximum time a read waits for a token.
+     */
+    public GitlabRateLimiter(String gitlabInstanceUrl, double requestsPerSecond, int burst, Duration maxWait) {
+        this.gitlabInstanceUrl = gitlabInstanceUrl;
+        this.configuredRate = requestsPerSecond;
+        this.capacity = burst;
+        this.maxWaitNanos = maxWait.toNanos();
+        this.tokens = burst;
+        this.rate = requestsPerSecond;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    /**
+     * Take a token only if it is immediately available.
+     *
+     * @return true if the request can be sent.
+     */
+    public synchronized boolean tryAcquire() {
+        long now = System.nanoTime();
+        refill(now);
+        if (now < lastRefillNanos || tokens < 1) {
+            return false;
+        }
+        tokens -= 1;
+        return true;
+    }
+
+    /**
+     * Reserve a token, possibly available only in the future.
+     *
+     * @return the time to wait before sending the request, null if it exceeds the maximum wait (nothing is reserved).
+     */
+    public synchronized Duration reserve() {
+        long now = System.nanoTime();
+        refill(now);
+        double missing = 1 - tokens;
+        long waitNanos = Math.max(0, lastRefillNanos - now)
+                + (missing > 0 ? (long) (missing / rate * TimeUnit.SECONDS.toNanos(1)) : 0);
+        if (waitNanos > maxWaitNanos) {
+            return null;
+        }
+        tokens -= 1;
+        return Duration.ofNanos(waitNanos);
+    }
+
+    /**
+     * Adapt the bucket to the rate limit headers returned by GitLab.
+     *
+     * @param statusCode the status code of the response.
+     * @param headers    the headers of the response.
+     */
+    public synchronized void onResponse(int statusCode, HttpHeaders headers) {
+        long now = System.nanoTime();
+        refill(now);
+        Duration retryAfter = parseRetryAfter(headers.getFirst(HttpHeaders.RETRY_AFTER));
+        if (retryAfter != null) {
+            pauseUntil(now + retryAfter.toNanos());
+            logger.warn("Gitlab instance {} asked to retry after {} seconds", gitlabInstanceUrl, retryAfter.getSeconds());
+            return;
+        }
+        Long remaining = parseLong(headers.getFirst(RATE_LIMIT_REMAINING));
+        Long reset = parseLong(headers.getFirst(RATE_LIMIT_RESET));
+        if (remaining != null && reset != null) {
+            long secondsToReset = Math.max(1, reset - Instant.now().getEpochSecond());
+            long resetNanos = now + TimeUnit.SECONDS.toNanos(secondsToReset);
+            if (remaining <= 0) {
+                pauseUntil(resetNanos);
+                return;
+            }
+            tokens = Math.min(tokens, remaining);
+            rate = Math.min(configuredRate, (double) remaining / secondsToReset);
+            rateRestoredAtNanos = resetNanos;
+        } else if (statusCode == HttpStatus.TOO_MANY_REQUESTS.value()) {
+            tokens = Math.min(tokens, 0);
+        }
+    }
+
+    /**
+     * @return an interceptor applying the limiter to the requests of a {@code RestTemplate}.
+     */
+    public ClientHttpRequestInterceptor interceptor() {
+        return (request, body, execution) -> {
+            if (HttpMethod.POST.equals(request.getMethod())) {
+                if (!tryAcquire()) {
+                    throw rejected();
+                }
+            } else {
+                Duration wait = reserve();
+                if (wait == null) {
+                    throw rejected();
+                }
+                sleep(wait);
+            }
+            ClientHttpResponse response = execution.execute(request, body);
+            onResponse(response.getRawStatusCode(), response.getHeaders());
+            return response;
+        };
+    }
+
+    /**
+     * @return a filter applying the limiter to the requests of a {@code WebClient}. Reads wait without blocking.
+     */
+    public ExchangeFilterFunction filter() {
+        return (request, next) -> Mono.defer(() -> {
+            Mono<Long> gate;
+            if (HttpMethod.POST.equals(request.method())) {
+                gate = tryAcquire() ? Mono.empty() : Mono.error(rejected());
+            } else {
+                Duration wait = reserve();
+                gate = wait == null ? Mono.error(rejected()) : wait.isZero() ? Mono.empty() : Mono.delay(wait);
+            }
+            return gate.then(Mono.defer(() -> next.exchange(request)))
+                    .doOnNext(response -> onResponse(response.rawStatusCode(), response.headers().asHttpHeaders()));
+        });
+    }
+
+    private void refill(long now) {
+        if (rateRestoredAtNanos != 0 && now >= rateRestoredAtNanos) {
+            rate = configuredRate;
+            rateRestoredAtNanos = 0;
+        }
+        if (now > lastRefillNanos) {
+            tokens = Math.min(capacity, tokens + rate * (now - lastRefillNanos) / TimeUnit.SECONDS.toNanos(1));
+            lastRefillNanos = now;
+        }
+    }
+
+    /**
+     * Stop refilling the bucket until the given instant.
+     */
+    private void pauseUntil(long untilNanos) {
+        tokens = Math.min(tokens, 0);
+        lastRefillNanos = Math.max(lastRefillNanos, untilNanos);
+    }
+
+    private TooManyRequestsException rejected() {
+        return new TooManyRequestsException(
+                ExecutorApiStandardErrors.SC429_01_GITLAB_RATE_LIMITED,
+                "Rate limit of Gitlab instance " + gitlabInstanceUrl + " reached, retry later."
+        );
+    }
+
+    private void sleep(Duration wait) {
+        if (wait.isZero()) {
+            return;
+        }
+        try {
+            Thread.sleep(wait.toMillis(), wait.getNano() % 1_000_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw rejected();
+        }
+    }
+
+    private static Duration parseRetryAfter(String retryAfter) {
+        if (!StringUtils.hasText(retryAfter)) {
+            return null;
+        }
+        Long seconds = parseLong(retryAfter);
+        if (seconds != null) {
+            return Duration.ofSeconds(Math.max(0, seconds));
+        }
+        try {
+            ZonedDateTime date = ZonedDateTime.parse(retryAfter.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+            Duration duration = Duration.between(Instant.now(), date.toInstant());
+            return duration.isNegative() ? Duration.ZERO : duration;
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private static Long parseLong(String value) {
+        if (!StringUtils.hasText(value)) {
+            return null;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
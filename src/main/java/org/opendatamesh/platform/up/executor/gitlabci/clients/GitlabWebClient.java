@@ -0,0 +1,67 @@
+package org.opendatamesh.platform.up.executor.gitlabci.clients;
+
+import org.opendatamesh.platform.up.executor.gitlabci.resources.client.gitlab.GitlabPipelineResource;
+import org.opendatamesh.platform.up.executor.gitlabci.resources.client.gitlab.GitlabRunResourceResponse;
+import org.opendatamesh.platform.up.executor.gitlabci.resources.exceptions.GitlabClientException;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+/**
+ * {@link GitlabApiClient} built on {@link WebClient}: requests run on the Reactor Netty event loop,
+ * without holding a thread while waiting for GitLab.
+ */
+public class GitlabWebClient implements GitlabApiClient {
+
+    private final String serverAddress;
+    private final String gitlabToken;
+    private final WebClient webClient;
+
+    /**
+     * @param serverAddress the url of the GitLab instance.
+     * @param gitlabToken   the token used to authenticate against the GitLab instance.
+     * @param webClient     the web client, shared by all the clients of the same GitLab instance.
+     * @see GitlabClientRegistry
+     */
+    public GitlabWebClient(String serverAddress, String gitlabToken, WebClient webClient) {
+        this.serverAddress = serverAddress;
+        this.gitlabToken = gitlabToken;
+        this.webClient = webClient;
+    }
+
+    /**
+     * @param gitlabToken the token to compare.
+     * @return true if the client authenticates with the given token.
+     */
+    public boolean usesToken(String gitlabToken) {
+        return this.gitlabToken.equals(gitlabToken);
+    }
+
+    @Override
+    public Mono<GitlabRunResourceResponse> postTask(GitlabPipelineResource pipelineResource, String projectId) {
+        return webClient.post()
+                .uri(serverAddress + GitlabApiRoutes.GITLAB_PIPELINE_RUN.getPath(), projectId)
+                .headers(headers -> headers.setBearerAuth(gitlabToken))
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(pipelineResource)
+                .exchangeToMono(this::toPipeline);
+    }
+
+    @Override
+    public Mono<GitlabRunResourceResponse> readTask(String projectId, String pipelineId) {
+        return webClient.get()
+                .uri(serverAddress + GitlabApiRoutes.GITLAB_PIPELINE_STATUS.getPath(), projectId, pipelineId)
+                .headers(headers -> headers.setBearerAuth(gitlabToken))
+                .exchangeToMono(this::toPipeline);
+    }
+
+    private Mono<GitlabRunResourceResponse> toPipeline(ClientResponse response) {
+        if (response.statusCode().is2xxSuccessful()) {
+            return response.bodyToMono(GitlabRunResourceResponse.class);
+        }
+        return response.bodyToMono(String.class)
+                .defaultIfEmpty("")
+                .flatMap(body -> Mono.error(new GitlabClientException(response.rawStatusCode(), body)));
+    }
+}
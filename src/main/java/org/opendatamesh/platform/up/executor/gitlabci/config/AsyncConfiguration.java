@@ -0,0 +1,142 @@
+package org.opendatamesh.platform.up.executor.gitlabci.config;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.opendatamesh.platform.up.executor.gitlabci.utils.VirtualThreads;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.scheduling.annotation.AsyncConfigurer;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Executor for the asynchronous pipeline work (e.g. status synchronization, callback delivery, immediate
+ * dispatch of accepted tasks, background token refresh).
+ * <p>
+ * By default it is a bounded thread pool: when all the threads are busy and the queue is full, new work is
+ * rejected with a {@link RejectedExecutionException}, instead of queueing without limits. Every caller falls back
+ * instead of failing the request: {@code ParallelTasks} runs the rejected task on the calling thread, an accepted
+ * task is left to the dispatch worker and the token refresh is skipped until the next read.
+ * <p>
+ * When virtual threads are enabled and the JVM supports them (Java 21+), every task, and every HTTP request
+ * handled by Tomcat, runs on its own virtual thread, so blocking calls to GitLab do not need a sized pool.
+ * On older JVMs the bounded pool is used.
+ */
+@Configuration
+public class AsyncConfiguration implements AsyncConfigurer, DisposableBean {
+    private static final Logger logger = LoggerFactory.getLogger(AsyncConfiguration.class);
+
+    public static final String PIPELINE_TASK_EXECUTOR = "pipelineTaskExecutor";
+
+    private final PipelineConfiguration pipelineConfiguration;
+    private final MeterRegistry meterRegistry;
+
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final ExecutorService virtualThreadExecutor;
+
+    public AsyncConfiguration(PipelineConfiguration pipelineConfiguration, MeterRegistry meterRegistry) {
+        this.pipelineConfiguration = pipelineConfiguration;
+        this.meterRegistry = meterRegistry;
+        this.virtualThreadExecutor = createVirtualThreadExecutor();
+    }
+
+    @Bean(name = PIPELINE_TASK_EXECUTOR)
+    public AsyncTaskExecutor pipelineTaskExecutor() {
+        if (virtualThreadExecutor != null) {
+            return virtualThreadTaskExecutor();
+        }
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("pipeline-");
+        executor.setCorePoolSize(pipelineConfiguration.getExecutorCorePoolSize());
+        executor.setMaxPoolSize(pipelineConfiguration.getExecutorMaxPoolSize());
+        executor.setQueueCapacity(pipelineConfiguration.getExecutorQueueCapacity());
+        executor.setRejectedExecutionHandler((task, threadPoolExecutor) -> {
+            rejectedCount.incrementAndGet();
+            logger.warn("Pipeline executor saturated: {} active threads, {} queued tasks",
+                    threadPoolExecutor.getActiveCount(), threadPoolExecutor.getQueue().size());
+            throw new RejectedExecutionException("The executor is handling too many pipeline operations");
+        });
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+
+        Gauge.builder("odm.gitlab.executor.active", executor, ThreadPoolTaskExecutor::getActiveCount)
+                .description("Threads running pipeline work")
+                .register(meterRegistry);
+        Gauge.builder("odm.gitlab.executor.queue.size", executor, e -> e.getThreadPoolExecutor().getQueue().size())
+                .description("Pipeline work waiting for a free thread")
+                .register(meterRegistry);
+        FunctionCounter.builder("odm.gitlab.executor.rejected", rejectedCount, AtomicLong::get)
+                .description("Pipeline work rejected because the executor was saturated")
+                .register(meterRegistry);
+        return executor;
+    }
+
+    /**
+     * Run the Tomcat request processing on virtual threads too, when enabled and supported.
+     */
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer() {
+        return protocolHandler -> {
+            if (virtualThreadExecutor != null) {
+                protocolHandler.setExecutor(virtualThreadExecutor);
+            }
+        };
+    }
+
+    @Override
+    public Executor getAsyncExecutor() {
+        return pipelineTaskExecutor();
+    }
+
+    @Override
+    public void destroy() {
+        if (virtualThreadExecutor != null) {
+            virtualThreadExecutor.shutdown();
+        }
+    }
+
+    private AsyncTaskExecutor virtualThreadTaskExecutor() {
+        AtomicInteger active = new AtomicInteger();
+        TaskExecutorAdapter executor = new TaskExecutorAdapter(virtualThreadExecutor);
+        executor.setTaskDecorator(task -> () -> {
+            active.incrementAndGet();
+            try {
+                task.run();
+            } finally {
+                active.decrementAndGet();
+            }
+        });
+        Gauge.builder("odm.gitlab.executor.active", active, AtomicInteger::get)
+                .description("Virtual threads running pipeline work")
+                .register(meterRegistry);
+        return executor;
+    }
+
+    private ExecutorService createVirtualThreadExecutor() {
+        if (!Boolean.TRUE.equals(pipelineConfiguration.getExecutorVirtualThreads())) {
+            return null;
+        }
+        Optional<ExecutorService> executor = VirtualThreads.newVirtualThreadPerTaskExecutor();
+        if (executor.isEmpty()) {
+            logger.warn("Virtual threads are not supported by Java {}, falling back to the platform thread pool",
+                    System.getProperty("java.version"));
+            return null;
+        }
+        logger.info("Running pipeline work and HTTP requests on virtual threads");
+        return executor.get();
+    }
+}
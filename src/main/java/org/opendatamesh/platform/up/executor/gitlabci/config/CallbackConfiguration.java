@@ -0,0 +1,47 @@
+package org.opendatamesh.platform.up.executor.gitlabci.config;
+
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@Getter
+public class CallbackConfiguration {
+    /**
+     * When false, terminal status changes are still recorded in the outbox but never delivered.
+     */
+    @Value("${odm.productplane.devops-service.callbacks.enabled}")
+    private Boolean enabled;
+    /**
+     * Time (in seconds) between two runs of the callback delivery worker.
+     */
+    @Value("${odm.productplane.devops-service.callbacks.delivery-interval}")
+    private Integer deliveryIntervalSeconds;
+    /**
+     * Maximum number of callbacks delivered by a single run of the worker.
+     */
+    @Value("${odm.productplane.devops-service.callbacks.batch-size}")
+    private Integer batchSize;
+    /**
+     * Number of failed attempts after which a callback is no longer retried.
+     */
+    @Value("${odm.productplane.devops-service.callbacks.max-attempts}")
+    private Integer maxAttempts;
+    /**
+     * Delay (in seconds) before the first retry. It doubles at each attempt, up to the maximum backoff.
+     */
+    @Value("${odm.productplane.devops-service.callbacks.backoff.initial}")
+    private Integer backoffInitialSeconds;
+    @Value("${odm.productplane.devops-service.callbacks.backoff.max}")
+    private Integer backoffMaxSeconds;
+    /**
+     * Time (in seconds) a callback claimed by a worker is hidden from the other workers while it is delivered.
+     */
+    @Value("${odm.productplane.devops-service.callbacks.lease}")
+    private Integer leaseSeconds;
+    /**
+     * Connect and read timeout (in milliseconds) of the callback requests.
+     */
+    @Value("${odm.productplane.devops-service.callbacks.timeout}")
+    private Integer timeoutMillis;
+}
@@ -0,0 +1,101 @@
+package org.opendatamesh.platform.up.executor.gitlabci.config;
+
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@Getter
+public class GitlabClientConfiguration {
+    /**
+     * Maximum time (in milliseconds) to establish a connection with a GitLab instance.
+     */
+    @Value("${odm.executors.gitlab.client-config.connect-timeout}")
+    private Integer connectTimeoutMillis;
+    /**
+     * Maximum time (in milliseconds) to wait for data once the connection is established.
+     */
+    @Value("${odm.executors.gitlab.client-config.read-timeout}")
+    private Integer readTimeoutMillis;
+    /**
+     * Maximum number of pooled connections kept open towards a single GitLab instance.
+     */
+    @Value("${odm.executors.gitlab.client-config.pool.max-connections}")
+    private Integer poolMaxConnections;
+    /**
+     * Maximum time (in seconds) an idle connection is kept alive in the pool.
+     */
+    @Value("${odm.executors.gitlab.client-config.pool.keep-alive}")
+    private Integer poolKeepAliveSeconds;
+    /**
+     * Maximum lifetime (in seconds) of a pooled connection, idle or not. 0 means no limit.
+     */
+    @Value("${odm.executors.gitlab.client-config.pool.connection-ttl}")
+    private Integer poolConnectionTtlSeconds;
+    /**
+     * Maximum number of requests of the reactive client waiting for a free pooled connection of a single GitLab
+     * instance. Further requests fail at once instead of queueing without limits.
+     */
+    @Value("${odm.executors.gitlab.client-config.pool.pending-acquire-max-count}")
+    private Integer poolPendingAcquireMaxCount;
+    /**
+     * When true, GitLab is called through the non-blocking WebClient (Reactor Netty) instead of the RestTemplate.
+     */
+    @Value("${odm.executors.gitlab.client-config.reactive}")
+    private Boolean reactive;
+    /**
+     * Maximum sustained rate of requests sent to a single GitLab instance.
+     */
+    @Value("${odm.executors.gitlab.client-config.rate-limit.requests-per-second}")
+    private Double rateLimitRequestsPerSecond;
+    /**
+     * Maximum number of requests sent at once to a single GitLab instance.
+     */
+    @Value("${odm.executors.gitlab.client-config.rate-limit.burst}")
+    private Integer rateLimitBurst;
+    /**
+     * Maximum time (in seconds) a status read waits for the rate limiter. Pipeline triggers never wait.
+     */
+    @Value("${odm.executors.gitlab.client-config.rate-limit.max-wait}")
+    private Integer rateLimitMaxWaitSeconds;
+    /**
+     * Percentage of failed calls (connection errors, timeouts, 5xx responses) that opens the circuit of an instance.
+     */
+    @Value("${odm.executors.gitlab.client-config.circuit-breaker.failure-rate-threshold}")
+    private Integer circuitBreakerFailureRateThreshold;
+    /**
+     * Percentage of slow calls that opens the circuit of an instance.
+     */
+    @Value("${odm.executors.gitlab.client-config.circuit-breaker.slow-call-rate-threshold}")
+    private Integer circuitBreakerSlowCallRateThreshold;
+    /**
+     * Time (in milliseconds) above which a call is considered slow.
+     */
+    @Value("${odm.executors.gitlab.client-config.circuit-breaker.slow-call-duration}")
+    private Integer circuitBreakerSlowCallDurationMillis;
+    /**
+     * Number of calls on which the failure and slow call rates are computed.
+     */
+    @Value("${odm.executors.gitlab.client-config.circuit-breaker.window-size}")
+    private Integer circuitBreakerWindowSize;
+    /**
+     * Minimum number of calls before the rates are evaluated.
+     */
+    @Value("${odm.executors.gitlab.client-config.circuit-breaker.minimum-calls}")
+    private Integer circuitBreakerMinimumCalls;
+    /**
+     * Time (in seconds) the circuit stays open before letting the trial calls through.
+     */
+    @Value("${odm.executors.gitlab.client-config.circuit-breaker.open-duration}")
+    private Integer circuitBreakerOpenDurationSeconds;
+    /**
+     * Number of trial calls that must succeed to close the circuit again.
+     */
+    @Value("${odm.executors.gitlab.client-config.circuit-breaker.half-open-calls}")
+    private Integer circuitBreakerHalfOpenCalls;
+    /**
+     * Maximum number of calls in flight towards a single GitLab instance.
+     */
+    @Value("${odm.executors.gitlab.client-config.bulkhead.max-concurrent-calls}")
+    private Integer bulkheadMaxConcurrentCalls;
+}
@@ -16,4 +16,25 @@ public class ParamConfiguration {
     private String serverAddress;
     @Value("${odm.productplane.params-service.client-uuid}")
     private String clientUUID;
+    /**
+     * How long (in seconds) a GitLab instance token read from the params service is kept in cache.
+     */
+    @Value("${odm.productplane.params-service.token-cache.ttl}")
+    private Integer tokenCacheTtlSeconds;
+    /**
+     * Maximum number of GitLab instance tokens kept in cache.
+     */
+    @Value("${odm.productplane.params-service.token-cache.max-size}")
+    private Integer tokenCacheMaxSize;
+    /**
+     * Time window (in seconds) before expiration in which a cached token is reloaded in background.
+     */
+    @Value("${odm.productplane.params-service.token-cache.refresh-ahead}")
+    private Integer tokenCacheRefreshAheadSeconds;
+    /**
+     * How long (in seconds) a param missing from the params service (e.g. the webhook secret of an unknown instance)
+     * is remembered as missing.
+     */
+    @Value("${odm.productplane.params-service.token-cache.negative-ttl}")
+    private Integer tokenCacheNegativeTtlSeconds;
 }
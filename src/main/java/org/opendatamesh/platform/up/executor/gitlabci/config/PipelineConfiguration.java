@@ -7,8 +7,140 @@ import org.springframework.context.annotation.Configuration;
 @Configuration
 @Getter
 public class PipelineConfiguration {
-    @Value("${odm.executors.gitlab.pipelines-config.polling.retries}")
-    private Integer pollingNumRetries;
+    /**
+     * Time (in seconds) between two synchronizations of the active pipeline runs with GitLab.
+     */
     @Value("${odm.executors.gitlab.pipelines-config.polling.interval}")
     private Integer pollingIntervalSeconds;
+    /**
+     * Maximum number of active runs (or of projects, in batch mode) loaded from the database at a time
+     * by the synchronization.
+     */
+    @Value("${odm.executors.gitlab.pipelines-config.polling.fetch-size}")
+    private Integer pollingFetchSize;
+    /**
+     * When true, the active runs of the same GitLab project are refreshed with a single (paged) pipeline list
+     * request instead of one request per run.
+     */
+    @Value("${odm.executors.gitlab.pipelines-config.polling.batch.enabled}")
+    private Boolean pollingBatchEnabled;
+    /**
+     * Number of pipelines requested per page when refreshing the runs in batch.
+     */
+    @Value("${odm.executors.gitlab.pipelines-config.polling.batch.page-size}")
+    private Integer pollingBatchPageSize;
+    /**
+     * Runs that received a webhook event within this time window (in seconds) are not polled.
+     */
+    @Value("${odm.executors.gitlab.pipelines-config.webhook.fallback-window}")
+    private Integer webhookFallbackWindowSeconds;
+    /**
+     * Maximum time (in seconds) a status request can wait for a change of the task status.
+     */
+    @Value("${odm.executors.gitlab.pipelines-config.status.max-wait}")
+    private Integer statusMaxWaitSeconds;
+    /**
+     * Time (in seconds) between two reads of the database for the tasks whose status is awaited, to complete the
+     * waiting requests when the status is saved by another instance of the executor.
+     */
+    @Value("${odm.executors.gitlab.pipelines-config.status.recheck-interval}")
+    private Integer statusRecheckIntervalSeconds;
+    /**
+     * Maximum number of task statuses kept in memory.
+     */
+    @Value("${odm.executors.gitlab.pipelines-config.status.cache.max-size}")
+    private Integer statusCacheMaxSize;
+    /**
+     * Time (in seconds) the status of an active task is kept in memory. Terminal statuses are kept until evicted.
+     */
+    @Value("${odm.executors.gitlab.pipelines-config.status.cache.active-ttl}")
+    private Integer statusCacheActiveTtlSeconds;
+    /**
+     * Time (in seconds) after which the reservation of a task whose trigger never completed can be taken over
+     * by a new submission of the same task.
+     */
+    @Value("${odm.executors.gitlab.pipelines-config.dispatch.reservation-timeout}")
+    private Integer dispatchReservationTimeoutSeconds;
+    /**
+     * When true, every task is accepted with 202 and triggered in background, as with {@code Prefer: respond-async}.
+     */
+    @Value("${odm.executors.gitlab.pipelines-config.dispatch.accept-async}")
+    private Boolean dispatchAcceptAsync;
+    /**
+     * Time (in seconds) between two runs of the worker triggering the accepted tasks.
+     */
+    @Value("${odm.executors.gitlab.pipelines-config.dispatch.interval}")
+    private Integer dispatchIntervalSeconds;
+    /**
+     * Maximum number of accepted tasks triggered by a single run of the worker.
+     */
+    @Value("${odm.executors.gitlab.pipelines-config.dispatch.batch-size}")
+    private Integer dispatchBatchSize;
+    /**
+     * Number of failed triggers after which an accepted task is marked as failed.
+     */
+    @Value("${odm.executors.gitlab.pipelines-config.dispatch.max-attempts}")
+    private Integer dispatchMaxAttempts;
+    /**
+     * Delay (in seconds) before the first retry of a trigger. It doubles at each attempt, up to the maximum backoff.
+     */
+    @Value("${odm.executors.gitlab.pipelines-config.dispatch.backoff.initial}")
+    private Integer dispatchBackoffInitialSeconds;
+    @Value("${odm.executors.gitlab.pipelines-config.dispatch.backoff.max}")
+    private Integer dispatchBackoffMaxSeconds;
+    /**
+     * Time (in seconds) an accepted task claimed by a worker is hidden from the other workers while it is triggered.
+     */
+    @Value("${odm.executors.gitlab.pipelines-config.dispatch.lease}")
+    private Integer dispatchLeaseSeconds;
+    /**
+     * When true, the pipeline runs completed for longer than the maximum age are moved to the archive table.
+     */
+    @Value("${odm.executors.gitlab.pipelines-config.retention.enabled}")
+    private Boolean retentionEnabled;
+    /**
+     * Time (in days) a completed pipeline run is kept in the pipeline runs table.
+     */
+    @Value("${odm.executors.gitlab.pipelines-config.retention.max-age}")
+    private Integer retentionMaxAgeDays;
+    /**
+     * Number of pipeline runs moved to the archive by a single transaction.
+     */
+    @Value("${odm.executors.gitlab.pipelines-config.retention.batch-size}")
+    private Integer retentionBatchSize;
+    /**
+     * Maximum number of batches moved by a single run of the job; the remaining pipeline runs are moved by the next runs.
+     */
+    @Value("${odm.executors.gitlab.pipelines-config.retention.max-batches}")
+    private Integer retentionMaxBatches;
+    /**
+     * Maximum number of tasks accepted by a single batch submission.
+     */
+    @Value("${odm.executors.gitlab.pipelines-config.submission.batch-max-size}")
+    private Integer submissionBatchMaxSize;
+    /**
+     * Maximum number of pipelines of a batch triggered at the same time on a single GitLab instance.
+     */
+    @Value("${odm.executors.gitlab.pipelines-config.submission.instance-concurrency}")
+    private Integer submissionInstanceConcurrency;
+    /**
+     * Threads always kept alive by the executor of the asynchronous pipeline work.
+     */
+    @Value("${odm.executors.gitlab.pipelines-config.executor.core-pool-size}")
+    private Integer executorCorePoolSize;
+    /**
+     * Maximum number of threads of the executor, used only when the queue is full.
+     */
+    @Value("${odm.executors.gitlab.pipelines-config.executor.max-pool-size}")
+    private Integer executorMaxPoolSize;
+    /**
+     * Maximum number of tasks waiting for a thread. Further tasks are rejected.
+     */
+    @Value("${odm.executors.gitlab.pipelines-config.executor.queue-capacity}")
+    private Integer executorQueueCapacity;
+    /**
+     * When true and supported by the JVM (Java 21+), the pipeline work runs on virtual threads instead of the pool.
+     */
+    @Value("${odm.executors.gitlab.pipelines-config.executor.virtual-threads}")
+    private Boolean executorVirtualThreads;
 }
@@ -0,0 +1,76 @@
+package org.opendatamesh.platform.up.executor.gitlabci.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.validation.annotation.Validated;
+
+import javax.validation.Valid;
+import javax.validation.constraints.DecimalMax;
+import javax.validation.constraints.DecimalMin;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Backoff curves used to space the status polls of a pipeline run.
+ * <p>
+ * Bound with {@link ConfigurationProperties} (and not {@code @Value} as the other configurations) because the
+ * curves can be overridden for each GitLab instance, e.g.:
+ * <pre>
+ * instances:
+ *   "[https://gitlab.com]":
+ *     running:
+ *       max: 30
+ * </pre>
+ * Values missing in the override of an instance are taken from the default curves.
+ * A jitter outside [0, 1) would allow zero or negative delays, and is rejected at startup.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "odm.executors.gitlab.pipelines-config.polling.backoff")
+@Validated
+@Data
+public class PollingBackoffConfiguration {
+    /**
+     * Random variation applied to each delay, as a fraction of the delay (e.g. 0.2 means +/- 20%).
+     */
+    @DecimalMin("0")
+    @DecimalMax(value = "1", inclusive = false)
+    private Double jitter;
+    /**
+     * Curve for the pipelines waiting to start (created, pending, waiting for resource, ...).
+     */
+    private Curve queued = new Curve();
+    /**
+     * Curve for the running pipelines.
+     */
+    private Curve running = new Curve();
+    /**
+     * Overrides by GitLab instance url.
+     */
+    private Map<String, @Valid InstanceBackoff> instances = new HashMap<>();
+
+    @Data
+    public static class Curve {
+        /**
+         * Delay (in seconds) before the first poll after a status change.
+         */
+        private Integer initial;
+        /**
+         * Maximum delay (in seconds) between two polls.
+         */
+        private Integer max;
+        /**
+         * Growth of the delay at each poll that does not observe a status change.
+         */
+        private Double multiplier;
+    }
+
+    @Data
+    public static class InstanceBackoff {
+        @DecimalMin("0")
+        @DecimalMax(value = "1", inclusive = false)
+        private Double jitter;
+        private Curve queued = new Curve();
+        private Curve running = new Curve();
+    }
+}
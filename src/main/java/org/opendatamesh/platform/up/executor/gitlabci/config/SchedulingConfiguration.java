@@ -0,0 +1,67 @@
+package org.opendatamesh.platform.up.executor.gitlabci.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Limits on the pipelines in flight (triggered and not completed yet) and fair sharing among the GitLab projects.
+ * <p>
+ * Bound with {@link ConfigurationProperties} because the limits and the weights can be overridden for each
+ * project and each GitLab instance, e.g.:
+ * <pre>
+ * projects:
+ *   "[1000]":
+ *     weight: 2
+ *     max-in-flight: 10
+ * instances:
+ *   "[https://gitlab.com]":
+ *     max-in-flight: 100
+ * </pre>
+ */
+@Configuration
+@ConfigurationProperties(prefix = "odm.executors.gitlab.pipelines-config.scheduling")
+@Data
+public class SchedulingConfiguration {
+    /**
+     * When false, tasks are triggered as soon as they are submitted.
+     */
+    private Boolean enabled;
+    /**
+     * Default maximum number of pipelines in flight for a single project.
+     */
+    private Integer maxInFlightPerProject;
+    /**
+     * Default maximum number of pipelines in flight for a single GitLab instance.
+     */
+    private Integer maxInFlightPerInstance;
+    /**
+     * Name of the configuration param holding the priority of a task (higher first, 0 when missing).
+     */
+    private String priorityParam;
+    /**
+     * Overrides by project id.
+     */
+    private Map<String, ProjectSchedule> projects = new HashMap<>();
+    /**
+     * Overrides by GitLab instance url.
+     */
+    private Map<String, InstanceSchedule> instances = new HashMap<>();
+
+    @Data
+    public static class ProjectSchedule {
+        /**
+         * Share of the instance capacity given to the project when several projects are waiting (1 by default).
+         */
+        private Double weight;
+        private Integer maxInFlight;
+    }
+
+    @Data
+    public static class InstanceSchedule {
+        private Integer maxInFlight;
+    }
+}
@@ -4,6 +4,8 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.ExampleObject;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -11,17 +13,35 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import org.opendatamesh.platform.up.executor.gitlabci.config.PipelineConfiguration;
+import org.opendatamesh.platform.up.executor.gitlabci.dao.PipelineRun;
 import org.opendatamesh.platform.up.executor.gitlabci.resources.*;
 import org.opendatamesh.platform.up.executor.gitlabci.resources.client.exceptions.ErrorRes;
 import org.opendatamesh.platform.up.executor.gitlabci.resources.exceptions.InternalServerException;
+import org.opendatamesh.platform.up.executor.gitlabci.resources.exceptions.ODMApiException;
+import org.opendatamesh.platform.up.executor.gitlabci.resources.exceptions.ODMApiExceptionHandler;
 import org.opendatamesh.platform.up.executor.gitlabci.resources.exceptions.UnprocessableEntityException;
+import org.opendatamesh.platform.up.executor.gitlabci.services.FairPipelineScheduler;
 import org.opendatamesh.platform.up.executor.gitlabci.services.GitlabPipelineService;
+import org.opendatamesh.platform.up.executor.gitlabci.services.PipelineBatchSubmitter;
+import org.opendatamesh.platform.up.executor.gitlabci.services.PipelineDispatchWorker;
+import org.opendatamesh.platform.up.executor.gitlabci.services.PipelineSubmission;
+import org.opendatamesh.platform.up.executor.gitlabci.services.TaskStatusWaiters;
+import org.opendatamesh.platform.up.executor.gitlabci.services.VersionedTaskStatus;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutionException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 
 /**
@@ -35,6 +55,15 @@ import java.util.concurrent.ExecutionException;
 public class GitlabExecutorController {
 
     private final GitlabPipelineService pipelineService;
+    private final TaskStatusWaiters taskStatusWaiters;
+    private final PipelineConfiguration pipelineConfiguration;
+    private final PipelineBatchSubmitter pipelineBatchSubmitter;
+    private final PipelineDispatchWorker pipelineDispatchWorker;
+    private final FairPipelineScheduler pipelineScheduler;
+
+    private static final String PREFER_HEADER = "Prefer";
+    private static final String PREFERENCE_APPLIED_HEADER = "Preference-Applied";
+    private static final String RESPOND_ASYNC = "respond-async";
 
     private static final String EXAMPLE_ONE = "{\n" + //
             "    \"callbackRef\": \"my/callback/url\",\n" + //
@@ -57,9 +86,9 @@ public class GitlabExecutorController {
     // ===============================================================================
     @Operation(
             summary = "Execute task",
-            description = "Execute the provided task"
+            description = "Execute the provided task. With the \"Prefer: respond-async\" header, the task is only "
+                    + "stored and acknowledged, and its pipeline is triggered in background."
     )
-    @ResponseStatus(HttpStatus.CREATED)
     @ApiResponses(value = {
             @ApiResponse(
                     responseCode = "201",
@@ -71,6 +100,15 @@ public class GitlabExecutorController {
                                     @ExampleObject(name = "one", value = EXAMPLE_ONE)}
                     )
             ),
+            @ApiResponse(
+                    responseCode = "202",
+                    description = "Task accepted, its pipeline will be triggered in background. "
+                            + "The Location header points to the status of the task.",
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = TaskResource.class)
+                    )
+            ),
             @ApiResponse(
                     responseCode = "409",
                     description = "[Conflict](https://www.rfc-editor.org/rfc/rfc9110.html#name-409-conflict)"
@@ -83,6 +121,12 @@ public class GitlabExecutorController {
                             + "\r\n - Error Code 42201 - Task is invalid",
                     content = {@Content(mediaType = "application/json", schema = @Schema(implementation = ErrorRes.class))}
             ),
+            @ApiResponse(
+                    responseCode = "429",
+                    description = "[Too Many Requests](https://www.rfc-editor.org/rfc/rfc6585.html#section-4)"
+                            + "\r\n - Error Code 42901 - The rate limit of the GitLab instance has been reached",
+                    content = {@Content(mediaType = "application/json", schema = @Schema(implementation = ErrorRes.class))}
+            ),
             @ApiResponse(
                     responseCode = "500",
                     description = "[Internal Server Error](https://www.rfc-editor.org/rfc/rfc9110.html#name-500-internal-server-error)"
@@ -108,17 +152,174 @@ public class GitlabExecutorController {
                     "application/json"
             }
     )
-    public TaskResource createTaskEndpoint(@RequestBody TaskResource task) {
-        return createTask(task);
+    public ResponseEntity<TaskResource> createTaskEndpoint(
+            @RequestBody TaskResource task,
+            @Parameter(description = "\"respond-async\" to trigger the pipeline in background")
+            @RequestHeader(value = PREFER_HEADER, required = false) String prefer
+    ) {
+        boolean respondAsync = prefer != null && prefer.toLowerCase(Locale.ROOT).contains(RESPOND_ASYNC);
+        PipelineSubmission submission = toSubmission(task);
+        if (respondAsync || Boolean.TRUE.equals(pipelineConfiguration.getDispatchAcceptAsync())) {
+            return accepted(acceptTask(submission), respondAsync);
+        }
+        String gitlabInstanceUrl = submission.getGitlabInstanceUrl();
+        String project = submission.getTemplate().getProjectId();
+        if (!pipelineScheduler.tryAdmit(gitlabInstanceUrl, project)) {
+            // The project or the instance has too many pipelines in flight: the task waits for its turn.
+            return accepted(acceptTask(submission), false);
+        }
+        try {
+            return ResponseEntity.status(HttpStatus.CREATED).body(createTask(submission));
+        } finally {
+            pipelineScheduler.release(gitlabInstanceUrl, project);
+        }
+    }
+
+    private static ResponseEntity<TaskResource> accepted(TaskResource task, boolean respondAsync) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.accepted()
+                .location(ServletUriComponentsBuilder.fromCurrentContextPath()
+                        .path("/tasks/{taskId}/status")
+                        .buildAndExpand(task.getId())
+                        .toUri());
+        if (respondAsync) {
+            response.header(PREFERENCE_APPLIED_HEADER, RESPOND_ASYNC);
+        }
+        return response.body(task);
     }
 
     /**
      * Create a task based on the input received from the ODM DevOps module.
      *
-     * @param task the received task
-     * @return the created task after a validation.
+     * @param submission the validated task
+     * @return the created task.
+     */
+    public TaskResource createTask(PipelineSubmission submission) {
+        TaskResource task = submission.getTask();
+        pipelineService.runPipeline(
+                submission.getConfiguration(),
+                submission.getTemplate(),
+                task.getCallbackRef(),
+                task.getId(),
+                submission.getGitlabInstanceUrl()
+        );
+        return task;
+    }
+
+    /**
+     * Accept a task based on the input received from the ODM DevOps module, without waiting for GitLab.
+     *
+     * @param submission the validated task
+     * @return the accepted task.
+     */
+    public TaskResource acceptTask(PipelineSubmission submission) {
+        TaskResource task = submission.getTask();
+        PipelineRun pipelineRun = pipelineService.acceptPipeline(
+                submission.getConfiguration(),
+                submission.getTemplate(),
+                task.getCallbackRef(),
+                task.getId(),
+                submission.getGitlabInstanceUrl()
+        );
+        pipelineDispatchWorker.dispatchSoon(pipelineRun);
+        return task;
+    }
+
+    // ===============================================================================
+    // POST /tasks/batch
+    // ===============================================================================
+    @Operation(
+            summary = "Execute a batch of tasks",
+            description = "Execute the provided tasks, in parallel. Each task gets its own result: "
+                    + "the status code and the error are the ones of a single task submission."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "The result of each task, in the order of the request",
+                    content = @Content(
+                            mediaType = "application/json",
+                            array = @ArraySchema(schema = @Schema(implementation = TaskSubmissionResultResource.class))
+                    )
+            ),
+            @ApiResponse(
+                    responseCode = "422",
+                    description = "[Unprocessable Content](https://www.rfc-editor.org/rfc/rfc9110.html#name-422-unprocessable-content)"
+                            + "\r\n - Error Code 42201 - The batch is empty or too large",
+                    content = {@Content(mediaType = "application/json", schema = @Schema(implementation = ErrorRes.class))}
+            )
+    })
+    @PostMapping(
+            value = "/batch",
+            consumes = {
+                    "application/vnd.odmp.v1+json",
+                    "application/vnd.odmp+json",
+                    "application/json"},
+            produces = {
+                    "application/vnd.odmp.v1+json",
+                    "application/vnd.odmp+json",
+                    "application/json"
+            }
+    )
+    public List<TaskSubmissionResultResource> createTasksEndpoint(@RequestBody List<TaskResource> tasks) {
+        return createTasks(tasks);
+    }
+
+    /**
+     * Create a batch of tasks. All the tasks are validated before triggering any pipeline,
+     * then the valid ones are triggered in parallel.
+     *
+     * @param tasks the received tasks.
+     * @return the result of each task, in the same order.
+     */
+    public List<TaskSubmissionResultResource> createTasks(List<TaskResource> tasks) {
+        if (tasks == null || tasks.isEmpty()) {
+            throw new UnprocessableEntityException(
+                    ExecutorApiStandardErrors.SC422_05_TASK_IS_INVALID,
+                    "The batch does not contain any task."
+            );
+        }
+        if (tasks.size() > pipelineConfiguration.getSubmissionBatchMaxSize()) {
+            throw new UnprocessableEntityException(
+                    ExecutorApiStandardErrors.SC422_05_TASK_IS_INVALID,
+                    "The batch contains " + tasks.size() + " tasks, the maximum is " + pipelineConfiguration.getSubmissionBatchMaxSize() + "."
+            );
+        }
+
+        List<PipelineSubmission> submissions = new ArrayList<>(tasks.size());
+        Set<Long> taskIds = new HashSet<>();
+        for (TaskResource task : tasks) {
+            PipelineSubmission submission;
+            try {
+                submission = toSubmission(task);
+                if (!taskIds.add(task.getId())) {
+                    throw new UnprocessableEntityException(
+                            ExecutorApiStandardErrors.SC422_05_TASK_IS_INVALID,
+                            "Task " + task.getId() + " is submitted more than once in the batch."
+                    );
+                }
+            } catch (ODMApiException e) {
+                submission = new PipelineSubmission(task);
+                submission.setError(e);
+            }
+            submissions.add(submission);
+        }
+
+        pipelineBatchSubmitter.submitAll(submissions);
+
+        List<TaskSubmissionResultResource> results = new ArrayList<>(submissions.size());
+        for (PipelineSubmission submission : submissions) {
+            results.add(toResult(submission));
+        }
+        return results;
+    }
+
+    /**
+     * Validate a task and parse its template and configuration.
+     *
+     * @param task the received task.
+     * @return the submission of the task.
      */
-    public TaskResource createTask(TaskResource task) {
+    private PipelineSubmission toSubmission(TaskResource task) {
 
         ObjectMapper objectMapper = new ObjectMapper()
                 .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
@@ -153,20 +354,43 @@ public class GitlabExecutorController {
                     "Task service couldn't read template or configuration information. Please check the format of the object");
         }
 
-        String callbackRef = task.getCallbackRef();
         if (configuration.getParams().get("gitlabInstanceUrl") == null) {
             throw new UnprocessableEntityException(
                     ExecutorApiStandardErrors.SC422_05_TASK_IS_INVALID,
                     "Gitlab instance id is not specified in the task definition."
             );
         }
-        pipelineService.runPipeline(configuration, template, callbackRef, task.getId(), configuration.getParams().get("gitlabInstanceUrl"));
-        return task;
+        PipelineSubmission submission = new PipelineSubmission(task);
+        submission.setTemplate(template);
+        submission.setConfiguration(configuration);
+        submission.setGitlabInstanceUrl(configuration.getParams().get("gitlabInstanceUrl"));
+        return submission;
+    }
+
+    private static TaskSubmissionResultResource toResult(PipelineSubmission submission) {
+        TaskSubmissionResultResource result = new TaskSubmissionResultResource();
+        result.setTaskId(submission.getTask().getId());
+        if (submission.getError() == null) {
+            result.setStatus(submission.isQueued() ? HttpStatus.ACCEPTED.value() : HttpStatus.CREATED.value());
+            result.setTask(submission.getTask());
+            return result;
+        }
+        ODMApiException error = submission.getError() instanceof ODMApiException
+                ? (ODMApiException) submission.getError()
+                : new InternalServerException(ExecutorApiStandardErrors.SC500_50_EXECUTOR_SERVICE_ERROR, submission.getError().getMessage());
+        result.setStatus(error.getStatus().value());
+        result.setError(ODMApiExceptionHandler.toErrorRes(error, "/tasks/batch"));
+        return result;
     }
 
     @Operation(
             summary = "Get the task updated version",
-            description = "Get the an updated version of the given task"
+            description = "Get the an updated version of the given task. " +
+                    "With waitSeconds, the response is sent as soon as the status differs from the current one, " +
+                    "or when the wait expires (long polling); a status saved by another replica of the executor " +
+                    "is noticed within the configured recheck interval. " +
+                    "With If-None-Match, an unchanged status is answered with 304 Not Modified; " +
+                    "combined with waitSeconds, the wait starts from the status identified by the ETag."
     )
     @GetMapping(
             value = "/{taskId}/status"
@@ -174,13 +398,18 @@ public class GitlabExecutorController {
     @ApiResponses({
             @ApiResponse(
                     responseCode = "200",
-                    description = "The requested task status with updated state from Gitlab",
+                    description = "The requested task status, as last synchronized from Gitlab, with its ETag",
                     content = {
                             @Content(
                                     mediaType = "application/json",
                                     schema = @Schema(implementation = TaskStatus.class)
                             )}
             ),
+            @ApiResponse(
+                    responseCode = "304",
+                    description = "[Not Modified](https://www.rfc-editor.org/rfc/rfc9110.html#name-304-not-modified)"
+                            + " The status still matches the ETag given in If-None-Match"
+            ),
             @ApiResponse(
                     responseCode = "404",
                     description = "[Not Found](https://www.rfc-editor.org/rfc/rfc9110.html#name-404-not-found)"
@@ -202,8 +431,70 @@ public class GitlabExecutorController {
                             )}
             )
     })
-    public TaskStatus readTaskStatus(@PathVariable Long taskId) throws ExecutionException, InterruptedException {
-        CompletableFuture<TaskStatus> taskStatusAfterPolling = pipelineService.getPipelineStatus(taskId);
-        return taskStatusAfterPolling.get();
+    public DeferredResult<ResponseEntity<TaskStatus>> readTaskStatusEndpoint(
+            @PathVariable Long taskId,
+            @Parameter(description = "Maximum time (in seconds) to wait for a status change")
+            @RequestParam(required = false) Integer waitSeconds,
+            @Parameter(description = "ETag of the status already known by the client")
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch
+    ) {
+        VersionedTaskStatus currentStatus = pipelineService.getVersionedPipelineStatus(taskId);
+        // A client holding an outdated ETag gets the new status without waiting.
+        if (waitSeconds == null || waitSeconds <= 0 || (ifNoneMatch != null && !matches(ifNoneMatch, currentStatus.getETag()))) {
+            DeferredResult<ResponseEntity<TaskStatus>> result = new DeferredResult<>();
+            result.setResult(toStatusResponse(currentStatus, ifNoneMatch));
+            return result;
+        }
+        long waitMillis = TimeUnit.SECONDS.toMillis(Math.min(waitSeconds, pipelineConfiguration.getStatusMaxWaitSeconds()));
+        // The status is re-read on completion, since its version is needed for the ETag (a cache hit once saved).
+        return taskStatusWaiters.await(
+                taskId,
+                currentStatus.getStatus(),
+                waitMillis,
+                () -> pipelineService.readStoredPipelineStatus(taskId).getStatus(),
+                status -> toStatusResponse(pipelineService.getVersionedPipelineStatus(taskId), ifNoneMatch)
+        );
+    }
+
+    /**
+     * Read the status of a task, without conditional request support.
+     *
+     * @param taskId      the id of the task.
+     * @param waitSeconds the maximum time (in seconds) to wait for a status change, null to answer at once.
+     * @return the deferred status.
+     */
+    public DeferredResult<TaskStatus> readTaskStatus(Long taskId, Integer waitSeconds) {
+        TaskStatus currentStatus = pipelineService.getPipelineStatus(taskId);
+        if (waitSeconds == null || waitSeconds <= 0) {
+            DeferredResult<TaskStatus> result = new DeferredResult<>();
+            result.setResult(currentStatus);
+            return result;
+        }
+        long waitMillis = TimeUnit.SECONDS.toMillis(Math.min(waitSeconds, pipelineConfiguration.getStatusMaxWaitSeconds()));
+        return taskStatusWaiters.await(taskId, currentStatus, waitMillis, () -> pipelineService.readStoredPipelineStatus(taskId).getStatus());
+    }
+
+    private static ResponseEntity<TaskStatus> toStatusResponse(VersionedTaskStatus status, String ifNoneMatch) {
+        String eTag = status.getETag();
+        if (matches(ifNoneMatch, eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+        }
+        return ResponseEntity.ok().eTag(eTag).body(status.getStatus());
+    }
+
+    /**
+     * Weak comparison of an If-None-Match header with an entity tag (RFC 9110, section 13.1.2).
+     */
+    private static boolean matches(String ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*") || (tag.startsWith("W/") ? tag.substring(2) : tag).equals(eTag)) {
+                return true;
+            }
+        }
+        return false;
     }
 }
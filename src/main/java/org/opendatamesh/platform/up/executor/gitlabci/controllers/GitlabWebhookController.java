@@ -0,0 +1,93 @@
+package org.opendatamesh.platform.up.executor.gitlabci.controllers;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.opendatamesh.platform.up.executor.gitlabci.resources.ExecutorApiStandardErrors;
+import org.opendatamesh.platform.up.executor.gitlabci.resources.client.exceptions.ErrorRes;
+import org.opendatamesh.platform.up.executor.gitlabci.resources.client.gitlab.GitlabPipelineEventResource;
+import org.opendatamesh.platform.up.executor.gitlabci.resources.exceptions.UnauthorizedException;
+import org.opendatamesh.platform.up.executor.gitlabci.services.GitlabPipelineService;
+import org.opendatamesh.platform.up.executor.gitlabci.services.GitlabTokenCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * Controller to receive the GitLab pipeline webhook events.
+ */
+@RestController
+@RequestMapping(value = "/webhooks/gitlab")
+@RequiredArgsConstructor
+@Tag(name = "Webhooks", description = "Endpoint receiving the GitLab webhook events.")
+public class GitlabWebhookController {
+    private static final Logger logger = LoggerFactory.getLogger(GitlabWebhookController.class);
+
+    private static final String PIPELINE_HOOK = "Pipeline Hook";
+
+    private final GitlabPipelineService pipelineService;
+    private final GitlabTokenCache gitlabTokenCache;
+
+    @Operation(
+            summary = "Receive a GitLab pipeline event",
+            description = "Update the pipeline run matching a GitLab \"Pipeline Hook\" event. " +
+                    "The webhook must be registered on GitLab with the url of the instance as gitlabInstanceUrl " +
+                    "query parameter and with the webhook secret registered for the instance as secret token."
+    )
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "204",
+                    description = "Event received"
+            ),
+            @ApiResponse(
+                    responseCode = "401",
+                    description = "[Unauthorized](https://www.rfc-editor.org/rfc/rfc9110.html#name-401-unauthorized)"
+                            + "\r\n - Error Code 40102 - The webhook secret token is missing or invalid",
+                    content = {@Content(mediaType = "application/json", schema = @Schema(implementation = ErrorRes.class))}
+            ),
+            @ApiResponse(
+                    responseCode = "422",
+                    description = "[Unprocessable Content](https://www.rfc-editor.org/rfc/rfc9110.html#name-422-unprocessable-content)"
+                            + "\r\n - Error Code 42201 - Pipeline event is invalid",
+                    content = {@Content(mediaType = "application/json", schema = @Schema(implementation = ErrorRes.class))}
+            )
+    })
+    @PostMapping(
+            consumes = {
+                    "application/json"
+            }
+    )
+    public void receivePipelineEvent(
+            @RequestParam String gitlabInstanceUrl,
+            @RequestHeader(value = "X-Gitlab-Token", required = false) String secretToken,
+            @RequestHeader(value = "X-Gitlab-Event", required = false) String event,
+            @RequestBody GitlabPipelineEventResource pipelineEvent
+    ) {
+        String webhookSecret = gitlabTokenCache.getWebhookSecret(gitlabInstanceUrl);
+        if (webhookSecret == null || secretToken == null || !MessageDigest.isEqual(
+                webhookSecret.getBytes(StandardCharsets.UTF_8),
+                secretToken.getBytes(StandardCharsets.UTF_8))) {
+            throw new UnauthorizedException(
+                    ExecutorApiStandardErrors.SC401_02_WEBHOOK_UNAUTHORIZED,
+                    "Invalid webhook secret token for Gitlab instance: " + gitlabInstanceUrl
+            );
+        }
+        if (!PIPELINE_HOOK.equals(event)) {
+            logger.debug("Ignoring Gitlab event {} from {}", event, gitlabInstanceUrl);
+            return;
+        }
+        if (pipelineService.applyPipelineEvent(gitlabInstanceUrl, pipelineEvent).isEmpty()) {
+            logger.debug("Ignoring pipeline event for unknown pipeline {} on {}",
+                    pipelineEvent.getObjectAttributes().getId(), gitlabInstanceUrl);
+        }
+    }
+}
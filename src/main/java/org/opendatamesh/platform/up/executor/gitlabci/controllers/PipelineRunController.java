@@ -0,0 +1,114 @@
+package org.opendatamesh.platform.up.executor.gitlabci.controllers;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.opendatamesh.platform.up.executor.gitlabci.resources.ExecutorApiStandardErrors;
+import org.opendatamesh.platform.up.executor.gitlabci.resources.PipelineRunPageResource;
+import org.opendatamesh.platform.up.executor.gitlabci.resources.client.exceptions.ErrorRes;
+import org.opendatamesh.platform.up.executor.gitlabci.resources.client.gitlab.GitlabRunState;
+import org.opendatamesh.platform.up.executor.gitlabci.resources.exceptions.UnprocessableEntityException;
+import org.opendatamesh.platform.up.executor.gitlabci.services.GitlabPipelineService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+/**
+ * Controller to list the pipeline runs, for the operators of the executor.
+ * <p>
+ * Pages are linked by a cursor (the id of the last pipeline run of the page) instead of a page number, and the
+ * total number of runs is not returned: {@code PageUtility} is not used because a {@code Page} needs both an
+ * offset and a count, whose cost grows with the size of the table.
+ */
+@RestController
+@RequestMapping(value = "/pipeline-runs")
+@RequiredArgsConstructor
+@Tag(name = "Pipeline runs", description = "Endpoint listing the pipeline runs triggered on GitLab.")
+public class PipelineRunController {
+    private static final int DEFAULT_LIMIT = 50;
+    private static final int MAX_LIMIT = 500;
+
+    private final GitlabPipelineService pipelineService;
+
+    @Operation(
+            summary = "List the pipeline runs",
+            description = "List the pipeline runs matching the filters, newest first. " +
+                    "The next page is requested passing the 'next' value of the current page as 'after'."
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "A page of pipeline runs",
+                    content = {
+                            @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(implementation = PipelineRunPageResource.class)
+                            )}
+            ),
+            @ApiResponse(
+                    responseCode = "422",
+                    description = "[Unprocessable Content](https://www.rfc-editor.org/rfc/rfc9110.html#name-422-unprocessable-content)"
+                            + "\r\n - Error Code 42206 - The limit or the time range is not valid",
+                    content = {
+                            @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(implementation = ErrorRes.class)
+                            )}
+            )
+    })
+    @GetMapping(
+            produces = {
+                    "application/vnd.odmp.v1+json",
+                    "application/vnd.odmp+json",
+                    "application/json"
+            }
+    )
+    public PipelineRunPageResource readPipelineRunsEndpoint(
+            @Parameter(description = "Statuses of the GitLab pipelines, e.g. running,pending")
+            @RequestParam(required = false) List<GitlabRunState> status,
+            @Parameter(description = "URL of the GitLab instance")
+            @RequestParam(required = false) String gitlabInstanceUrl,
+            @Parameter(description = "ID of the GitLab project")
+            @RequestParam(required = false) String project,
+            @Parameter(description = "Pipelines created from this instant (ISO-8601, inclusive)")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime createdFrom,
+            @Parameter(description = "Pipelines created before this instant (ISO-8601, exclusive)")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime createdBefore,
+            @Parameter(description = "Cursor of the page, the 'next' value of the previous page")
+            @RequestParam(required = false) Long after,
+            @Parameter(description = "Maximum number of pipeline runs in the page (" + MAX_LIMIT + " at most)")
+            @RequestParam(required = false) Integer limit
+    ) {
+        return readPipelineRuns(status, gitlabInstanceUrl, project, createdFrom, createdBefore, after, limit);
+    }
+
+    public PipelineRunPageResource readPipelineRuns(List<GitlabRunState> status,
+                                                    String gitlabInstanceUrl,
+                                                    String project,
+                                                    OffsetDateTime createdFrom,
+                                                    OffsetDateTime createdBefore,
+                                                    Long after,
+                                                    Integer limit) {
+        int pageSize = limit != null ? limit : DEFAULT_LIMIT;
+        if (pageSize < 1 || pageSize > MAX_LIMIT) {
+            throw new UnprocessableEntityException(
+                    ExecutorApiStandardErrors.SC422_06_QUERY_IS_INVALID,
+                    "The limit must be between 1 and " + MAX_LIMIT + "."
+            );
+        }
+        if (createdFrom != null && createdBefore != null && !createdFrom.isBefore(createdBefore)) {
+            throw new UnprocessableEntityException(
+                    ExecutorApiStandardErrors.SC422_06_QUERY_IS_INVALID,
+                    "The time range is empty: createdFrom must be before createdBefore."
+            );
+        }
+        return pipelineService.findPipelineRuns(status, gitlabInstanceUrl, project, createdFrom, createdBefore, after, pageSize);
+    }
+}
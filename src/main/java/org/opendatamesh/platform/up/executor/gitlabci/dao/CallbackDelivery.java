@@ -0,0 +1,63 @@
+package org.opendatamesh.platform.up.executor.gitlabci.dao;
+
+import lombok.Data;
+import org.opendatamesh.platform.up.executor.gitlabci.resources.TaskStatus;
+
+import javax.persistence.*;
+import java.time.OffsetDateTime;
+
+/**
+ * Outbox entry of a task status to be pushed to the callback reference of the task.
+ * <p>
+ * The pair task id / status is unique, so that the same transition is never enqueued twice.
+ */
+@Data
+@Entity
+@Table(
+        name = "CALLBACK_OUTBOX",
+        uniqueConstraints = @UniqueConstraint(name = "UK_CALLBACK_OUTBOX_TASK_STATUS", columnNames = {"TASK_ID", "STATUS"})
+)
+public class CallbackDelivery {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE)
+    @Column(name = "CALLBACK_ID")
+    protected Long callbackId;
+
+    @Column(name = "TASK_ID")
+    protected Long taskId;
+
+    @Column(name = "STATUS")
+    @Enumerated(EnumType.STRING)
+    protected TaskStatus status;
+
+    @Column(name = "CALLBACK_REF")
+    protected String callbackRef;
+
+    @Column(name = "TARGET_HOST")
+    protected String targetHost;
+
+    @Column(name = "DELIVERY_STATUS")
+    @Enumerated(EnumType.STRING)
+    protected DeliveryStatus deliveryStatus;
+
+    @Column(name = "ATTEMPTS")
+    protected Integer attempts;
+
+    @Column(name = "NEXT_ATTEMPT_AT")
+    protected OffsetDateTime nextAttemptAt;
+
+    @Column(name = "LAST_ERROR")
+    protected String lastError;
+
+    @Column(name = "CREATED_AT")
+    protected OffsetDateTime createdAt;
+
+    @Column(name = "DELIVERED_AT")
+    protected OffsetDateTime deliveredAt;
+
+    public enum DeliveryStatus {
+        PENDING,
+        DELIVERED,
+        FAILED
+    }
+}
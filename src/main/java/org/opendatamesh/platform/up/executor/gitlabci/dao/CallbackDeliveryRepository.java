@@ -0,0 +1,33 @@
+package org.opendatamesh.platform.up.executor.gitlabci.dao;
+
+import org.opendatamesh.platform.up.executor.gitlabci.resources.TaskStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+public interface CallbackDeliveryRepository extends JpaRepository<CallbackDelivery, Long> {
+    boolean existsByTaskIdAndStatus(Long taskId, TaskStatus status);
+
+    List<CallbackDelivery> findByDeliveryStatusAndNextAttemptAtLessThanEqualOrderByNextAttemptAt(
+            CallbackDelivery.DeliveryStatus deliveryStatus, OffsetDateTime now, Pageable pageable);
+
+    /**
+     * Claim a pending callback by moving its next attempt forward, only if no other worker did it in the meantime.
+     *
+     * @return 1 if the callback has been claimed, 0 otherwise.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE CallbackDelivery d SET d.nextAttemptAt = :leaseUntil " +
+            "WHERE d.callbackId = :callbackId AND d.deliveryStatus = :deliveryStatus AND d.nextAttemptAt = :expectedNextAttemptAt")
+    int claim(@Param("callbackId") Long callbackId,
+              @Param("deliveryStatus") CallbackDelivery.DeliveryStatus deliveryStatus,
+              @Param("expectedNextAttemptAt") OffsetDateTime expectedNextAttemptAt,
+              @Param("leaseUntil") OffsetDateTime leaseUntil);
+}
@@ -1,20 +1,42 @@
 package org.opendatamesh.platform.up.executor.gitlabci.dao;
 
 import lombok.Data;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 import org.opendatamesh.platform.up.executor.gitlabci.resources.client.gitlab.GitlabRunState;
-import org.opendatamesh.platform.up.executor.gitlabci.utils.ListMapConverter;
 
 import javax.persistence.*;
-import java.util.List;
-import java.util.Map;
-
+import java.time.OffsetDateTime;
 
+/**
+ * Pipeline run triggered on GitLab for a DevOps task.
+ * <p>
+ * The row of a task is reserved before the GitLab trigger, so that the unique task id makes the
+ * submission idempotent: a repeated or concurrent submission finds the reservation and never triggers a
+ * second pipeline. Reserved runs have no GitLab status until the trigger completes.
+ * <p>
+ * A task accepted asynchronously is stored as pending, with everything needed to trigger it later
+ * (project, ref and {@link PipelineRunVariables}), and triggered by the {@code PipelineDispatchWorker}.
+ * <p>
+ * The version is incremented by every update of the entity: it identifies the status served to the clients
+ * (ETag) and prevents a stale copy of the run from overwriting a newer status.
+ * <p>
+ * Ids are taken from {@code PIPELINE_RUNS_SEQ} in blocks (see {@link PooledSequenceGenerator}).
+ */
 @Data
 @Entity
 @Table(name = "PIPELINE_RUNS")
 public class PipelineRun {
     @Id
-    @GeneratedValue(strategy = GenerationType.SEQUENCE)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "PIPELINE_RUNS_SEQ")
+    @GenericGenerator(
+            name = "PIPELINE_RUNS_SEQ",
+            strategy = "org.opendatamesh.platform.up.executor.gitlabci.dao.PooledSequenceGenerator",
+            parameters = {
+                    @Parameter(name = "sequence_name", value = "PIPELINE_RUNS_SEQ"),
+                    @Parameter(name = "increment_size", value = "50")
+            }
+    )
     @Column(name = "PIPELINE_RUN_ID")
     protected Long pipelineRunId;
 
@@ -27,20 +49,67 @@ public class PipelineRun {
     @Column(name = "PROJECT")
     protected String project;
 
+    @Column(name = "REF")
+    protected String ref;
+
     @Column(name = "STATUS")
     @Enumerated(EnumType.STRING)
     protected GitlabRunState status;
 
-    @Column(name = "VARIABLES")
-    @Convert(converter = ListMapConverter.class)
-    protected List<Map<String, String>> variables;
-
     @Column(name = "CREATED_AT")
-    protected String createdAt;
+    protected OffsetDateTime createdAt;
 
     @Column(name = "FINISHED_AT")
-    protected String finishedAt;
+    protected OffsetDateTime finishedAt;
 
     @Column(name = "GITLAB_INSTANCE_URL")
     protected String gitlabInstanceUrl;
+
+    @Column(name = "LAST_EVENT_AT")
+    protected OffsetDateTime lastEventAt;
+
+    @Column(name = "CALLBACK_REF")
+    protected String callbackRef;
+
+    @Column(name = "DISPATCH_STATUS")
+    @Enumerated(EnumType.STRING)
+    protected DispatchStatus dispatchStatus;
+
+    @Column(name = "RESERVED_AT")
+    protected OffsetDateTime reservedAt;
+
+    @Column(name = "DISPATCH_ATTEMPTS")
+    protected Integer dispatchAttempts;
+
+    @Column(name = "NEXT_DISPATCH_AT")
+    protected OffsetDateTime nextDispatchAt;
+
+    @Column(name = "DISPATCH_ERROR")
+    protected String dispatchError;
+
+    @Column(name = "PRIORITY")
+    protected Integer priority;
+
+    @Version
+    @Column(name = "VERSION")
+    protected Long version;
+
+    public enum DispatchStatus {
+        /**
+         * The task id is reserved and the pipeline is being triggered on GitLab.
+         */
+        RESERVED,
+        /**
+         * The task has been accepted and waits to be triggered in background.
+         */
+        PENDING,
+        /**
+         * The pipeline has been created on GitLab.
+         */
+        TRIGGERED,
+        /**
+         * The pipeline of an accepted task could not be triggered.
+         */
+        FAILED
+    }
 }
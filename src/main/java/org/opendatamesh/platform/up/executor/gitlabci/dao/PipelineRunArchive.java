@@ -0,0 +1,84 @@
+package org.opendatamesh.platform.up.executor.gitlabci.dao;
+
+import lombok.Data;
+import org.opendatamesh.platform.up.executor.gitlabci.resources.client.gitlab.GitlabRunState;
+import org.opendatamesh.platform.up.executor.gitlabci.utils.ListMapConverter;
+import org.springframework.data.domain.Persistable;
+
+import javax.persistence.*;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Pipeline run in a terminal state moved out of {@code PIPELINE_RUNS} by the retention job, with its variables.
+ * <p>
+ * The id is the one of the original pipeline run. Archived runs are only inserted, never updated, so they are
+ * always new for Spring Data and saved without reading them first.
+ */
+@Data
+@Entity
+@Table(name = "PIPELINE_RUNS_ARCHIVE")
+public class PipelineRunArchive implements Persistable<Long> {
+    @Id
+    @Column(name = "PIPELINE_RUN_ID")
+    protected Long pipelineRunId;
+
+    @Column(name = "TASK_ID")
+    protected Long taskId;
+
+    @Column(name = "RUN_ID")
+    protected String runId;
+
+    @Column(name = "PROJECT")
+    protected String project;
+
+    @Column(name = "REF")
+    protected String ref;
+
+    @Column(name = "STATUS")
+    @Enumerated(EnumType.STRING)
+    protected GitlabRunState status;
+
+    @Column(name = "VARIABLES")
+    @Convert(converter = ListMapConverter.class)
+    protected List<Map<String, String>> variables;
+
+    @Column(name = "CREATED_AT")
+    protected OffsetDateTime createdAt;
+
+    @Column(name = "FINISHED_AT")
+    protected OffsetDateTime finishedAt;
+
+    @Column(name = "GITLAB_INSTANCE_URL")
+    protected String gitlabInstanceUrl;
+
+    @Column(name = "CALLBACK_REF")
+    protected String callbackRef;
+
+    @Column(name = "DISPATCH_STATUS")
+    @Enumerated(EnumType.STRING)
+    protected PipelineRun.DispatchStatus dispatchStatus;
+
+    @Column(name = "DISPATCH_ERROR")
+    protected String dispatchError;
+
+    @Column(name = "PRIORITY")
+    protected Integer priority;
+
+    @Column(name = "VERSION")
+    protected Long version;
+
+    @Column(name = "ARCHIVED_AT")
+    protected OffsetDateTime archivedAt;
+
+    @Override
+    public Long getId() {
+        return pipelineRunId;
+    }
+
+    @Override
+    public boolean isNew() {
+        return true;
+    }
+}
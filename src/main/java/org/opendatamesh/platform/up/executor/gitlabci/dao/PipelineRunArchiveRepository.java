@@ -0,0 +1,22 @@
+package org.opendatamesh.platform.up.executor.gitlabci.dao;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.Optional;
+import java.util.Set;
+
+public interface PipelineRunArchiveRepository extends JpaRepository<PipelineRunArchive, Long> {
+    /**
+     * Find the last archived pipeline run of a task.
+     */
+    Optional<PipelineRunArchive> findFirstByTaskIdOrderByArchivedAtDesc(Long taskId);
+
+    /**
+     * Find which of the given tasks have an archived pipeline run.
+     */
+    @Query("SELECT DISTINCT a.taskId FROM PipelineRunArchive a WHERE a.taskId IN :taskIds")
+    Set<Long> findArchivedTaskIds(@Param("taskIds") Collection<Long> taskIds);
+}
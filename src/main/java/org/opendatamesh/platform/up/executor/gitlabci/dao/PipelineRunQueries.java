@@ -0,0 +1,23 @@
+package org.opendatamesh.platform.up.executor.gitlabci.dao;
+
+import org.opendatamesh.platform.up.executor.gitlabci.resources.PipelineRunResource;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+/**
+ * Custom queries of {@link PipelineRunRepository}.
+ */
+public interface PipelineRunQueries {
+    /**
+     * Find a page of pipeline runs with keyset pagination: the runs are ordered by descending id and the page
+     * starts after the given id, so that the cost of a page does not depend on its position.
+     * Only the columns of {@link PipelineRunResource} are selected.
+     *
+     * @param specification the filters, null to list all the pipeline runs.
+     * @param after         the id of the last pipeline run of the previous page, null for the first page.
+     * @param limit         the maximum number of pipeline runs.
+     * @return the pipeline runs of the page.
+     */
+    List<PipelineRunResource> findPage(Specification<PipelineRun> specification, Long after, int limit);
+}
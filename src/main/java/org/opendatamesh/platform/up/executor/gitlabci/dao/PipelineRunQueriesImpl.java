@@ -0,0 +1,53 @@
+package org.opendatamesh.platform.up.executor.gitlabci.dao;
+
+import org.opendatamesh.platform.up.executor.gitlabci.resources.PipelineRunResource;
+import org.springframework.data.jpa.domain.Specification;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.util.ArrayList;
+import java.util.List;
+
+public class PipelineRunQueriesImpl implements PipelineRunQueries {
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<PipelineRunResource> findPage(Specification<PipelineRun> specification, Long after, int limit) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<PipelineRunResource> query = criteriaBuilder.createQuery(PipelineRunResource.class);
+        Root<PipelineRun> root = query.from(PipelineRun.class);
+
+        List<Predicate> predicates = new ArrayList<>();
+        if (specification != null) {
+            Predicate predicate = specification.toPredicate(root, query, criteriaBuilder);
+            if (predicate != null) {
+                predicates.add(predicate);
+            }
+        }
+        if (after != null) {
+            predicates.add(criteriaBuilder.lessThan(root.<Long>get("pipelineRunId"), after));
+        }
+
+        query.select(criteriaBuilder.construct(
+                        PipelineRunResource.class,
+                        root.get("pipelineRunId"),
+                        root.get("taskId"),
+                        root.get("runId"),
+                        root.get("project"),
+                        root.get("status"),
+                        root.get("gitlabInstanceUrl"),
+                        root.get("createdAt"),
+                        root.get("finishedAt")
+                ))
+                .where(predicates.toArray(new Predicate[0]))
+                .orderBy(criteriaBuilder.desc(root.get("pipelineRunId")));
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+}
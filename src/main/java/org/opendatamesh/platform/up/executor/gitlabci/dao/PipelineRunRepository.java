@@ -1,10 +1,157 @@
 package org.opendatamesh.platform.up.executor.gitlabci.dao;
 
+import org.opendatamesh.platform.up.executor.gitlabci.resources.client.gitlab.GitlabRunState;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
-public interface PipelineRunRepository extends JpaRepository<PipelineRun, Long>, JpaSpecificationExecutor<PipelineRun> {
+public interface PipelineRunRepository extends JpaRepository<PipelineRun, Long>, JpaSpecificationExecutor<PipelineRun>, PipelineRunQueries {
     Optional<PipelineRun> findByTaskId(Long taskId);
+
+    /**
+     * Find the pipeline run of a task as a {@link Summary}, selecting only its columns.
+     */
+    Optional<Summary> findSummaryByTaskId(Long taskId);
+
+    List<PipelineRun> findByStatusIn(Collection<GitlabRunState> statuses);
+
+    Optional<PipelineRun> findByGitlabInstanceUrlAndRunId(String gitlabInstanceUrl, String runId);
+
+    /**
+     * Find the pipeline runs in the given states that did not receive any webhook event after the given instant,
+     * with an id greater than the given one, in id order.
+     */
+    @Query("SELECT r FROM PipelineRun r WHERE r.status IN :statuses AND (r.lastEventAt IS NULL OR r.lastEventAt < :eventThreshold) " +
+            "AND r.pipelineRunId > :after ORDER BY r.pipelineRunId")
+    List<PipelineRun> findByStatusInWithoutEventsSince(@Param("statuses") Collection<GitlabRunState> statuses,
+                                                       @Param("eventThreshold") OffsetDateTime eventThreshold,
+                                                       @Param("after") Long after,
+                                                       Pageable pageable);
+
+    /**
+     * Find the projects with pipeline runs in the given states that did not receive any webhook event after
+     * the given instant, following the given project in (instance url, project) order.
+     */
+    @Query("SELECT DISTINCT r.gitlabInstanceUrl AS gitlabInstanceUrl, r.project AS project FROM PipelineRun r " +
+            "WHERE r.status IN :statuses AND (r.lastEventAt IS NULL OR r.lastEventAt < :eventThreshold) " +
+            "AND (r.gitlabInstanceUrl > :afterInstanceUrl OR (r.gitlabInstanceUrl = :afterInstanceUrl AND r.project > :afterProject)) " +
+            "ORDER BY r.gitlabInstanceUrl, r.project")
+    List<ProjectRef> findProjectsByStatusInWithoutEventsSince(@Param("statuses") Collection<GitlabRunState> statuses,
+                                                              @Param("eventThreshold") OffsetDateTime eventThreshold,
+                                                              @Param("afterInstanceUrl") String afterInstanceUrl,
+                                                              @Param("afterProject") String afterProject,
+                                                              Pageable pageable);
+
+    /**
+     * Find the pipeline runs of a project in the given states that did not receive any webhook event after the given instant.
+     */
+    @Query("SELECT r FROM PipelineRun r WHERE r.gitlabInstanceUrl = :gitlabInstanceUrl AND r.project = :project " +
+            "AND r.status IN :statuses AND (r.lastEventAt IS NULL OR r.lastEventAt < :eventThreshold)")
+    List<PipelineRun> findByProjectAndStatusInWithoutEventsSince(@Param("gitlabInstanceUrl") String gitlabInstanceUrl,
+                                                                 @Param("project") String project,
+                                                                 @Param("statuses") Collection<GitlabRunState> statuses,
+                                                                 @Param("eventThreshold") OffsetDateTime eventThreshold);
+
+    /**
+     * Take over the reservation of a task left by a submission that did not complete, only if no other
+     * submission did it in the meantime.
+     *
+     * @return 1 if the reservation has been taken over, 0 otherwise.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE PipelineRun r SET r.reservedAt = :now " +
+            "WHERE r.taskId = :taskId AND r.dispatchStatus = :dispatchStatus AND r.reservedAt < :staleBefore")
+    int takeOverReservation(@Param("taskId") Long taskId,
+                            @Param("dispatchStatus") PipelineRun.DispatchStatus dispatchStatus,
+                            @Param("staleBefore") OffsetDateTime staleBefore,
+                            @Param("now") OffsetDateTime now);
+
+    List<PipelineRun> findByDispatchStatusAndNextDispatchAtLessThanEqualOrderByNextDispatchAt(
+            PipelineRun.DispatchStatus dispatchStatus, OffsetDateTime now, Pageable pageable);
+
+    List<PipelineRun> findByDispatchStatusAndGitlabInstanceUrlAndProjectAndNextDispatchAtLessThanEqual(
+            PipelineRun.DispatchStatus dispatchStatus, String gitlabInstanceUrl, String project, OffsetDateTime now, Pageable pageable);
+
+    boolean existsByDispatchStatusAndGitlabInstanceUrlAndProject(
+            PipelineRun.DispatchStatus dispatchStatus, String gitlabInstanceUrl, String project);
+
+    /**
+     * Find the projects with at least one pipeline run in the given dispatch state, due at the given instant.
+     */
+    @Query("SELECT DISTINCT r.gitlabInstanceUrl AS gitlabInstanceUrl, r.project AS project FROM PipelineRun r " +
+            "WHERE r.dispatchStatus = :dispatchStatus AND r.nextDispatchAt <= :now")
+    List<ProjectRef> findDueProjects(@Param("dispatchStatus") PipelineRun.DispatchStatus dispatchStatus,
+                                     @Param("now") OffsetDateTime now);
+
+    @Query("SELECT COUNT(r) FROM PipelineRun r " +
+            "WHERE r.gitlabInstanceUrl = :gitlabInstanceUrl AND r.project = :project AND r.status IN :statuses")
+    long countByProjectAndStatusIn(@Param("gitlabInstanceUrl") String gitlabInstanceUrl,
+                                   @Param("project") String project,
+                                   @Param("statuses") Collection<GitlabRunState> statuses);
+
+    @Query("SELECT COUNT(r) FROM PipelineRun r WHERE r.gitlabInstanceUrl = :gitlabInstanceUrl AND r.status IN :statuses")
+    long countByInstanceAndStatusIn(@Param("gitlabInstanceUrl") String gitlabInstanceUrl,
+                                    @Param("statuses") Collection<GitlabRunState> statuses);
+
+    /**
+     * Find the pipeline runs in the given states that completed before the given instant, oldest first.
+     * Runs never triggered (failed accepted tasks) have no finish instant and are aged from their reservation.
+     */
+    @Query("SELECT r.pipelineRunId FROM PipelineRun r WHERE r.status IN :statuses " +
+            "AND (r.finishedAt < :before OR (r.finishedAt IS NULL AND r.reservedAt < :before)) " +
+            "ORDER BY r.pipelineRunId")
+    List<Long> findIdsCompletedBefore(@Param("statuses") Collection<GitlabRunState> statuses,
+                                      @Param("before") OffsetDateTime before,
+                                      Pageable pageable);
+
+    @Modifying
+    @Query("DELETE FROM PipelineRun r WHERE r.pipelineRunId IN :pipelineRunIds")
+    int deleteByPipelineRunIds(@Param("pipelineRunIds") Collection<Long> pipelineRunIds);
+
+    interface ProjectRef {
+        String getGitlabInstanceUrl();
+
+        String getProject();
+    }
+
+    /**
+     * Read-only view of a pipeline run, with what is needed to serve its status.
+     */
+    interface Summary {
+        Long getTaskId();
+
+        String getRunId();
+
+        String getProject();
+
+        GitlabRunState getStatus();
+
+        String getGitlabInstanceUrl();
+
+        Long getVersion();
+    }
+
+    /**
+     * Claim a due pending run by moving its next dispatch forward, only if no other worker did it in the meantime.
+     *
+     * @return 1 if the run has been claimed, 0 otherwise.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE PipelineRun r SET r.nextDispatchAt = :leaseUntil " +
+            "WHERE r.pipelineRunId = :pipelineRunId AND r.dispatchStatus = :dispatchStatus AND r.nextDispatchAt <= :now")
+    int claimDispatch(@Param("pipelineRunId") Long pipelineRunId,
+                      @Param("dispatchStatus") PipelineRun.DispatchStatus dispatchStatus,
+                      @Param("now") OffsetDateTime now,
+                      @Param("leaseUntil") OffsetDateTime leaseUntil);
 }
@@ -0,0 +1,46 @@
+package org.opendatamesh.platform.up.executor.gitlabci.dao;
+
+import org.opendatamesh.platform.up.executor.gitlabci.resources.client.gitlab.GitlabRunState;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.OffsetDateTime;
+import java.util.Collection;
+
+/**
+ * Filters of the pipeline run queries. Each filter given a null (or empty) value matches all the pipeline runs.
+ */
+public final class PipelineRunSpecifications {
+
+    private PipelineRunSpecifications() {
+    }
+
+    public static Specification<PipelineRun> hasStatusIn(Collection<GitlabRunState> statuses) {
+        return (root, query, criteriaBuilder) -> statuses == null || statuses.isEmpty()
+                ? null
+                : root.get("status").in(statuses);
+    }
+
+    public static Specification<PipelineRun> hasGitlabInstanceUrl(String gitlabInstanceUrl) {
+        return (root, query, criteriaBuilder) -> gitlabInstanceUrl == null
+                ? null
+                : criteriaBuilder.equal(root.get("gitlabInstanceUrl"), gitlabInstanceUrl);
+    }
+
+    public static Specification<PipelineRun> hasProject(String project) {
+        return (root, query, criteriaBuilder) -> project == null
+                ? null
+                : criteriaBuilder.equal(root.get("project"), project);
+    }
+
+    public static Specification<PipelineRun> createdFrom(OffsetDateTime from) {
+        return (root, query, criteriaBuilder) -> from == null
+                ? null
+                : criteriaBuilder.greaterThanOrEqualTo(root.<OffsetDateTime>get("createdAt"), from);
+    }
+
+    public static Specification<PipelineRun> createdBefore(OffsetDateTime to) {
+        return (root, query, criteriaBuilder) -> to == null
+                ? null
+                : criteriaBuilder.lessThan(root.<OffsetDateTime>get("createdAt"), to);
+    }
+}
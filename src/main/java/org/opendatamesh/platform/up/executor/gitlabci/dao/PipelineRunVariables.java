@@ -0,0 +1,47 @@
+package org.opendatamesh.platform.up.executor.gitlabci.dao;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+import org.opendatamesh.platform.up.executor.gitlabci.utils.ListMapConverter;
+
+import javax.persistence.*;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Variables of the pipeline run of a task, as sent to GitLab.
+ * <p>
+ * They are stored apart from the {@link PipelineRun}, so that reading and updating the status of a run never
+ * loads (and deserializes) the variables: they are read only to trigger the pipeline of an accepted task.
+ * They are deleted with their run by the database, as declared by the {@code ON DELETE CASCADE} of V1_10.
+ */
+@Data
+@NoArgsConstructor
+@Entity
+@Table(name = "PIPELINE_RUN_VARIABLES")
+public class PipelineRunVariables {
+    @Id
+    @Column(name = "PIPELINE_RUN_ID")
+    protected Long pipelineRunId;
+
+    @MapsId
+    @OneToOne(fetch = FetchType.LAZY)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @JoinColumn(name = "PIPELINE_RUN_ID")
+    protected PipelineRun pipelineRun;
+
+    @Column(name = "VARIABLES")
+    @Convert(converter = ListMapConverter.class)
+    protected List<Map<String, String>> variables;
+
+    public PipelineRunVariables(PipelineRun pipelineRun, List<Map<String, String>> variables) {
+        this.pipelineRun = pipelineRun;
+        this.variables = variables;
+    }
+}
@@ -0,0 +1,14 @@
+package org.opendatamesh.platform.up.executor.gitlabci.dao;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+
+public interface PipelineRunVariablesRepository extends JpaRepository<PipelineRunVariables, Long> {
+    @Modifying
+    @Query("DELETE FROM PipelineRunVariables v WHERE v.pipelineRunId IN :pipelineRunIds")
+    int deleteByPipelineRunIds(@Param("pipelineRunIds") Collection<Long> pipelineRunIds);
+}
@@ -0,0 +1,34 @@
+package org.opendatamesh.platform.up.executor.gitlabci.dao;
+
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.internal.util.config.ConfigurationHelper;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.util.Properties;
+
+/**
+ * Sequence generator with the pooled optimizer: every call to the database sequence reserves a block of ids,
+ * which are then assigned in memory, so that inserting many rows does not cost one sequence round-trip per row.
+ * <p>
+ * The block size is read from the {@value #ALLOCATION_SIZE_SETTING} Hibernate setting (falling back to the
+ * {@code increment_size} parameter of the mapping). It must be equal to the increment of the database sequence.
+ */
+public class PooledSequenceGenerator extends SequenceStyleGenerator {
+    public static final String ALLOCATION_SIZE_SETTING = "odm.id.allocation_size";
+
+    @Override
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) throws MappingException {
+        int defaultSize = ConfigurationHelper.getInt(INCREMENT_PARAM, params, DEFAULT_INCREMENT_SIZE);
+        int allocationSize = ConfigurationHelper.getInt(
+                ALLOCATION_SIZE_SETTING,
+                serviceRegistry.getService(ConfigurationService.class).getSettings(),
+                defaultSize
+        );
+        params.setProperty(INCREMENT_PARAM, String.valueOf(allocationSize));
+        params.setProperty(OPT_PARAM, "pooled");
+        super.configure(type, params, serviceRegistry);
+    }
+}
@@ -10,6 +10,8 @@ public enum ExecutorApiStandardErrors implements ODMApiStandardErrors {
     // Unathorized Exceptions
     SC401_01_EXECUTOR_UNATHORIZED("40101", "The executor client id isn't authorized for the request"),
 
+    SC401_02_WEBHOOK_UNAUTHORIZED("40102", "The webhook secret token is missing or invalid"),
+
     // Forbidden exception
     SC403_01_EXECUTOR_FORBIDDEN("40301", "The request is forbidden for the executor client id"),
 
@@ -19,6 +21,11 @@ public enum ExecutorApiStandardErrors implements ODMApiStandardErrors {
     // Unprocessable Entity Exceptions
     SC422_05_TASK_IS_INVALID("42201", "Task is invalid"),
 
+    SC422_06_QUERY_IS_INVALID("42206", "Query parameters are invalid"),
+
+    // Too Many Requests Exceptions
+    SC429_01_GITLAB_RATE_LIMITED("42901", "The rate limit of the GitLab instance has been reached"),
+
     // Conflict Exceptions
     SC409_01_CONCURRENT_EXECUTIONS("40901", "Task is already started"),
 
@@ -0,0 +1,19 @@
+package org.opendatamesh.platform.up.executor.gitlabci.resources;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class PipelineRunPageResource {
+
+    @Schema(description = "The pipeline runs of the page, newest first")
+    private List<PipelineRunResource> content;
+
+    @Schema(description = "Number of pipeline runs in the page")
+    private int size;
+
+    @Schema(description = "Value of the 'after' parameter to get the next page, empty on the last page")
+    private Long next;
+}
@@ -0,0 +1,39 @@
+package org.opendatamesh.platform.up.executor.gitlabci.resources;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.opendatamesh.platform.up.executor.gitlabci.resources.client.gitlab.GitlabRunState;
+
+import java.time.OffsetDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PipelineRunResource {
+
+    @Schema(description = "ID of the pipeline run, used as cursor by the pagination")
+    private Long pipelineRunId;
+
+    @Schema(description = "ID of the Task")
+    private Long taskId;
+
+    @Schema(description = "ID of the GitLab pipeline, empty until the pipeline is triggered")
+    private String runId;
+
+    @Schema(description = "ID of the GitLab project")
+    private String project;
+
+    @Schema(description = "Status of the GitLab pipeline, as last synchronized")
+    private GitlabRunState status;
+
+    @Schema(description = "URL of the GitLab instance")
+    private String gitlabInstanceUrl;
+
+    @Schema(description = "Creation time of the GitLab pipeline")
+    private OffsetDateTime createdAt;
+
+    @Schema(description = "Completion time of the GitLab pipeline")
+    private OffsetDateTime finishedAt;
+}
@@ -5,5 +5,12 @@ public enum TaskStatus {
     ABORTED,
     PROCESSING,
     PROCESSED,
-    FAILED
+    FAILED;
+
+    /**
+     * @return true if the task completed and its status will not change anymore.
+     */
+    public boolean isTerminal() {
+        return this == PROCESSED || this == FAILED || this == ABORTED;
+    }
 }
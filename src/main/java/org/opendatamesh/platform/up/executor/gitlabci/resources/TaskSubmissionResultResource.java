@@ -0,0 +1,21 @@
+package org.opendatamesh.platform.up.executor.gitlabci.resources;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+import org.opendatamesh.platform.up.executor.gitlabci.resources.client.exceptions.ErrorRes;
+
+@Data
+public class TaskSubmissionResultResource {
+
+    @Schema(description = "ID of the submitted Task")
+    private Long taskId;
+
+    @Schema(description = "HTTP numeric status code of the submission, the same as for a single task")
+    private int status;
+
+    @Schema(description = "The created Task, when the submission succeeded")
+    private TaskResource task;
+
+    @Schema(description = "The error of the submission, when it failed")
+    private ErrorRes error;
+}
@@ -6,4 +6,8 @@ import lombok.Data;
 public class GitlabConfigResource {
     private String instanceUrl;
     private String instanceToken;
+    /**
+     * Optional secret token that GitLab sends along with the webhook events of the instance.
+     */
+    private String webhookSecret;
 }
@@ -0,0 +1,34 @@
+package org.opendatamesh.platform.up.executor.gitlabci.resources.client.gitlab;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+
+/**
+ * GitLab "Pipeline Hook" webhook event. Only the fields needed to update a pipeline run are mapped.
+ */
+@Data
+public class GitlabPipelineEventResource {
+    @JsonProperty("object_kind")
+    private String objectKind;
+    @JsonProperty("object_attributes")
+    private ObjectAttributes objectAttributes;
+    private Project project;
+
+    @Data
+    public static class ObjectAttributes {
+        private String id;
+        private String status;
+        /**
+         * GitLab sends webhook timestamps as "yyyy-MM-dd HH:mm:ss z" (e.g. "2016-08-12 15:26:29 UTC").
+         */
+        @JsonProperty("finished_at")
+        private String finishedAt;
+    }
+
+    @Data
+    public static class Project {
+        private String id;
+        @JsonProperty("web_url")
+        private String webUrl;
+    }
+}
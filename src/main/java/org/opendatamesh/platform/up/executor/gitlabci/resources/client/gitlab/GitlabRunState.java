@@ -1,5 +1,8 @@
 package org.opendatamesh.platform.up.executor.gitlabci.resources.client.gitlab;
 
+import java.util.EnumSet;
+import java.util.Set;
+
 public enum GitlabRunState {
     created,
     waiting_for_resource,
@@ -11,5 +14,26 @@ public enum GitlabRunState {
     canceled,
     skipped,
     manual,
-    scheduled
+    scheduled;
+
+    /**
+     * @return true if the pipeline reached a final state and its status will not change anymore.
+     */
+    public boolean isTerminal() {
+        return this == success || this == failed || this == canceled || this == skipped;
+    }
+
+    /**
+     * @return the states of a pipeline that has not completed yet.
+     */
+    public static Set<GitlabRunState> activeStates() {
+        return EnumSet.complementOf(EnumSet.copyOf(terminalStates()));
+    }
+
+    /**
+     * @return the final states of a pipeline.
+     */
+    public static Set<GitlabRunState> terminalStates() {
+        return EnumSet.of(success, failed, canceled, skipped);
+    }
 }
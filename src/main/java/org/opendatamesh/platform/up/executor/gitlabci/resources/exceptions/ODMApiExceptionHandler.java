@@ -0,0 +1,44 @@
+package org.opendatamesh.platform.up.executor.gitlabci.resources.exceptions;
+
+import org.opendatamesh.platform.up.executor.gitlabci.resources.client.exceptions.ErrorRes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * Translates the {@link ODMApiException} thrown by the controllers into an {@link ErrorRes}
+ * with the HTTP status of the exception.
+ */
+@RestControllerAdvice
+public class ODMApiExceptionHandler {
+	private static final Logger logger = LoggerFactory.getLogger(ODMApiExceptionHandler.class);
+
+	@ExceptionHandler(ODMApiException.class)
+	public ResponseEntity<ErrorRes> handleODMApiException(ODMApiException e, HttpServletRequest request) {
+		if (e.getStatus().is5xxServerError()) {
+			logger.error("{} on {}: {}", e.getErrorName(), request.getRequestURI(), e.getMessage(), e);
+		} else {
+			logger.info("{} on {}: {}", e.getErrorName(), request.getRequestURI(), e.getMessage());
+		}
+		return ResponseEntity.status(e.getStatus()).body(toErrorRes(e, request.getRequestURI()));
+	}
+
+	/**
+	 * @param e    the exception.
+	 * @param path the path of the request.
+	 * @return the error returned to the client for the exception.
+	 */
+	public static ErrorRes toErrorRes(ODMApiException e, String path) {
+		return new ErrorRes(
+				e.getStatus().value(),
+				e.getStandardErrorCode(),
+				e.getStandardErrorDescription(),
+				e.getMessage(),
+				path
+		);
+	}
+}
@@ -0,0 +1,38 @@
+package org.opendatamesh.platform.up.executor.gitlabci.resources.exceptions;
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * Http Status: 429
+ * 
+ * The 429 (Too Many Requests) status code indicates the user has sent too many requests 
+ * in a given amount of time ("rate limiting").
+ * 
+ * EXAMPLE: A pipeline trigger while the rate limit of the target GitLab instance is exhausted
+ * 
+ * @see https://www.rfc-editor.org/rfc/rfc6585.html#section-4
+ * @see ODMApiExceptionHandler
+ */
+public class TooManyRequestsException extends ODMApiException {
+
+	public TooManyRequestsException(ODMApiStandardErrors error, String message) {
+		super(error, message);
+	}
+
+	public TooManyRequestsException() {
+		super();
+	}
+
+	public TooManyRequestsException(ODMApiStandardErrors error, String message, Throwable cause) {
+		super(error, message, cause);
+	}
+
+	public TooManyRequestsException(Throwable cause) {
+		super(cause);
+	}
+
+	@Override
+	public HttpStatus getStatus() {
+		return HttpStatus.TOO_MANY_REQUESTS;
+	}
+}
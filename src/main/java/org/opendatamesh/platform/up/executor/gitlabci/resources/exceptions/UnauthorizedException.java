@@ -0,0 +1,37 @@
+package org.opendatamesh.platform.up.executor.gitlabci.resources.exceptions;
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * Http Status: 401
+ * 
+ * The 401 (Unauthorized) status code indicates that the request has not been applied 
+ * because it lacks valid authentication credentials for the target resource.
+ * 
+ * EXAMPLE: A GitLab webhook event received without the secret token registered for the instance
+ * 
+ * @see https://www.rfc-editor.org/rfc/rfc9110.html#name-401-unauthorized
+ */
+public class UnauthorizedException extends ODMApiException {
+
+	public UnauthorizedException(ODMApiStandardErrors error, String message) {
+		super(error, message);
+	}
+
+	public UnauthorizedException() {
+		super();
+	}
+
+	public UnauthorizedException(ODMApiStandardErrors error, String message, Throwable cause) {
+		super(error, message, cause);
+	}
+
+	public UnauthorizedException(Throwable cause) {
+		super(cause);
+	}
+
+	@Override
+	public HttpStatus getStatus() {
+		return HttpStatus.UNAUTHORIZED;
+	}
+}
@@ -0,0 +1,190 @@
+package org.opendatamesh.platform.up.executor.gitlabci.services;
+
+import org.opendatamesh.platform.up.executor.gitlabci.clients.DevOpsCallbackClient;
+import org.opendatamesh.platform.up.executor.gitlabci.config.AsyncConfiguration;
+import org.opendatamesh.platform.up.executor.gitlabci.config.CallbackConfiguration;
+import org.opendatamesh.platform.up.executor.gitlabci.dao.CallbackDelivery;
+import org.opendatamesh.platform.up.executor.gitlabci.dao.CallbackDeliveryRepository;
+import org.opendatamesh.platform.up.executor.gitlabci.utils.ParallelTasks;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientException;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background job that delivers the callbacks recorded in the outbox.
+ * <p>
+ * Due callbacks are grouped by target host. Hosts are served concurrently on the pipeline executor, while the callbacks
+ * of the same host are delivered one after the other on a shared keep-alive connection.
+ * When a host does not answer, its remaining callbacks are left for the next run, and the failed one is retried
+ * with an exponential backoff.
+ * <p>
+ * A callback is claimed before being sent, so that it is never delivered by two workers at the same time.
+ * The delivery is at least once: the receiver can discard duplicates using the {@code Idempotency-Key} header.
+ */
+@Component
+public class CallbackDeliveryWorker {
+    private static final Logger logger = LoggerFactory.getLogger(CallbackDeliveryWorker.class);
+
+    private final CallbackDeliveryRepository callbackDeliveryRepository;
+    private final DevOpsCallbackClient callbackClient;
+    private final CallbackConfiguration callbackConfiguration;
+    private final Executor pipelineTaskExecutor;
+
+    public CallbackDeliveryWorker(CallbackDeliveryRepository callbackDeliveryRepository,
+                                  DevOpsCallbackClient callbackClient,
+                                  CallbackConfiguration callbackConfiguration,
+                                  @Qualifier(AsyncConfiguration.PIPELINE_TASK_EXECUTOR) Executor pipelineTaskExecutor) {
+        this.callbackDeliveryRepository = callbackDeliveryRepository;
+        this.callbackClient = callbackClient;
+        this.callbackConfiguration = callbackConfiguration;
+        this.pipelineTaskExecutor = pipelineTaskExecutor;
+    }
+
+    @Scheduled(
+            initialDelayString = "${odm.productplane.devops-service.callbacks.delivery-interval}",
+            fixedDelayString = "${odm.productplane.devops-service.callbacks.delivery-interval}",
+            timeUnit = TimeUnit.SECONDS
+    )
+    public void deliverDueCallbacks() {
+        if (!Boolean.TRUE.equals(callbackConfiguration.getEnabled())) {
+            return;
+        }
+        List<CallbackDelivery> dueCallbacks = callbackDeliveryRepository
+                .findByDeliveryStatusAndNextAttemptAtLessThanEqualOrderByNextAttemptAt(
+                        CallbackDelivery.DeliveryStatus.PENDING,
+                        OffsetDateTime.now(),
+                        PageRequest.of(0, callbackConfiguration.getBatchSize())
+                );
+        if (dueCallbacks.isEmpty()) {
+            return;
+        }
+        Map<String, List<CallbackDelivery>> callbacksByHost = new LinkedHashMap<>();
+        for (CallbackDelivery callbackDelivery : dueCallbacks) {
+            callbacksByHost
+                    .computeIfAbsent(Objects.toString(callbackDelivery.getTargetHost(), ""), k -> new ArrayList<>())
+                    .add(callbackDelivery);
+        }
+        List<Runnable> hostDeliveries = new ArrayList<>(callbacksByHost.size());
+        for (Map.Entry<String, List<CallbackDelivery>> hostCallbacks : callbacksByHost.entrySet()) {
+            hostDeliveries.add(() -> deliverToHost(hostCallbacks.getKey(), hostCallbacks.getValue()));
+        }
+        ParallelTasks.runAll(pipelineTaskExecutor, hostDeliveries);
+    }
+
+    private void deliverToHost(String host, List<CallbackDelivery> hostCallbacks) {
+        for (CallbackDelivery callbackDelivery : hostCallbacks) {
+            try {
+                if (!claim(callbackDelivery)) {
+                    continue;
+                }
+                if (!deliver(callbackDelivery)) {
+                    logger.debug("Host {} unreachable, postponing its remaining callbacks", host);
+                    return;
+                }
+            } catch (Exception e) {
+                logger.warn("Unable to deliver callback {} of task {}: {}",
+                        callbackDelivery.getStatus(), callbackDelivery.getTaskId(), e.getMessage());
+                return;
+            }
+        }
+    }
+
+    private boolean claim(CallbackDelivery callbackDelivery) {
+        OffsetDateTime leaseUntil = OffsetDateTime.now().plusSeconds(callbackConfiguration.getLeaseSeconds());
+        int claimed = callbackDeliveryRepository.claim(
+                callbackDelivery.getCallbackId(),
+                CallbackDelivery.DeliveryStatus.PENDING,
+                callbackDelivery.getNextAttemptAt(),
+                leaseUntil
+        );
+        if (claimed == 0) {
+            return false;
+        }
+        callbackDelivery.setNextAttemptAt(leaseUntil);
+        return true;
+    }
+
+    /**
+     * @param callbackDelivery the claimed callback.
+     * @return false if the target host did not answer or asked to retry later.
+     */
+    private boolean deliver(CallbackDelivery callbackDelivery) {
+        ResponseEntity<Void> response;
+        try {
+            response = callbackClient.postTaskStatus(callbackDelivery);
+        } catch (RestClientException e) {
+            scheduleRetry(callbackDelivery, e.getMessage());
+            return false;
+        } catch (IllegalArgumentException e) {
+            // The callback reference is not a valid url: retrying would never succeed.
+            logger.warn("Callback {} of task {} has an invalid reference, not retrying: {}",
+                    callbackDelivery.getStatus(), callbackDelivery.getTaskId(), e.getMessage());
+            markFailed(callbackDelivery, "Invalid callback reference: " + e.getMessage());
+            return true;
+        }
+        HttpStatus statusCode = response.getStatusCode();
+        if (statusCode.is2xxSuccessful()) {
+            callbackDelivery.setDeliveryStatus(CallbackDelivery.DeliveryStatus.DELIVERED);
+            callbackDelivery.setDeliveredAt(OffsetDateTime.now());
+            callbackDelivery.setAttempts(callbackDelivery.getAttempts() + 1);
+            callbackDelivery.setLastError(null);
+            callbackDeliveryRepository.save(callbackDelivery);
+            return true;
+        }
+        if (statusCode.is4xxClientError()
+                && statusCode != HttpStatus.REQUEST_TIMEOUT
+                && statusCode != HttpStatus.TOO_MANY_REQUESTS) {
+            logger.warn("Callback {} of task {} rejected with {}, not retrying",
+                    callbackDelivery.getStatus(), callbackDelivery.getTaskId(), statusCode);
+            markFailed(callbackDelivery, "HTTP " + statusCode.value());
+            return true;
+        }
+        scheduleRetry(callbackDelivery, "HTTP " + statusCode.value());
+        return false;
+    }
+
+    private void markFailed(CallbackDelivery callbackDelivery, String error) {
+        callbackDelivery.setDeliveryStatus(CallbackDelivery.DeliveryStatus.FAILED);
+        callbackDelivery.setAttempts(callbackDelivery.getAttempts() + 1);
+        callbackDelivery.setLastError(truncate(error));
+        callbackDeliveryRepository.save(callbackDelivery);
+    }
+
+    private void scheduleRetry(CallbackDelivery callbackDelivery, String error) {
+        int attempts = callbackDelivery.getAttempts() + 1;
+        callbackDelivery.setAttempts(attempts);
+        callbackDelivery.setLastError(truncate(error));
+        if (attempts >= callbackConfiguration.getMaxAttempts()) {
+            logger.warn("Callback {} of task {} failed {} times, giving up: {}",
+                    callbackDelivery.getStatus(), callbackDelivery.getTaskId(), attempts, error);
+            callbackDelivery.setDeliveryStatus(CallbackDelivery.DeliveryStatus.FAILED);
+        } else {
+            callbackDelivery.setNextAttemptAt(OffsetDateTime.now().plusSeconds(backoffSeconds(attempts)));
+        }
+        callbackDeliveryRepository.save(callbackDelivery);
+    }
+
+    private static String truncate(String error) {
+        return error != null && error.length() > 255 ? error.substring(0, 255) : error;
+    }
+
+    private long backoffSeconds(int attempts) {
+        long backoff = (long) callbackConfiguration.getBackoffInitialSeconds() << Math.min(attempts - 1, 20);
+        return Math.min(backoff, callbackConfiguration.getBackoffMaxSeconds());
+    }
+}
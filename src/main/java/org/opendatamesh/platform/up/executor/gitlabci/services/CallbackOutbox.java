@@ -0,0 +1,86 @@
+package org.opendatamesh.platform.up.executor.gitlabci.services;
+
+import lombok.RequiredArgsConstructor;
+import org.opendatamesh.platform.up.executor.gitlabci.dao.CallbackDelivery;
+import org.opendatamesh.platform.up.executor.gitlabci.dao.CallbackDeliveryRepository;
+import org.opendatamesh.platform.up.executor.gitlabci.dao.PipelineRun;
+import org.opendatamesh.platform.up.executor.gitlabci.resources.TaskStatus;
+import org.opendatamesh.platform.up.executor.gitlabci.resources.client.gitlab.GitlabRunState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.util.UriComponents;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Records the terminal status transitions of the pipeline runs that must be pushed to the DevOps module.
+ * <p>
+ * Entries are written in the same transaction of the status change, so that a transition is never lost
+ * if the executor stops before the callback is delivered.
+ *
+ * @see CallbackDeliveryWorker
+ */
+@Component
+@RequiredArgsConstructor
+public class CallbackOutbox {
+    private static final Logger logger = LoggerFactory.getLogger(CallbackOutbox.class);
+
+    private final CallbackDeliveryRepository callbackDeliveryRepository;
+
+    /**
+     * Enqueue the status of the pipeline run if it just reached a terminal state and the task has a callback reference.
+     *
+     * @param pipelineRun    the pipeline run, with its new status.
+     * @param previousStatus the status of the pipeline run before the change, null for a new run.
+     */
+    public void enqueueIfTerminal(PipelineRun pipelineRun, GitlabRunState previousStatus) {
+        GitlabRunState status = pipelineRun.getStatus();
+        if (!StringUtils.hasText(pipelineRun.getCallbackRef()) || status == null || !status.isTerminal()) {
+            return;
+        }
+        if (previousStatus != null && previousStatus.isTerminal()) {
+            return;
+        }
+        TaskStatus taskStatus = GitlabPipelineService.toTaskStatus(status);
+        if (callbackDeliveryRepository.existsByTaskIdAndStatus(pipelineRun.getTaskId(), taskStatus)) {
+            return;
+        }
+        CallbackDelivery callbackDelivery = new CallbackDelivery();
+        callbackDelivery.setTaskId(pipelineRun.getTaskId());
+        callbackDelivery.setStatus(taskStatus);
+        callbackDelivery.setCallbackRef(pipelineRun.getCallbackRef());
+        callbackDelivery.setTargetHost(targetHost(pipelineRun.getCallbackRef()));
+        callbackDelivery.setAttempts(0);
+        callbackDelivery.setCreatedAt(OffsetDateTime.now());
+        callbackDelivery.setNextAttemptAt(callbackDelivery.getCreatedAt());
+        if (callbackDelivery.getTargetHost() == null) {
+            // Recorded as failed, so that it is never claimed by the delivery worker.
+            logger.warn("Invalid callback reference of task {}: {}", pipelineRun.getTaskId(), pipelineRun.getCallbackRef());
+            callbackDelivery.setDeliveryStatus(CallbackDelivery.DeliveryStatus.FAILED);
+            callbackDelivery.setLastError("Invalid callback reference");
+        } else {
+            callbackDelivery.setDeliveryStatus(CallbackDelivery.DeliveryStatus.PENDING);
+        }
+        callbackDeliveryRepository.save(callbackDelivery);
+        logger.debug("Enqueued {} callback for task {}", taskStatus, pipelineRun.getTaskId());
+    }
+
+    /**
+     * @param callbackRef the callback reference.
+     * @return the host of the callback reference, null if the reference is not an absolute http(s) url.
+     */
+    private static String targetHost(String callbackRef) {
+        try {
+            UriComponents uri = UriComponentsBuilder.fromUriString(callbackRef).build();
+            if (!"http".equalsIgnoreCase(uri.getScheme()) && !"https".equalsIgnoreCase(uri.getScheme())) {
+                return null;
+            }
+            return StringUtils.hasText(uri.getHost()) ? uri.getHost() : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
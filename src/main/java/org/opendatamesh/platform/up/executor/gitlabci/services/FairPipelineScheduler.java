@@ -0,0 +1,279 @@
+package org.opendatamesh.platform.up.executor.gitlabci.services;
+
+import org.opendatamesh.platform.up.executor.gitlabci.config.SchedulingConfiguration;
+import org.opendatamesh.platform.up.executor.gitlabci.dao.PipelineRun;
+import org.opendatamesh.platform.up.executor.gitlabci.dao.PipelineRunRepository;
+import org.opendatamesh.platform.up.executor.gitlabci.resources.ConfigurationResource;
+import org.opendatamesh.platform.up.executor.gitlabci.resources.ExecutorApiStandardErrors;
+import org.opendatamesh.platform.up.executor.gitlabci.resources.client.gitlab.GitlabRunState;
+import org.opendatamesh.platform.up.executor.gitlabci.resources.exceptions.UnprocessableEntityException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+import java.time.OffsetDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Decides which pipelines can be triggered, so that a single project (or a single GitLab instance) cannot
+ * take all the runners while the tasks of the other projects wait.
+ * <p>
+ * A pipeline is in flight from its trigger until it reaches a terminal state. The pipelines in flight are counted
+ * from the database, plus the triggers in progress on this node; each project and each instance has a maximum.
+ * The database is read outside the lock of the scheduler, which only guards the triggers in progress, so that
+ * admissions do not queue behind each other's queries. A trigger completing between the read and the lock may
+ * be missed by that admission, as the pipelines triggered by other nodes at the same time: the maximums are
+ * approximate by one or two pipelines.
+ * <p>
+ * Tasks that cannot be triggered stay pending (see {@link PipelineDispatchWorker}). When some capacity is
+ * released, the pending tasks are served with weighted fair queuing: the next task is taken from the project with
+ * the lowest in-flight count relative to its weight, so a project with weight 2 gets twice the pipelines of a
+ * project with weight 1 when both are waiting. Within a project, tasks are served by priority and then in
+ * submission order; across projects the priority only breaks ties.
+ */
+@Component
+public class FairPipelineScheduler {
+    private static final Logger logger = LoggerFactory.getLogger(FairPipelineScheduler.class);
+
+    private static final Sort QUEUE_ORDER = Sort.by(Sort.Order.desc("priority"), Sort.Order.asc("reservedAt"));
+
+    private final PipelineRunRepository pipelineRunRepository;
+    private final SchedulingConfiguration schedulingConfiguration;
+
+    private final Map<ProjectKey, Integer> dispatchingByProject = new ConcurrentHashMap<>();
+    private final Map<String, Integer> dispatchingByInstance = new ConcurrentHashMap<>();
+
+    public FairPipelineScheduler(PipelineRunRepository pipelineRunRepository,
+                                 SchedulingConfiguration schedulingConfiguration) {
+        this.pipelineRunRepository = pipelineRunRepository;
+        this.schedulingConfiguration = schedulingConfiguration;
+    }
+
+    public boolean isEnabled() {
+        return Boolean.TRUE.equals(schedulingConfiguration.getEnabled());
+    }
+
+    /**
+     * @param configurationResource the configuration of the task.
+     * @return the priority of the task, 0 if not given.
+     * @throws UnprocessableEntityException if the priority is not an integer.
+     */
+    public int priorityOf(ConfigurationResource configurationResource) {
+        if (configurationResource == null || configurationResource.getParams() == null) {
+            return 0;
+        }
+        String priority = configurationResource.getParams().get(schedulingConfiguration.getPriorityParam());
+        if (priority == null || priority.isBlank()) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(priority.trim());
+        } catch (NumberFormatException e) {
+            throw new UnprocessableEntityException(
+                    ExecutorApiStandardErrors.SC422_05_TASK_IS_INVALID,
+                    "Task priority must be an integer: " + priority
+            );
+        }
+    }
+
+    /**
+     * Ask to trigger a task right away. The task is admitted if its project and its instance are below their
+     * maximum and no task of the same project is already waiting, otherwise it must be queued.
+     * Every admitted task must be followed by {@link #release(String, String)}.
+     *
+     * @param gitlabInstanceUrl the url of the GitLab instance.
+     * @param project           the id of the GitLab project.
+     * @return true if the task can be triggered.
+     */
+    public boolean tryAdmit(String gitlabInstanceUrl, String project) {
+        if (!isEnabled()) {
+            return true;
+        }
+        ProjectKey key = new ProjectKey(gitlabInstanceUrl, project);
+        if (pipelineRunRepository.existsByDispatchStatusAndGitlabInstanceUrlAndProject(
+                PipelineRun.DispatchStatus.PENDING, gitlabInstanceUrl, project)) {
+            return false;
+        }
+        long projectActive = activeRuns(key);
+        long instanceActive = activeRuns(gitlabInstanceUrl);
+        synchronized (this) {
+            if (projectActive + dispatching(key) >= maxInFlight(key)
+                    || instanceActive + dispatching(gitlabInstanceUrl) >= maxInFlight(gitlabInstanceUrl)) {
+                return false;
+            }
+            startDispatch(key);
+            return true;
+        }
+    }
+
+    /**
+     * Select the pending tasks that can be triggered now, in the order they should be triggered.
+     * Every selected task must be followed by {@link #release(String, String)}.
+     *
+     * @param limit the maximum number of tasks.
+     * @return the selected pending runs.
+     */
+    public List<PipelineRun> selectDueRuns(int limit) {
+        OffsetDateTime now = OffsetDateTime.now();
+        Map<ProjectKey, Deque<PipelineRun>> queues = new HashMap<>();
+        Map<ProjectKey, Long> projectActive = new HashMap<>();
+        Map<String, Long> instanceActive = new HashMap<>();
+        for (PipelineRunRepository.ProjectRef ref : pipelineRunRepository.findDueProjects(PipelineRun.DispatchStatus.PENDING, now)) {
+            ProjectKey key = new ProjectKey(ref.getGitlabInstanceUrl(), ref.getProject());
+            long active = activeRuns(key);
+            long capacity = Math.min(maxInFlight(key) - active - dispatching(key), limit);
+            if (capacity <= 0) {
+                continue;
+            }
+            List<PipelineRun> queue = pipelineRunRepository.findByDispatchStatusAndGitlabInstanceUrlAndProjectAndNextDispatchAtLessThanEqual(
+                    PipelineRun.DispatchStatus.PENDING, key.gitlabInstanceUrl, key.project, now,
+                    PageRequest.of(0, (int) capacity, QUEUE_ORDER)
+            );
+            queues.put(key, new ArrayDeque<>(queue));
+            projectActive.put(key, active);
+            instanceActive.computeIfAbsent(key.gitlabInstanceUrl, this::activeRuns);
+        }
+
+        List<PipelineRun> selected;
+        synchronized (this) {
+            selected = selectFairly(queues, projectActive, instanceActive, limit);
+        }
+        if (!selected.isEmpty()) {
+            logger.debug("Selected {} pending tasks from {} projects", selected.size(), queues.size());
+        }
+        return selected;
+    }
+
+    /**
+     * Weighted fair queuing among the project queues, on top of the active runs read from the database and the
+     * triggers in progress. Must be called holding the lock of the scheduler.
+     */
+    private List<PipelineRun> selectFairly(Map<ProjectKey, Deque<PipelineRun>> queues,
+                                           Map<ProjectKey, Long> projectActive,
+                                           Map<String, Long> instanceActive,
+                                           int limit) {
+        List<PipelineRun> selected = new ArrayList<>();
+        Map<ProjectKey, Long> projectInFlight = new HashMap<>();
+        projectActive.forEach((key, active) -> projectInFlight.put(key, active + dispatching(key)));
+        Map<String, Long> instanceInFlight = new HashMap<>();
+        instanceActive.forEach((url, active) -> instanceInFlight.put(url, active + dispatching(url)));
+        while (selected.size() < limit) {
+            ProjectKey next = null;
+            double nextTag = Double.MAX_VALUE;
+            for (Map.Entry<ProjectKey, Deque<PipelineRun>> queue : queues.entrySet()) {
+                ProjectKey key = queue.getKey();
+                if (queue.getValue().isEmpty()
+                        || projectInFlight.get(key) >= maxInFlight(key)
+                        || instanceInFlight.get(key.gitlabInstanceUrl) >= maxInFlight(key.gitlabInstanceUrl)) {
+                    continue;
+                }
+                // Virtual finish time of the project if its next task is triggered.
+                double tag = (projectInFlight.get(key) + 1) / weight(key);
+                if (next == null || tag < nextTag
+                        || (tag == nextTag && comesFirst(queue.getValue().peek(), queues.get(next).peek()))) {
+                    next = key;
+                    nextTag = tag;
+                }
+            }
+            if (next == null) {
+                break;
+            }
+            selected.add(queues.get(next).poll());
+            projectInFlight.merge(next, 1L, Long::sum);
+            instanceInFlight.merge(next.gitlabInstanceUrl, 1L, Long::sum);
+            startDispatch(next);
+        }
+        return selected;
+    }
+
+    /**
+     * Forget a trigger admitted by {@link #tryAdmit(String, String)} or selected by {@link #selectDueRuns(int)},
+     * once it is completed (or failed). From then on the pipeline, if created, is counted from the database.
+     *
+     * @param gitlabInstanceUrl the url of the GitLab instance.
+     * @param project           the id of the GitLab project.
+     */
+    public synchronized void release(String gitlabInstanceUrl, String project) {
+        if (!isEnabled()) {
+            return;
+        }
+        dispatchingByProject.computeIfPresent(new ProjectKey(gitlabInstanceUrl, project), (key, count) -> count > 1 ? count - 1 : null);
+        dispatchingByInstance.computeIfPresent(gitlabInstanceUrl, (url, count) -> count > 1 ? count - 1 : null);
+    }
+
+    private void startDispatch(ProjectKey key) {
+        dispatchingByProject.merge(key, 1, Integer::sum);
+        dispatchingByInstance.merge(key.gitlabInstanceUrl, 1, Integer::sum);
+    }
+
+    private long activeRuns(ProjectKey key) {
+        return pipelineRunRepository.countByProjectAndStatusIn(key.gitlabInstanceUrl, key.project, GitlabRunState.activeStates());
+    }
+
+    private long activeRuns(String gitlabInstanceUrl) {
+        return pipelineRunRepository.countByInstanceAndStatusIn(gitlabInstanceUrl, GitlabRunState.activeStates());
+    }
+
+    private int dispatching(ProjectKey key) {
+        return dispatchingByProject.getOrDefault(key, 0);
+    }
+
+    private int dispatching(String gitlabInstanceUrl) {
+        return dispatchingByInstance.getOrDefault(gitlabInstanceUrl, 0);
+    }
+
+    private int maxInFlight(ProjectKey key) {
+        SchedulingConfiguration.ProjectSchedule schedule = schedulingConfiguration.getProjects().get(key.project);
+        return schedule != null && schedule.getMaxInFlight() != null
+                ? schedule.getMaxInFlight()
+                : schedulingConfiguration.getMaxInFlightPerProject();
+    }
+
+    private int maxInFlight(String gitlabInstanceUrl) {
+        SchedulingConfiguration.InstanceSchedule schedule = schedulingConfiguration.getInstances().get(gitlabInstanceUrl);
+        return schedule != null && schedule.getMaxInFlight() != null
+                ? schedule.getMaxInFlight()
+                : schedulingConfiguration.getMaxInFlightPerInstance();
+    }
+
+    private double weight(ProjectKey key) {
+        SchedulingConfiguration.ProjectSchedule schedule = schedulingConfiguration.getProjects().get(key.project);
+        return schedule != null && schedule.getWeight() != null && schedule.getWeight() > 0 ? schedule.getWeight() : 1;
+    }
+
+    private static boolean comesFirst(PipelineRun pipelineRun, PipelineRun other) {
+        int priority = pipelineRun.getPriority() != null ? pipelineRun.getPriority() : 0;
+        int otherPriority = other.getPriority() != null ? other.getPriority() : 0;
+        if (priority != otherPriority) {
+            return priority > otherPriority;
+        }
+        return pipelineRun.getReservedAt() != null && other.getReservedAt() != null
+                && pipelineRun.getReservedAt().isBefore(other.getReservedAt());
+    }
+
+    private static class ProjectKey {
+        private final String gitlabInstanceUrl;
+        private final String project;
+
+        private ProjectKey(String gitlabInstanceUrl, String project) {
+            this.gitlabInstanceUrl = gitlabInstanceUrl;
+            this.project = project;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            ProjectKey that = (ProjectKey) o;
+            return Objects.equals(gitlabInstanceUrl, that.gitlabInstanceUrl) && Objects.equals(project, that.project);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(gitlabInstanceUrl, project);
+        }
+    }
+}
@@ -1,16 +1,22 @@
 package org.opendatamesh.platform.up.executor.gitlabci.services;
 
 import lombok.RequiredArgsConstructor;
+import org.opendatamesh.platform.up.executor.gitlabci.clients.GitlabClientRegistry;
 import org.opendatamesh.platform.up.executor.gitlabci.clients.ParamsServiceClient;
 import org.opendatamesh.platform.up.executor.gitlabci.config.ParamConfiguration;
 import org.opendatamesh.platform.up.executor.gitlabci.resources.ExecutorApiStandardErrors;
 import org.opendatamesh.platform.up.executor.gitlabci.resources.client.gitlab.GitlabConfigResource;
 import org.opendatamesh.platform.up.executor.gitlabci.resources.client.params.ParamResource;
 import org.opendatamesh.platform.up.executor.gitlabci.resources.exceptions.ConflictException;
+import org.opendatamesh.platform.up.executor.gitlabci.resources.exceptions.GitlabClientException;
 import org.opendatamesh.platform.up.executor.gitlabci.resources.exceptions.UnprocessableEntityException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import org.springframework.web.client.RestClientException;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -21,10 +27,21 @@ import java.util.List;
 @Service
 @RequiredArgsConstructor
 public class GitlabConfigService {
+    private static final Logger logger = LoggerFactory.getLogger(GitlabConfigService.class);
+
+    /**
+     * Suffix appended to the instance url to name the param holding the webhook secret of the instance.
+     */
+    private static final String WEBHOOK_SECRET_SUFFIX = "::webhook-secret";
+
     private final ParamsServiceClient paramsServiceClient;
 
     private final ParamConfiguration paramConfiguration;
 
+    private final GitlabClientRegistry gitlabClientRegistry;
+
+    private final GitlabTokenCache gitlabTokenCache;
+
     /**
      * Add configurations to the parameter service.
      * @param configResource the configuration to be added
@@ -45,6 +62,25 @@ public class GitlabConfigService {
         paramResource.setSecret(true);
 
         ResponseEntity<ParamResource> createdParam = paramsServiceClient.createParam(paramResource);
+        gitlabTokenCache.invalidate(configResource.getInstanceUrl());
+        checkCreatedParam(createdParam);
+
+        if (StringUtils.hasText(configResource.getWebhookSecret())) {
+            ParamResource webhookSecretResource = new ParamResource();
+            webhookSecretResource.setParamName(webhookSecretParamName(configResource.getInstanceUrl()));
+            webhookSecretResource.setParamValue(configResource.getWebhookSecret());
+            webhookSecretResource.setDisplayName(paramConfiguration.getClientPrefix() + webhookSecretResource.getParamName());
+            webhookSecretResource.setSecret(true);
+            checkCreatedParam(paramsServiceClient.createParam(webhookSecretResource));
+        }
+        return createdParam.getBody();
+    }
+
+    /**
+     * Raise an exception if the creation of a parameter failed.
+     * @param createdParam the response of the params service.
+     */
+    private static void checkCreatedParam(ResponseEntity<ParamResource> createdParam) {
         if (!createdParam.getStatusCode().is2xxSuccessful()) {
             if (createdParam.getStatusCode() == HttpStatus.CONFLICT) {
                 throw new ConflictException(
@@ -57,7 +93,6 @@ public class GitlabConfigService {
                     "Internal server error"
             );
         }
-        return createdParam.getBody();
     }
 
     /**
@@ -68,7 +103,8 @@ public class GitlabConfigService {
 
         List<ParamResource> result = new ArrayList<>();
         for (ParamResource param : params) {
-            if (param.getDisplayName().startsWith(paramConfiguration.getClientPrefix())) {
+            if (param.getDisplayName().startsWith(paramConfiguration.getClientPrefix())
+                    && !param.getParamName().endsWith(WEBHOOK_SECRET_SUFFIX)) {
                 result.add(param);
             }
         }
@@ -77,10 +113,39 @@ public class GitlabConfigService {
     }
 
     /**
-     * Delete the gitlab configuration by its url.
+     * Delete the gitlab configuration by its url, releasing the cached token and the pooled client of the instance.
      * @param instanceId the url of the GitLab instance to be deleted.
      */
     public void deleteGitlabInstance(String instanceId) {
-        paramsServiceClient.deleteParam(instanceId);
+        try {
+            paramsServiceClient.deleteParam(instanceId);
+            if (hasParam(webhookSecretParamName(instanceId))) {
+                paramsServiceClient.deleteParam(webhookSecretParamName(instanceId));
+            }
+        } finally {
+            gitlabTokenCache.invalidate(instanceId);
+            gitlabClientRegistry.evict(instanceId);
+        }
+    }
+
+    /**
+     * @param paramName the name of the parameter.
+     * @return whether the parameter exists; a failed lookup counts as a missing parameter.
+     */
+    private boolean hasParam(String paramName) {
+        try {
+            return paramsServiceClient.getParamByName(paramName).getStatusCode().is2xxSuccessful();
+        } catch (RestClientException | GitlabClientException e) {
+            logger.warn("Cannot look up the param {}, assuming it does not exist: {}", paramName, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * @param gitlabInstanceUrl the url of the GitLab instance.
+     * @return the name of the param holding the webhook secret of the instance.
+     */
+    public static String webhookSecretParamName(String gitlabInstanceUrl) {
+        return gitlabInstanceUrl + WEBHOOK_SECRET_SUFFIX;
     }
 }
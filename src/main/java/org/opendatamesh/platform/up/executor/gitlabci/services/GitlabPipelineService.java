@@ -1,33 +1,61 @@
 package org.opendatamesh.platform.up.executor.gitlabci.services;
 
 import lombok.RequiredArgsConstructor;
+import org.opendatamesh.platform.up.executor.gitlabci.clients.GitlabApiClient;
 import org.opendatamesh.platform.up.executor.gitlabci.clients.GitlabClient;
-import org.opendatamesh.platform.up.executor.gitlabci.clients.ParamsServiceClient;
+import org.opendatamesh.platform.up.executor.gitlabci.clients.GitlabClientRegistry;
 import org.opendatamesh.platform.up.executor.gitlabci.config.PipelineConfiguration;
 import org.opendatamesh.platform.up.executor.gitlabci.dao.PipelineRun;
+import org.opendatamesh.platform.up.executor.gitlabci.dao.PipelineRunArchive;
+import org.opendatamesh.platform.up.executor.gitlabci.dao.PipelineRunArchiveRepository;
 import org.opendatamesh.platform.up.executor.gitlabci.dao.PipelineRunRepository;
+import org.opendatamesh.platform.up.executor.gitlabci.dao.PipelineRunSpecifications;
+import org.opendatamesh.platform.up.executor.gitlabci.dao.PipelineRunVariables;
+import org.opendatamesh.platform.up.executor.gitlabci.dao.PipelineRunVariablesRepository;
 import org.opendatamesh.platform.up.executor.gitlabci.mappers.GitlabPipelineMapper;
 import org.opendatamesh.platform.up.executor.gitlabci.resources.ConfigurationResource;
 import org.opendatamesh.platform.up.executor.gitlabci.resources.ExecutorApiStandardErrors;
+import org.opendatamesh.platform.up.executor.gitlabci.resources.PipelineRunPageResource;
+import org.opendatamesh.platform.up.executor.gitlabci.resources.PipelineRunResource;
 import org.opendatamesh.platform.up.executor.gitlabci.resources.TaskStatus;
 import org.opendatamesh.platform.up.executor.gitlabci.resources.TemplateResource;
+import org.opendatamesh.platform.up.executor.gitlabci.resources.client.gitlab.GitlabPipelineEventResource;
 import org.opendatamesh.platform.up.executor.gitlabci.resources.client.gitlab.GitlabPipelineResource;
 import org.opendatamesh.platform.up.executor.gitlabci.resources.client.gitlab.GitlabRunResourceResponse;
 import org.opendatamesh.platform.up.executor.gitlabci.resources.client.gitlab.GitlabRunState;
-import org.opendatamesh.platform.up.executor.gitlabci.resources.client.params.ParamResource;
+import org.opendatamesh.platform.up.executor.gitlabci.resources.exceptions.ConflictException;
+import org.opendatamesh.platform.up.executor.gitlabci.resources.exceptions.GitlabClientException;
 import org.opendatamesh.platform.up.executor.gitlabci.resources.exceptions.InternalServerException;
 import org.opendatamesh.platform.up.executor.gitlabci.resources.exceptions.NotFoundException;
+import org.opendatamesh.platform.up.executor.gitlabci.resources.exceptions.ODMApiException;
+import org.opendatamesh.platform.up.executor.gitlabci.resources.exceptions.TooManyRequestsException;
 import org.opendatamesh.platform.up.executor.gitlabci.resources.exceptions.UnprocessableEntityException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
+import java.time.OffsetDateTime;
+import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.Objects;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.CompletableFuture;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 
 /**
@@ -38,25 +66,59 @@ import java.util.concurrent.CompletableFuture;
 public class GitlabPipelineService {
     private final GitlabPipelineMapper pipelineMapper;
     private final PipelineRunRepository pipelineRunRepository;
-    private final ParamsServiceClient paramsServiceClient;
+    private final PipelineRunVariablesRepository pipelineRunVariablesRepository;
+    private final PipelineRunArchiveRepository pipelineRunArchiveRepository;
+    private final GitlabTokenCache gitlabTokenCache;
+    private final GitlabClientRegistry gitlabClientRegistry;
     private final PipelineConfiguration pipelineConfiguration;
+    private final CallbackOutbox callbackOutbox;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final FairPipelineScheduler pipelineScheduler;
+    private final TaskStatusLookups taskStatusLookups;
+    private final TaskStatusCache taskStatusCache;
 
     private static final Logger logger = LoggerFactory.getLogger(GitlabPipelineService.class);
+    private static final DateTimeFormatter WEBHOOK_TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss z", Locale.ROOT);
 
     /**
      * Run the GitLab pipeline.
+     * <p>
+     * The task id is reserved before the GitLab trigger: a task already triggered returns its pipeline run without
+     * a second trigger, while a task whose trigger is still in progress is rejected with a conflict.
      * @param configurationResource the configuration for the task.
      * @param templateResource the template resource given in the data product descriptor.
      * @param callbackRef the callbck reference.
      * @param taskId the id of the task to be executed.
      * @param gitlabInstanceUrl the instance url of the GitLab server.
-     * @return the created and running pipeline.
+     * @return the pipeline run of the task.
      */
-    public GitlabRunResourceResponse runPipeline(ConfigurationResource configurationResource,
-                                                 TemplateResource templateResource,
-                                                 String callbackRef,
-                                                 Long taskId,
-                                                 String gitlabInstanceUrl) throws UnprocessableEntityException {
+    public PipelineRun runPipeline(ConfigurationResource configurationResource,
+                                   TemplateResource templateResource,
+                                   String callbackRef,
+                                   Long taskId,
+                                   String gitlabInstanceUrl) throws UnprocessableEntityException {
+        return runPipeline(configurationResource, templateResource, callbackRef, taskId, gitlabInstanceUrl,
+                gitlabTokenCache.getToken(gitlabInstanceUrl));
+    }
+
+    /**
+     * Run the GitLab pipeline with an already resolved token.
+     * @param configurationResource the configuration for the task.
+     * @param templateResource the template resource given in the data product descriptor.
+     * @param callbackRef the callbck reference.
+     * @param taskId the id of the task to be executed.
+     * @param gitlabInstanceUrl the instance url of the GitLab server.
+     * @param gitlabToken the token of the GitLab instance.
+     * @return the pipeline run of the task.
+     * @see #runPipeline(ConfigurationResource, TemplateResource, String, Long, String)
+     */
+    public PipelineRun runPipeline(ConfigurationResource configurationResource,
+                                   TemplateResource templateResource,
+                                   String callbackRef,
+                                   Long taskId,
+                                   String gitlabInstanceUrl,
+                                   String gitlabToken) throws UnprocessableEntityException {
         GitlabPipelineResource pipelineResource = pipelineMapper.toGitlabPipelineResource(
                 configurationResource, templateResource, callbackRef, taskId
         );
@@ -67,51 +129,329 @@ public class GitlabPipelineService {
                     "Cannot send pipeline trigger to GitLab. Template parameter missing (project id, branch)."
             );
         }
+        int priority = pipelineScheduler.priorityOf(configurationResource);
 
-        ResponseEntity<ParamResource> optGitlabInstance = paramsServiceClient.getParamByName(gitlabInstanceUrl);
-        if (optGitlabInstance.getStatusCode().is4xxClientError()) {
-            throw new UnprocessableEntityException(
-                    ExecutorApiStandardErrors.SC404_01_PIPELINE_RUN_NOT_FOUND,
-                    "Cannot find Gitlab instance with url: " + gitlabInstanceUrl
-            );
+        Optional<PipelineRun> archivedPipelineRun = findArchivedPipelineRun(taskId);
+        if (archivedPipelineRun.isPresent()) {
+            logger.info("Task {} already completed and archived, skipping the trigger", taskId);
+            return archivedPipelineRun.get();
+        }
+        PipelineRun pipelineRun = reservePipelineRun(taskId);
+        if (pipelineRun.getDispatchStatus() != PipelineRun.DispatchStatus.RESERVED) {
+            logger.info("Task {} already submitted ({}), skipping the trigger", taskId, pipelineRun.getDispatchStatus());
+            return pipelineRun;
         }
 
-        GitlabClient gitlabClient = new GitlabClient(
-                Objects.requireNonNull(optGitlabInstance.getBody()).getParamName(),
-                Objects.requireNonNull(optGitlabInstance.getBody()).getParamValue()
-        );
+        GitlabRunResourceResponse gitlabRunResourceResponse;
+        try {
+            gitlabRunResourceResponse = triggerPipeline(pipelineResource, templateResource.getProjectId(), gitlabInstanceUrl, gitlabToken);
+        } catch (ODMApiException e) {
+            // GitLab rejected the trigger (or it was never sent): the task can be submitted again.
+            releaseReservation(pipelineRun);
+            throw e;
+        }
 
-        ResponseEntity<GitlabRunResourceResponse> gitlabResponse = gitlabClient.postTask(
-                pipelineResource,
-                templateResource.getProjectId()
-        );
-        GitlabRunResourceResponse gitlabRunResourceResponse = gitlabResponse.getBody();
+        if (gitlabRunResourceResponse == null) {
+            logger.warn("GitLab returned no pipeline for task {}, the reservation expires in {} seconds",
+                    taskId, pipelineConfiguration.getDispatchReservationTimeoutSeconds());
+            return pipelineRun;
+        }
+        createPipelineRunEntry(templateResource, taskId, gitlabInstanceUrl, pipelineRun, gitlabRunResourceResponse, pipelineResource);
+        pipelineRun.setCallbackRef(callbackRef);
+        pipelineRun.setPriority(priority);
+        pipelineRun.setDispatchStatus(PipelineRun.DispatchStatus.TRIGGERED);
+        PipelineRun savedPipelineRun = saveStatusChange(pipelineRun, null, pipelineResource.getVariables());
+        logger.info("Pipeline run triggered successfully");
+        return savedPipelineRun;
+    }
 
-        processGitlabResponseStatus(gitlabResponse, gitlabRunResourceResponse);
+    /**
+     * Send the pipeline trigger to GitLab.
+     * The call waits for the answer of GitLab with the reactive client too: the created pipeline is needed to store
+     * the pipeline run, and the caller (the request thread or the dispatch worker) has nothing else to do meanwhile.
+     * @param pipelineResource the pipeline request resource.
+     * @param projectId the id of the GitLab project.
+     * @param gitlabInstanceUrl the url of the GitLab instance.
+     * @param gitlabToken the token of the GitLab instance.
+     * @return the created pipeline, null if GitLab returned an empty body.
+     */
+    private GitlabRunResourceResponse triggerPipeline(GitlabPipelineResource pipelineResource, String projectId, String gitlabInstanceUrl, String gitlabToken) {
+        try {
+            if (gitlabClientRegistry.isReactive()) {
+                Optional<GitlabRunResourceResponse> gitlabRunResourceResponse = gitlabClientRegistry
+                        .getApiClient(gitlabInstanceUrl, gitlabToken)
+                        .postTask(pipelineResource, projectId)
+                        .blockOptional();
+                if (gitlabRunResourceResponse.isEmpty()) {
+                    logger.warn("GitLab accepted the pipeline trigger of project {} without returning the pipeline", projectId);
+                }
+                return gitlabRunResourceResponse.orElse(null);
+            }
+            GitlabClient gitlabClient = gitlabClientRegistry.getClient(gitlabInstanceUrl, gitlabToken);
+            return gitlabClient.postTask(pipelineResource, projectId).getBody();
+        } catch (GitlabClientException e) {
+            throw triggerError(resolveStatus(e.getCode()), e.getResponseBody(), gitlabInstanceUrl);
+        }
+    }
+
+    /**
+     * Reserve the pipeline run of a task before triggering it. The unique task id makes only one of
+     * concurrent submissions succeed.
+     * @param taskId the id of the devops task.
+     * @return the reserved pipeline run, or the pipeline run of the task if already triggered.
+     * @throws ConflictException if another submission of the task is in progress.
+     */
+    private PipelineRun reservePipelineRun(Long taskId) {
+        PipelineRun reservation = new PipelineRun();
+        reservation.setTaskId(taskId);
+        reservation.setDispatchStatus(PipelineRun.DispatchStatus.RESERVED);
+        reservation.setReservedAt(OffsetDateTime.now());
+        try {
+            return transactionTemplate.execute(transactionStatus -> pipelineRunRepository.saveAndFlush(reservation));
+        } catch (DataIntegrityViolationException e) {
+            logger.debug("Task {} already has a pipeline run", taskId);
+        }
 
-        savePipelineRun(templateResource, taskId, gitlabInstanceUrl, gitlabRunResourceResponse, pipelineResource);
-        return gitlabRunResourceResponse;
+        Optional<PipelineRun> existing = pipelineRunRepository.findByTaskId(taskId);
+        if (existing.isPresent() && existing.get().getDispatchStatus() != PipelineRun.DispatchStatus.RESERVED) {
+            return existing.get();
+        }
+        OffsetDateTime now = OffsetDateTime.now();
+        OffsetDateTime staleBefore = now.minusSeconds(pipelineConfiguration.getDispatchReservationTimeoutSeconds());
+        if (existing.isPresent()
+                && pipelineRunRepository.takeOverReservation(taskId, PipelineRun.DispatchStatus.RESERVED, staleBefore, now) == 1) {
+            logger.warn("Taking over the expired reservation of task {}", taskId);
+            return pipelineRunRepository.findByTaskId(taskId).orElseThrow();
+        }
+        throw new ConflictException(
+                ExecutorApiStandardErrors.SC409_01_CONCURRENT_EXECUTIONS,
+                "Task " + taskId + " is already being submitted to GitLab, retry later."
+        );
     }
 
     /**
-     * Prepare and save the pipeline run entry.
-     * @param templateResource
+     * The archived runs no longer hold the unique task id of {@code PIPELINE_RUNS}: the archive is checked before
+     * reserving a task, so that a repeated submission of an archived task does not trigger a second pipeline.
      * @param taskId the id of the devops task.
-     * @param gitlabInstanceUrl the url of the GitLab instance.
-     * @param gitlabRunResourceResponse the response from the GitLab server.
-     * @param pipelineResource the pipeline request resource.
+     * @return the archived pipeline run of the task, detached from the persistence context.
      */
-    private void savePipelineRun(TemplateResource templateResource, Long taskId, String gitlabInstanceUrl, GitlabRunResourceResponse gitlabRunResourceResponse, GitlabPipelineResource pipelineResource) {
+    private Optional<PipelineRun> findArchivedPipelineRun(Long taskId) {
+        return pipelineRunArchiveRepository.findFirstByTaskIdOrderByArchivedAtDesc(taskId)
+                .map(GitlabPipelineService::toPipelineRun);
+    }
+
+    private static PipelineRun toPipelineRun(PipelineRunArchive archive) {
+        PipelineRun pipelineRun = new PipelineRun();
+        pipelineRun.setPipelineRunId(archive.getPipelineRunId());
+        pipelineRun.setTaskId(archive.getTaskId());
+        pipelineRun.setRunId(archive.getRunId());
+        pipelineRun.setProject(archive.getProject());
+        pipelineRun.setRef(archive.getRef());
+        pipelineRun.setStatus(archive.getStatus());
+        pipelineRun.setCreatedAt(archive.getCreatedAt());
+        pipelineRun.setFinishedAt(archive.getFinishedAt());
+        pipelineRun.setGitlabInstanceUrl(archive.getGitlabInstanceUrl());
+        pipelineRun.setCallbackRef(archive.getCallbackRef());
+        pipelineRun.setDispatchStatus(archive.getDispatchStatus());
+        pipelineRun.setDispatchError(archive.getDispatchError());
+        pipelineRun.setPriority(archive.getPriority());
+        pipelineRun.setVersion(archive.getVersion());
+        return pipelineRun;
+    }
+
+    /**
+     * Remove the reservation of a task whose trigger failed.
+     * @param pipelineRun the reserved pipeline run.
+     */
+    private void releaseReservation(PipelineRun pipelineRun) {
         try {
-            PipelineRun pipelineRun = new PipelineRun();
-            if(gitlabRunResourceResponse !=null) {
-                createPipelineRunEntry(templateResource, taskId, gitlabInstanceUrl, pipelineRun, gitlabRunResourceResponse, pipelineResource);
-                pipelineRunRepository.saveAndFlush(pipelineRun);
-                logger.info("Pipeline run triggered successfully");
-            }
+            pipelineRunRepository.deleteById(pipelineRun.getPipelineRunId());
+            taskStatusCache.invalidate(pipelineRun.getTaskId());
         } catch (Exception e) {
-            logger.error("Error during the creation of PipelineRun entry: {}", e.getMessage());
+            logger.warn("Unable to release the reservation of task {}: {}", pipelineRun.getTaskId(), e.getMessage());
+        }
+    }
+
+    /**
+     * Accept a task without calling GitLab: the task is stored as a pending pipeline run, triggered later by the
+     * {@link PipelineDispatchWorker}. An already accepted (or triggered, or archived) task returns its existing pipeline run.
+     * @param configurationResource the configuration for the task.
+     * @param templateResource the template resource given in the data product descriptor.
+     * @param callbackRef the callbck reference.
+     * @param taskId the id of the task to be executed.
+     * @param gitlabInstanceUrl the instance url of the GitLab server.
+     * @return the pipeline run of the task.
+     */
+    public PipelineRun acceptPipeline(ConfigurationResource configurationResource,
+                                      TemplateResource templateResource,
+                                      String callbackRef,
+                                      Long taskId,
+                                      String gitlabInstanceUrl) throws UnprocessableEntityException {
+        PipelineRunVariables pendingRun = toPendingPipelineRun(configurationResource, templateResource, callbackRef, taskId, gitlabInstanceUrl);
+        Optional<PipelineRun> archivedPipelineRun = findArchivedPipelineRun(taskId);
+        if (archivedPipelineRun.isPresent()) {
+            logger.info("Task {} already completed and archived", taskId);
+            return archivedPipelineRun.get();
+        }
+        try {
+            return transactionTemplate.execute(transactionStatus -> {
+                PipelineRun saved = pipelineRunRepository.saveAndFlush(pendingRun.getPipelineRun());
+                pipelineRunVariablesRepository.save(pendingRun);
+                return saved;
+            });
+        } catch (DataIntegrityViolationException e) {
+            logger.info("Task {} already accepted", taskId);
+        }
+        return pipelineRunRepository.findByTaskId(taskId).orElseThrow(() -> new ConflictException(
+                ExecutorApiStandardErrors.SC409_01_CONCURRENT_EXECUTIONS,
+                "Task " + taskId + " is already being submitted to GitLab, retry later."
+        ));
+    }
+
+    /**
+     * Accept a batch of tasks, storing all their pending pipeline runs in a single transaction (and JDBC batch).
+     * If some of the tasks already exist, the batch is rolled back and the tasks are accepted one by one,
+     * as by {@link #acceptPipeline(ConfigurationResource, TemplateResource, String, Long, String)}.
+     * Each submission is marked as queued, or gets its error.
+     * @param submissions the validated submissions.
+     */
+    public void acceptPipelines(List<PipelineSubmission> submissions) {
+        List<PipelineSubmission> acceptedSubmissions = new ArrayList<>(submissions.size());
+        List<PipelineRunVariables> pendingRuns = new ArrayList<>(submissions.size());
+        Set<Long> archivedTaskIds = pipelineRunArchiveRepository.findArchivedTaskIds(
+                submissions.stream().map(submission -> submission.getTask().getId()).collect(Collectors.toList())
+        );
+        for (PipelineSubmission submission : submissions) {
+            if (archivedTaskIds.contains(submission.getTask().getId())) {
+                logger.info("Task {} already completed and archived", submission.getTask().getId());
+                submission.setQueued(true);
+                continue;
+            }
+            try {
+                pendingRuns.add(toPendingPipelineRun(
+                        submission.getConfiguration(),
+                        submission.getTemplate(),
+                        submission.getTask().getCallbackRef(),
+                        submission.getTask().getId(),
+                        submission.getGitlabInstanceUrl()
+                ));
+                acceptedSubmissions.add(submission);
+            } catch (RuntimeException e) {
+                submission.setError(e);
+            }
+        }
+        if (pendingRuns.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(transactionStatus -> {
+                for (PipelineRunVariables pendingRun : pendingRuns) {
+                    pipelineRunRepository.save(pendingRun.getPipelineRun());
+                }
+                pipelineRunVariablesRepository.saveAll(pendingRuns);
+                pipelineRunRepository.flush();
+            });
+            acceptedSubmissions.forEach(submission -> submission.setQueued(true));
+            return;
+        } catch (DataIntegrityViolationException e) {
+            logger.info("Some of the {} tasks are already accepted, accepting them one by one", pendingRuns.size());
+        }
+        for (PipelineSubmission submission : acceptedSubmissions) {
+            try {
+                acceptPipeline(
+                        submission.getConfiguration(),
+                        submission.getTemplate(),
+                        submission.getTask().getCallbackRef(),
+                        submission.getTask().getId(),
+                        submission.getGitlabInstanceUrl()
+                );
+                submission.setQueued(true);
+            } catch (RuntimeException e) {
+                submission.setError(e);
+            }
+        }
+    }
+
+    /**
+     * Build the pending pipeline run of a task, with everything needed to trigger it later.
+     * @return the variables of the pipeline run, with the pipeline run itself; both not saved yet.
+     */
+    private PipelineRunVariables toPendingPipelineRun(ConfigurationResource configurationResource,
+                                             TemplateResource templateResource,
+                                             String callbackRef,
+                                             Long taskId,
+                                             String gitlabInstanceUrl) {
+        GitlabPipelineResource pipelineResource = pipelineMapper.toGitlabPipelineResource(
+                configurationResource, templateResource, callbackRef, taskId
+        );
+
+        if (templateResource.getBranch() == null || templateResource.getProjectId() == null) {
+            throw new UnprocessableEntityException(
+                    ExecutorApiStandardErrors.SC422_05_TASK_IS_INVALID,
+                    "Cannot accept pipeline trigger. Template parameter missing (project id, branch)."
+            );
         }
+
+        OffsetDateTime now = OffsetDateTime.now();
+        PipelineRun pipelineRun = new PipelineRun();
+        pipelineRun.setTaskId(taskId);
+        pipelineRun.setProject(templateResource.getProjectId());
+        pipelineRun.setRef(pipelineResource.getRef());
+        pipelineRun.setGitlabInstanceUrl(gitlabInstanceUrl);
+        pipelineRun.setCallbackRef(callbackRef);
+        pipelineRun.setPriority(pipelineScheduler.priorityOf(configurationResource));
+        pipelineRun.setDispatchStatus(PipelineRun.DispatchStatus.PENDING);
+        pipelineRun.setReservedAt(now);
+        pipelineRun.setDispatchAttempts(0);
+        pipelineRun.setNextDispatchAt(now);
+        return new PipelineRunVariables(pipelineRun, pipelineResource.getVariables());
+    }
+
+    /**
+     * Trigger the pipeline of an accepted task, claimed by the {@link PipelineDispatchWorker}.
+     * @param pipelineRun the pending pipeline run.
+     * @return the triggered pipeline run.
+     */
+    public PipelineRun dispatchPipelineRun(PipelineRun pipelineRun) {
+        GitlabPipelineResource pipelineResource = new GitlabPipelineResource();
+        pipelineResource.setRef(pipelineRun.getRef());
+        pipelineResource.setVariables(pipelineRunVariablesRepository.findById(pipelineRun.getPipelineRunId())
+                .map(PipelineRunVariables::getVariables)
+                .orElse(null));
+        String gitlabInstanceUrl = pipelineRun.getGitlabInstanceUrl();
+
+        GitlabRunResourceResponse gitlabRunResourceResponse = triggerPipeline(
+                pipelineResource,
+                pipelineRun.getProject(),
+                gitlabInstanceUrl,
+                gitlabTokenCache.getToken(gitlabInstanceUrl)
+        );
+        if (gitlabRunResourceResponse == null) {
+            throw new InternalServerException(
+                    ExecutorApiStandardErrors.SC500_50_EXECUTOR_SERVICE_ERROR,
+                    "Response body is null!"
+            );
+        }
+        setGitlabPipeline(pipelineRun, gitlabRunResourceResponse);
+        pipelineRun.setDispatchStatus(PipelineRun.DispatchStatus.TRIGGERED);
+        pipelineRun.setDispatchError(null);
+        PipelineRun savedPipelineRun = saveStatusChange(pipelineRun, null);
+        logger.info("Pipeline run of accepted task {} triggered successfully", pipelineRun.getTaskId());
+        return savedPipelineRun;
+    }
+
+    /**
+     * Mark an accepted task whose pipeline cannot be triggered as failed. The failure is notified
+     * as any other terminal status.
+     * @param pipelineRun the pending pipeline run.
+     * @param error the last trigger error.
+     * @return the failed pipeline run.
+     */
+    public PipelineRun failDispatch(PipelineRun pipelineRun, String error) {
+        pipelineRun.setDispatchStatus(PipelineRun.DispatchStatus.FAILED);
+        pipelineRun.setDispatchError(error);
+        pipelineRun.setStatus(GitlabRunState.failed);
+        return saveStatusChange(pipelineRun, null);
     }
 
     /**
@@ -125,135 +465,523 @@ public class GitlabPipelineService {
      */
     private static void createPipelineRunEntry(TemplateResource templateResource, Long taskId, String gitlabInstanceUrl, PipelineRun pipelineRun, GitlabRunResourceResponse gitlabRunResourceResponse, GitlabPipelineResource pipelineResource) {
         pipelineRun.setTaskId(taskId);
-        pipelineRun.setRunId(gitlabRunResourceResponse.getId());
         pipelineRun.setProject(templateResource.getProjectId());
-        pipelineRun.setStatus(GitlabRunState.valueOf(gitlabRunResourceResponse.getStatus()));
-        pipelineRun.setCreatedAt(gitlabRunResourceResponse.getCreatedAt().format(DateTimeFormatter.ISO_DATE_TIME));
-        pipelineRun.setFinishedAt(
-                gitlabRunResourceResponse.getFinishedAt() != null
-                        ? gitlabRunResourceResponse.getFinishedAt().format(DateTimeFormatter.ISO_DATE_TIME)
-                        : null);
-        pipelineRun.setVariables(pipelineResource.getVariables());
+        pipelineRun.setRef(pipelineResource.getRef());
         pipelineRun.setGitlabInstanceUrl(gitlabInstanceUrl);
+        setGitlabPipeline(pipelineRun, gitlabRunResourceResponse);
     }
 
     /**
-     * Process response coming from GitLab server, raise an exception if needed.
-     * @param gitlabResponse the response from the server.
-     * @param gitlabRunResourceResponse the body of the response.
+     * Copy the pipeline created by GitLab into the pipeline run.
+     * @param pipelineRun the db reference.
+     * @param gitlabRunResourceResponse the response from the GitLab server.
      */
-    private static void processGitlabResponseStatus(ResponseEntity<GitlabRunResourceResponse> gitlabResponse, GitlabRunResourceResponse gitlabRunResourceResponse) {
-        if (!gitlabResponse.getStatusCode().is2xxSuccessful()) {
-            switch (gitlabResponse.getStatusCode()) {
-                case UNAUTHORIZED:
-                    throw new UnprocessableEntityException(
-                            ExecutorApiStandardErrors.SC401_01_EXECUTOR_UNATHORIZED,
-                            "Missing credentials: " + gitlabRunResourceResponse
-                    );
-                case FORBIDDEN:
-                    throw new UnprocessableEntityException(
-                            ExecutorApiStandardErrors.SC403_01_EXECUTOR_FORBIDDEN,
-                            "User does not have permission to run the pipeline: " + gitlabRunResourceResponse
-                    );
-                case BAD_REQUEST:
-                    throw new UnprocessableEntityException(
-                            ExecutorApiStandardErrors.SC422_05_TASK_IS_INVALID,
-                            "GitLab responded with a 400 error. Please make sure to have a valid gitlab-ci file and settings."
-                    );
-                default:
-                    throw new InternalServerException(
-                            ExecutorApiStandardErrors.SC500_50_EXECUTOR_SERVICE_ERROR,
-                            "Gitlab responded with an error: " + gitlabRunResourceResponse
-                    );
-            }
+    private static void setGitlabPipeline(PipelineRun pipelineRun, GitlabRunResourceResponse gitlabRunResourceResponse) {
+        pipelineRun.setRunId(gitlabRunResourceResponse.getId());
+        pipelineRun.setStatus(GitlabRunState.valueOf(gitlabRunResourceResponse.getStatus()));
+        pipelineRun.setCreatedAt(toOffsetDateTime(gitlabRunResourceResponse.getCreatedAt()));
+        pipelineRun.setFinishedAt(toOffsetDateTime(gitlabRunResourceResponse.getFinishedAt()));
+    }
+
+    /**
+     * Build the exception for an error response of GitLab to a pipeline trigger.
+     * @param status the status of the response.
+     * @param detail the body of the response.
+     * @param gitlabInstanceUrl the url of the GitLab instance.
+     * @return the exception to be thrown.
+     */
+    private ODMApiException triggerError(HttpStatus status, Object detail, String gitlabInstanceUrl) {
+        switch (status) {
+            case UNAUTHORIZED:
+                gitlabTokenCache.invalidate(gitlabInstanceUrl);
+                return new UnprocessableEntityException(
+                        ExecutorApiStandardErrors.SC401_01_EXECUTOR_UNATHORIZED,
+                        "Missing credentials: " + detail
+                );
+            case FORBIDDEN:
+                return new UnprocessableEntityException(
+                        ExecutorApiStandardErrors.SC403_01_EXECUTOR_FORBIDDEN,
+                        "User does not have permission to run the pipeline: " + detail
+                );
+            case TOO_MANY_REQUESTS:
+                return new TooManyRequestsException(
+                        ExecutorApiStandardErrors.SC429_01_GITLAB_RATE_LIMITED,
+                        "Gitlab rate limit reached, retry later: " + detail
+                );
+            case BAD_REQUEST:
+                return new UnprocessableEntityException(
+                        ExecutorApiStandardErrors.SC422_05_TASK_IS_INVALID,
+                        "GitLab responded with a 400 error. Please make sure to have a valid gitlab-ci file and settings."
+                );
+            default:
+                return new InternalServerException(
+                        ExecutorApiStandardErrors.SC500_50_EXECUTOR_SERVICE_ERROR,
+                        "Gitlab responded with an error: " + detail
+                );
         }
     }
 
     /**
-     * Poll the GitLab server asking the status of the running pipeline.
+     * Get the status of the pipeline associated to a task, as last synchronized from the GitLab server.
+     * Statuses are served from the {@link TaskStatusCache} when possible, and concurrent requests for the same
+     * task share a single read.
      * @param taskId the id of the task to be checked.
      * @return the status of the pipeline.
+     * @see PipelineStatusSynchronizer
      */
-    @Async
-    public CompletableFuture<TaskStatus> getPipelineStatus(Long taskId) {
-        Optional<PipelineRun> optionalPipelineRun = pipelineRunRepository.findByTaskId(taskId);
-        if (optionalPipelineRun.isEmpty()) {
+    public TaskStatus getPipelineStatus(Long taskId) {
+        return getVersionedPipelineStatus(taskId).getStatus();
+    }
+
+    /**
+     * Get the status of the pipeline associated to a task, with the version of its pipeline run.
+     * @param taskId the id of the task to be checked.
+     * @return the versioned status of the pipeline.
+     * @see #getPipelineStatus(Long)
+     */
+    public VersionedTaskStatus getVersionedPipelineStatus(Long taskId) {
+        VersionedTaskStatus cachedStatus = taskStatusCache.get(taskId);
+        if (cachedStatus != null) {
+            return cachedStatus;
+        }
+        return taskStatusLookups.read(taskId, () -> {
+            VersionedTaskStatus status = readPipelineStatus(taskId);
+            taskStatusCache.putIfAbsent(taskId, status);
+            return status;
+        });
+    }
+
+    /**
+     * Read the status of the pipeline associated to a task from the database, without going through the cache.
+     * The cached status is dropped if out of date, e.g. when the status was saved by another instance of the executor.
+     * @param taskId the id of the task to be checked.
+     * @return the versioned status of the pipeline.
+     */
+    public VersionedTaskStatus readStoredPipelineStatus(Long taskId) {
+        VersionedTaskStatus status = readPipelineStatus(taskId);
+        taskStatusCache.invalidateIfOutdated(taskId, status);
+        return status;
+    }
+
+    private VersionedTaskStatus readPipelineStatus(Long taskId) {
+        Optional<PipelineRunRepository.Summary> optionalPipelineRun = pipelineRunRepository.findSummaryByTaskId(taskId);
+        if (optionalPipelineRun.isPresent()) {
+            PipelineRunRepository.Summary pipelineRun = optionalPipelineRun.get();
+            return new VersionedTaskStatus(toTaskStatus(pipelineRun.getStatus()), pipelineRun.getVersion());
+        }
+        // Completed runs are eventually moved to the archive by the PipelineRunArchiver.
+        Optional<PipelineRunArchive> archivedPipelineRun = pipelineRunArchiveRepository.findFirstByTaskIdOrderByArchivedAtDesc(taskId);
+        if (archivedPipelineRun.isEmpty()) {
             throw new NotFoundException(ExecutorApiStandardErrors.SC404_01_PIPELINE_RUN_NOT_FOUND,
                     "Pipeline run with id " + taskId + " not found.");
         }
-        PipelineRun pipelineRun = optionalPipelineRun.get();
+        return new VersionedTaskStatus(toTaskStatus(archivedPipelineRun.get().getStatus()), archivedPipelineRun.get().getVersion());
+    }
 
-        int counter = 0;
-        ResponseEntity<GitlabRunResourceResponse> gitlabResponse = null;
+    /**
+     * List the pipeline runs matching the filters, newest first, one page at a time.
+     * Pages are read with keyset pagination and the matching runs are never counted, so that reading a page costs
+     * the same whatever its position and the size of the table. Null filters match all the pipeline runs.
+     * @param statuses the statuses of the pipelines.
+     * @param gitlabInstanceUrl the url of the GitLab instance.
+     * @param project the id of the GitLab project.
+     * @param createdFrom the instant from which the pipelines were created (inclusive).
+     * @param createdBefore the instant before which the pipelines were created (exclusive).
+     * @param after the cursor returned with the previous page, null for the first page.
+     * @param limit the maximum number of pipeline runs in the page.
+     * @return the page of pipeline runs.
+     */
+    public PipelineRunPageResource findPipelineRuns(Collection<GitlabRunState> statuses,
+                                                    String gitlabInstanceUrl,
+                                                    String project,
+                                                    OffsetDateTime createdFrom,
+                                                    OffsetDateTime createdBefore,
+                                                    Long after,
+                                                    int limit) {
+        Specification<PipelineRun> specification = Specification
+                .where(PipelineRunSpecifications.hasStatusIn(statuses))
+                .and(PipelineRunSpecifications.hasGitlabInstanceUrl(gitlabInstanceUrl))
+                .and(PipelineRunSpecifications.hasProject(project))
+                .and(PipelineRunSpecifications.createdFrom(createdFrom))
+                .and(PipelineRunSpecifications.createdBefore(createdBefore));
+        // One run more than the limit tells whether there is a next page.
+        List<PipelineRunResource> pipelineRuns = pipelineRunRepository.findPage(specification, after, limit + 1);
+        boolean hasNext = pipelineRuns.size() > limit;
+        List<PipelineRunResource> content = hasNext ? new ArrayList<>(pipelineRuns.subList(0, limit)) : pipelineRuns;
 
-        ResponseEntity<ParamResource> optGitlabInstance = paramsServiceClient.getParamByName(pipelineRun.getGitlabInstanceUrl());
-        if (optGitlabInstance.getStatusCode().is4xxClientError()) {
-            throw new UnprocessableEntityException(
-                    ExecutorApiStandardErrors.SC404_01_PIPELINE_RUN_NOT_FOUND,
-                    "Cannot find Gitlab instance with url: " + pipelineRun.getGitlabInstanceUrl()
-            );
-        }
-        GitlabClient gitlabClient = new GitlabClient(
-                Objects.requireNonNull(optGitlabInstance.getBody()).getParamName(),
-                Objects.requireNonNull(optGitlabInstance.getBody()).getParamValue()
+        PipelineRunPageResource page = new PipelineRunPageResource();
+        page.setContent(content);
+        page.setSize(content.size());
+        page.setNext(hasNext ? content.get(content.size() - 1).getPipelineRunId() : null);
+        return page;
+    }
+
+    /**
+     * Read the status of a pipeline from the GitLab server and store it in the pipeline run.
+     * Concurrent refreshes of the same task share a single GitLab call.
+     * @param pipelineRun the pipeline run to be refreshed.
+     * @return the refreshed pipeline run.
+     */
+    public PipelineRun refreshPipelineRun(PipelineRun pipelineRun) {
+        return taskStatusLookups.refresh(pipelineRun.getTaskId(), () -> readPipelineRun(pipelineRun));
+    }
+
+    private PipelineRun readPipelineRun(PipelineRun pipelineRun) {
+        GitlabClient gitlabClient = gitlabClientRegistry.getClient(
+                pipelineRun.getGitlabInstanceUrl(),
+                gitlabTokenCache.getToken(pipelineRun.getGitlabInstanceUrl())
         );
 
-        while (counter < pipelineConfiguration.getPollingNumRetries()) {
+        ResponseEntity<GitlabRunResourceResponse> gitlabResponse;
+        try {
             gitlabResponse = gitlabClient.readTask(pipelineRun.getProject(), pipelineRun.getRunId());
-            if (gitlabResponse.getStatusCode().is2xxSuccessful() && Objects.requireNonNull(gitlabResponse.getBody()).getStatus().equals(GitlabRunState.success.toString())) {
-                break;
-            }
+        } catch (GitlabClientException e) {
+            throw readError(resolveStatus(e.getCode()), e.getResponseBody(), pipelineRun.getGitlabInstanceUrl());
+        }
+        checkGitlabReadResponse(gitlabResponse, pipelineRun.getGitlabInstanceUrl());
+        GitlabRunResourceResponse responseBody = gitlabResponse.getBody();
+        return updatePipelineRunStatus(pipelineRun, responseBody);
+    }
+
+    /**
+     * Non-blocking version of {@link #refreshPipelineRun(PipelineRun)}, through the {@link GitlabApiClient}.
+     * The GitLab call runs on the client event loop, the database update on the bounded elastic scheduler.
+     * @param pipelineRun the pipeline run to be refreshed.
+     * @return the refreshed pipeline run.
+     */
+    public Mono<PipelineRun> refreshPipelineRunReactive(PipelineRun pipelineRun) {
+        return Mono.defer(() -> Mono.fromFuture(taskStatusLookups.refreshAsync(
+                pipelineRun.getTaskId(),
+                () -> readPipelineRunReactive(pipelineRun).toFuture()
+        )));
+    }
+
+    private Mono<PipelineRun> readPipelineRunReactive(PipelineRun pipelineRun) {
+        String gitlabInstanceUrl = pipelineRun.getGitlabInstanceUrl();
+        return Mono.fromCallable(() -> gitlabClientRegistry.getApiClient(gitlabInstanceUrl, gitlabTokenCache.getToken(gitlabInstanceUrl)))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(apiClient -> apiClient.readTask(pipelineRun.getProject(), pipelineRun.getRunId()))
+                .onErrorMap(GitlabClientException.class, e -> readError(resolveStatus(e.getCode()), e.getResponseBody(), gitlabInstanceUrl))
+                .switchIfEmpty(Mono.error(() -> new InternalServerException(
+                        ExecutorApiStandardErrors.SC500_50_EXECUTOR_SERVICE_ERROR,
+                        "Response body is null!"
+                )))
+                .publishOn(Schedulers.boundedElastic())
+                .map(gitlabRunResourceResponse -> updatePipelineRunStatus(pipelineRun, gitlabRunResourceResponse));
+    }
+
+    /**
+     * Refresh all the given pipeline runs of a GitLab project with a single paged list of the project pipelines.
+     * @param gitlabInstanceUrl the url of the GitLab instance.
+     * @param project the id of the GitLab project.
+     * @param pipelineRuns the pipeline runs of the project to be refreshed.
+     * @param updatedAfter only the pipelines updated after this instant are read, null to read all of them.
+     * @return the number of pipeline runs whose status changed.
+     */
+    public int refreshPipelineRuns(String gitlabInstanceUrl, String project, List<PipelineRun> pipelineRuns, ZonedDateTime updatedAfter) {
+        GitlabClient gitlabClient = gitlabClientRegistry.getClient(
+                gitlabInstanceUrl,
+                gitlabTokenCache.getToken(gitlabInstanceUrl)
+        );
+        Map<String, PipelineRun> pendingRuns = new HashMap<>();
+        for (PipelineRun pipelineRun : pipelineRuns) {
+            pendingRuns.put(pipelineRun.getRunId(), pipelineRun);
+        }
+
+        int updated = 0;
+        int page = 1;
+        while (page > 0 && !pendingRuns.isEmpty()) {
+            ResponseEntity<List<GitlabRunResourceResponse>> gitlabResponse;
             try {
-                Thread.sleep((long) pipelineConfiguration.getPollingIntervalSeconds());
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                logger.warn("Polling thread error: " + e.getMessage());
-                throw new InternalServerException("Polling thread error: " + e.getMessage());
+                gitlabResponse = gitlabClient.listPipelines(
+                        project, updatedAfter, page, pipelineConfiguration.getPollingBatchPageSize()
+                );
+            } catch (GitlabClientException e) {
+                throw readError(resolveStatus(e.getCode()), e.getResponseBody(), gitlabInstanceUrl);
             }
-            counter++;
-        }
-        if(gitlabResponse!=null) {
-            GitlabRunResourceResponse responseBody = gitlabResponse.getBody();
-            if (!gitlabResponse.getStatusCode().is2xxSuccessful()) {
-                switch (gitlabResponse.getStatusCode()) {
-                    case UNAUTHORIZED:
-                        throw new InternalServerException(
-                                ExecutorApiStandardErrors.SC401_01_EXECUTOR_UNATHORIZED,
-                                "Missing credentials - " + gitlabResponse
-                        );
-                    case FORBIDDEN:
-                        throw new InternalServerException(
-                                ExecutorApiStandardErrors.SC403_01_EXECUTOR_FORBIDDEN,
-                                "User does not have the permission to get the run infos - " + gitlabResponse
-                        );
-                    default:
-                        throw new InternalServerException(
-                                ExecutorApiStandardErrors.SC500_50_EXECUTOR_SERVICE_ERROR,
-                                "Azure DevOps responded with an error: " + gitlabResponse
-                        );
+            checkGitlabReadResponse(gitlabResponse, gitlabInstanceUrl);
+            List<StatusChange> statusChanges = new ArrayList<>();
+            for (GitlabRunResourceResponse pipeline : gitlabResponse.getBody()) {
+                PipelineRun pipelineRun = pendingRuns.remove(pipeline.getId());
+                StatusChange statusChange = pipelineRun != null ? toStatusChange(pipelineRun, pipeline) : null;
+                if (statusChange != null) {
+                    statusChanges.add(statusChange);
+                    if (pipelineRun.getStatus() != statusChange.previousStatus) {
+                        updated++;
+                    }
                 }
             }
-            else if(responseBody==null) {
-                throw new InternalServerException(
+            saveStatusChanges(statusChanges);
+            String nextPage = gitlabResponse.getHeaders().getFirst(GitlabClient.NEXT_PAGE_HEADER);
+            page = StringUtils.hasText(nextPage) ? Integer.parseInt(nextPage.trim()) : 0;
+        }
+        return updated;
+    }
+
+    /**
+     * Check the response of a read request to the GitLab server, raise an exception if needed.
+     * @param gitlabResponse the response from the server.
+     * @param gitlabInstanceUrl the url of the GitLab instance.
+     */
+    private void checkGitlabReadResponse(ResponseEntity<?> gitlabResponse, String gitlabInstanceUrl) {
+        if (!gitlabResponse.getStatusCode().is2xxSuccessful()) {
+            throw readError(gitlabResponse.getStatusCode(), gitlabResponse, gitlabInstanceUrl);
+        } else if (gitlabResponse.getBody() == null) {
+            throw new InternalServerException(
+                    ExecutorApiStandardErrors.SC500_50_EXECUTOR_SERVICE_ERROR,
+                    "Response body is null!"
+            );
+        }
+    }
+
+    /**
+     * Build the exception for an error response of GitLab to a read request.
+     * @param status the status of the response.
+     * @param detail the response, or its body.
+     * @param gitlabInstanceUrl the url of the GitLab instance.
+     * @return the exception to be thrown.
+     */
+    private ODMApiException readError(HttpStatus status, Object detail, String gitlabInstanceUrl) {
+        switch (status) {
+            case UNAUTHORIZED:
+                gitlabTokenCache.invalidate(gitlabInstanceUrl);
+                return new InternalServerException(
                         ExecutorApiStandardErrors.SC401_01_EXECUTOR_UNATHORIZED,
-                        "Response body is null!"
+                        "Missing credentials - " + detail
+                );
+            case FORBIDDEN:
+                return new InternalServerException(
+                        ExecutorApiStandardErrors.SC403_01_EXECUTOR_FORBIDDEN,
+                        "User does not have the permission to get the run infos - " + detail
                 );
+            case TOO_MANY_REQUESTS:
+                return new TooManyRequestsException(
+                        ExecutorApiStandardErrors.SC429_01_GITLAB_RATE_LIMITED,
+                        "Gitlab rate limit reached - " + detail
+                );
+            default:
+                return new InternalServerException(
+                        ExecutorApiStandardErrors.SC500_50_EXECUTOR_SERVICE_ERROR,
+                        "Gitlab responded with an error: " + detail
+                );
+        }
+    }
+
+    private static HttpStatus resolveStatus(int statusCode) {
+        HttpStatus status = HttpStatus.resolve(statusCode);
+        return status != null ? status : HttpStatus.INTERNAL_SERVER_ERROR;
+    }
+
+    /**
+     * Apply a GitLab "Pipeline Hook" event to the matching pipeline run, without any call to GitLab.
+     * Events that would move a run out of a terminal state (e.g. delivered out of order) are ignored, as well as events
+     * with a status unknown to {@link GitlabRunState}.
+     * @param gitlabInstanceUrl the url of the GitLab instance that sent the event.
+     * @param pipelineEvent the received event.
+     * @return the updated pipeline run, empty if the event does not match any pipeline run.
+     */
+    public Optional<PipelineRun> applyPipelineEvent(String gitlabInstanceUrl, GitlabPipelineEventResource pipelineEvent) {
+        GitlabPipelineEventResource.ObjectAttributes attributes = pipelineEvent.getObjectAttributes();
+        if (attributes == null || attributes.getId() == null || attributes.getStatus() == null) {
+            throw new UnprocessableEntityException(
+                    ExecutorApiStandardErrors.SC422_05_TASK_IS_INVALID,
+                    "Pipeline event without pipeline id or status."
+            );
+        }
+        Optional<PipelineRun> optionalPipelineRun = pipelineRunRepository.findByGitlabInstanceUrlAndRunId(gitlabInstanceUrl, attributes.getId());
+        if (optionalPipelineRun.isEmpty()) {
+            return Optional.empty();
+        }
+        PipelineRun pipelineRun = optionalPipelineRun.get();
+        GitlabRunState status;
+        try {
+            status = GitlabRunState.valueOf(attributes.getStatus());
+        } catch (IllegalArgumentException e) {
+            // Rejecting the event would make GitLab count a hook failure, and eventually disable the hook.
+            logger.warn("Ignoring event with unknown status {} for pipeline run of task {}, left to the synchronizer",
+                    attributes.getStatus(), pipelineRun.getTaskId());
+            return Optional.of(pipelineRun);
+        }
+        pipelineRun.setLastEventAt(OffsetDateTime.now());
+        if (pipelineRun.getStatus() != null && pipelineRun.getStatus().isTerminal() && !status.isTerminal()) {
+            logger.info("Ignoring {} event for pipeline run of task {}, already {}", status, pipelineRun.getTaskId(), pipelineRun.getStatus());
+            return Optional.of(pipelineRunRepository.saveAndFlush(pipelineRun));
+        }
+        GitlabRunState previousStatus = pipelineRun.getStatus();
+        pipelineRun.setStatus(status);
+        pipelineRun.setFinishedAt(parseEventTimestamp(attributes.getFinishedAt()));
+        return Optional.of(saveStatusChange(pipelineRun, previousStatus));
+    }
+
+    /**
+     * Store the status received from the GitLab server in the pipeline run, if it changed.
+     * @param pipelineRun the pipeline run to be updated.
+     * @param gitlabRunResourceResponse the pipeline as returned by the GitLab server.
+     * @return the updated pipeline run.
+     */
+    private PipelineRun updatePipelineRunStatus(PipelineRun pipelineRun, GitlabRunResourceResponse gitlabRunResourceResponse) {
+        StatusChange statusChange = toStatusChange(pipelineRun, gitlabRunResourceResponse);
+        return statusChange != null ? saveStatusChange(pipelineRun, statusChange.previousStatus) : pipelineRun;
+    }
+
+    /**
+     * Copy the status received from the GitLab server into the pipeline run, without saving it.
+     * @param pipelineRun the pipeline run to be updated.
+     * @param gitlabRunResourceResponse the pipeline as returned by the GitLab server.
+     * @return the change to be saved, null if the status did not change.
+     */
+    private static StatusChange toStatusChange(PipelineRun pipelineRun, GitlabRunResourceResponse gitlabRunResourceResponse) {
+        GitlabRunState status = GitlabRunState.valueOf(gitlabRunResourceResponse.getStatus());
+        OffsetDateTime finishedAt = toOffsetDateTime(gitlabRunResourceResponse.getFinishedAt());
+        if (status == pipelineRun.getStatus() && isSameInstant(finishedAt, pipelineRun.getFinishedAt())) {
+            return null;
+        }
+        GitlabRunState previousStatus = pipelineRun.getStatus();
+        pipelineRun.setStatus(status);
+        pipelineRun.setFinishedAt(finishedAt);
+        return new StatusChange(pipelineRun, previousStatus);
+    }
+
+    /**
+     * Save the pipeline run and, in the same transaction, enqueue the callback of a terminal status.
+     * Once committed, the cached task status is replaced and a {@link PipelineRunStatusChangedEvent} is published
+     * if the task status changed.
+     * @param pipelineRun the pipeline run with its new status.
+     * @param previousStatus the status before the change, null for a new pipeline run.
+     * @return the saved pipeline run.
+     */
+    private PipelineRun saveStatusChange(PipelineRun pipelineRun, GitlabRunState previousStatus) {
+        return saveStatusChange(pipelineRun, previousStatus, null);
+    }
+
+    /**
+     * Save the pipeline run as {@link #saveStatusChange(PipelineRun, GitlabRunState)}, and its variables
+     * in the same transaction.
+     * @param variables the variables of a new pipeline run, null to keep the stored ones.
+     */
+    private PipelineRun saveStatusChange(PipelineRun pipelineRun, GitlabRunState previousStatus, List<Map<String, String>> variables) {
+        PipelineRun savedPipelineRun = transactionTemplate.execute(transactionStatus -> {
+            PipelineRun saved = pipelineRunRepository.saveAndFlush(pipelineRun);
+            if (variables != null) {
+                pipelineRunVariablesRepository.save(new PipelineRunVariables(saved, variables));
+            }
+            callbackOutbox.enqueueIfTerminal(saved, previousStatus);
+            return saved;
+        });
+        onStatusSaved(savedPipelineRun, previousStatus);
+        return savedPipelineRun;
+    }
+
+    /**
+     * Save many status changes in a single transaction, so that the updates (and the callbacks enqueued)
+     * are sent to the database in JDBC batches. If the transaction fails (e.g. a run has been updated by a webhook
+     * in the meantime) the changes are saved one by one, and the runs that still cannot be saved are skipped.
+     * @param statusChanges the pipeline runs with their new status.
+     */
+    private void saveStatusChanges(List<StatusChange> statusChanges) {
+        if (statusChanges.isEmpty()) {
+            return;
+        }
+        List<PipelineRun> savedPipelineRuns;
+        try {
+            savedPipelineRuns = transactionTemplate.execute(transactionStatus -> {
+                List<PipelineRun> saved = new ArrayList<>(statusChanges.size());
+                for (StatusChange statusChange : statusChanges) {
+                    PipelineRun savedPipelineRun = pipelineRunRepository.save(statusChange.pipelineRun);
+                    callbackOutbox.enqueueIfTerminal(savedPipelineRun, statusChange.previousStatus);
+                    saved.add(savedPipelineRun);
+                }
+                pipelineRunRepository.flush();
+                return saved;
+            });
+        } catch (RuntimeException e) {
+            logger.info("Unable to save {} status changes together, saving them one by one: {}", statusChanges.size(), e.getMessage());
+            for (StatusChange statusChange : statusChanges) {
+                try {
+                    saveStatusChange(statusChange.pipelineRun, statusChange.previousStatus);
+                } catch (RuntimeException ex) {
+                    logger.warn("Unable to save the status of task {}: {}", statusChange.pipelineRun.getTaskId(), ex.getMessage());
+                }
             }
-            pipelineRun.setStatus(GitlabRunState.valueOf(responseBody.getStatus()));
-            pipelineRun.setFinishedAt(responseBody.getFinishedAt().format(DateTimeFormatter.ISO_DATE_TIME));
+            return;
+        }
+        for (int i = 0; i < savedPipelineRuns.size(); i++) {
+            onStatusSaved(savedPipelineRuns.get(i), statusChanges.get(i).previousStatus);
+        }
+    }
 
-            pipelineRunRepository.saveAndFlush(pipelineRun);
+    private void onStatusSaved(PipelineRun savedPipelineRun, GitlabRunState previousStatus) {
+        TaskStatus taskStatus = toTaskStatus(savedPipelineRun.getStatus());
+        taskStatusCache.put(savedPipelineRun.getTaskId(), new VersionedTaskStatus(taskStatus, savedPipelineRun.getVersion()));
+        if (previousStatus == null || toTaskStatus(previousStatus) != taskStatus) {
+            eventPublisher.publishEvent(new PipelineRunStatusChangedEvent(this, savedPipelineRun.getTaskId(), taskStatus));
         }
+    }
 
-        switch (pipelineRun.getStatus()) {
+    private static OffsetDateTime toOffsetDateTime(ZonedDateTime timestamp) {
+        return timestamp != null ? timestamp.toOffsetDateTime() : null;
+    }
+
+    /**
+     * Timestamps read from the database may have a different offset than the ones received from GitLab.
+     */
+    private static boolean isSameInstant(OffsetDateTime timestamp, OffsetDateTime other) {
+        return timestamp == null ? other == null : other != null && timestamp.isEqual(other);
+    }
+
+    /**
+     * Parse a webhook timestamp (e.g. "2016-08-12 15:26:29 UTC").
+     * @param timestamp the timestamp of the webhook event.
+     * @return the timestamp, null if missing or not parsable.
+     */
+    private static OffsetDateTime parseEventTimestamp(String timestamp) {
+        if (!StringUtils.hasText(timestamp)) {
+            return null;
+        }
+        try {
+            return ZonedDateTime.parse(timestamp, WEBHOOK_TIMESTAMP_FORMAT).toOffsetDateTime();
+        } catch (DateTimeParseException e) {
+            try {
+                return ZonedDateTime.parse(timestamp, DateTimeFormatter.ISO_DATE_TIME).toOffsetDateTime();
+            } catch (DateTimeParseException ex) {
+                logger.warn("Unable to parse webhook timestamp {}", timestamp);
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Convert the status of a GitLab pipeline into the status of the DevOps task.
+     * @param status the status of the GitLab pipeline.
+     * @return the status of the task.
+     */
+    static TaskStatus toTaskStatus(GitlabRunState status) {
+        if (status == null) {
+            return TaskStatus.PLANNED;
+        }
+        switch (status) {
             case success:
-                return CompletableFuture.completedFuture(TaskStatus.PROCESSED);
+                return TaskStatus.PROCESSED;
             case failed:
-                return CompletableFuture.completedFuture(TaskStatus.FAILED);
+                return TaskStatus.FAILED;
             case canceled:
-                return CompletableFuture.completedFuture(TaskStatus.ABORTED);
+            case skipped:
+                return TaskStatus.ABORTED;
             default:
-                return CompletableFuture.completedFuture(null);
+                return TaskStatus.PROCESSING;
+        }
+    }
+
+    /**
+     * A pipeline run with its new status, not saved yet.
+     */
+    private static class StatusChange {
+        private final PipelineRun pipelineRun;
+        private final GitlabRunState previousStatus;
+
+        private StatusChange(PipelineRun pipelineRun, GitlabRunState previousStatus) {
+            this.pipelineRun = pipelineRun;
+            this.previousStatus = previousStatus;
         }
     }
 }
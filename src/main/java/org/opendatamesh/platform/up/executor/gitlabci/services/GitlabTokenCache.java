@@ -0,0 +1,172 @@
+package org.opendatamesh.platform.up.executor.gitlabci.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.opendatamesh.platform.up.executor.gitlabci.clients.ParamsServiceClient;
+import org.opendatamesh.platform.up.executor.gitlabci.config.AsyncConfiguration;
+import org.opendatamesh.platform.up.executor.gitlabci.config.ParamConfiguration;
+import org.opendatamesh.platform.up.executor.gitlabci.resources.ExecutorApiStandardErrors;
+import org.opendatamesh.platform.up.executor.gitlabci.resources.client.params.ParamResource;
+import org.opendatamesh.platform.up.executor.gitlabci.resources.exceptions.InternalServerException;
+import org.opendatamesh.platform.up.executor.gitlabci.resources.exceptions.UnprocessableEntityException;
+import org.opendatamesh.platform.up.executor.gitlabci.utils.ExpiringCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * Cache of the GitLab instance tokens (and webhook secrets) stored in the params service.
+ * <p>
+ * Tokens are kept for a configurable time to live and reloaded in background when they are about to expire,
+ * so that the hot path (pipeline triggers and status reads) does not wait for the params service.
+ * Params missing from the params service (404) are cached as missing for a shorter time, so that repeated requests
+ * for an unknown instance (e.g. webhook events) do not reach the params service every time.
+ */
+@Component
+public class GitlabTokenCache {
+    private static final Logger logger = LoggerFactory.getLogger(GitlabTokenCache.class);
+
+    private final ParamsServiceClient paramsServiceClient;
+    private final ExpiringCache<String, String> tokens;
+    private final Duration ttl;
+    private final Duration negativeTtl;
+    private final Duration refreshAhead;
+    private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+    private final Executor refreshExecutor;
+
+    private final Counter hits;
+    private final Counter misses;
+
+    public GitlabTokenCache(ParamsServiceClient paramsServiceClient,
+                            ParamConfiguration paramConfiguration,
+                            MeterRegistry meterRegistry,
+                            @Qualifier(AsyncConfiguration.PIPELINE_TASK_EXECUTOR) Executor refreshExecutor) {
+        this.paramsServiceClient = paramsServiceClient;
+        this.refreshExecutor = refreshExecutor;
+        this.tokens = new ExpiringCache<>(paramConfiguration.getTokenCacheMaxSize());
+        this.ttl = Duration.ofSeconds(paramConfiguration.getTokenCacheTtlSeconds());
+        this.negativeTtl = Duration.ofSeconds(paramConfiguration.getTokenCacheNegativeTtlSeconds());
+        this.refreshAhead = Duration.ofSeconds(paramConfiguration.getTokenCacheRefreshAheadSeconds());
+
+        this.hits = Counter.builder("odm.gitlab.token.cache.requests")
+                .tag("result", "hit")
+                .description("Token lookups served from cache")
+                .register(meterRegistry);
+        this.misses = Counter.builder("odm.gitlab.token.cache.requests")
+                .tag("result", "miss")
+                .description("Token lookups forwarded to the params service")
+                .register(meterRegistry);
+        Gauge.builder("odm.gitlab.token.cache.size", tokens, ExpiringCache::size)
+                .description("Number of cached tokens")
+                .register(meterRegistry);
+        FunctionCounter.builder("odm.gitlab.token.cache.evictions", tokens, ExpiringCache::evictionCount)
+                .description("Tokens removed from cache because expired or because of the size limit")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Get the token of a GitLab instance, loading it from the params service if not cached.
+     *
+     * @param gitlabInstanceUrl the url of the GitLab instance.
+     * @return the token of the instance.
+     */
+    public String getToken(String gitlabInstanceUrl) {
+        String token = getParamValue(gitlabInstanceUrl);
+        if (token == null) {
+            throw new UnprocessableEntityException(
+                    ExecutorApiStandardErrors.SC404_01_PIPELINE_RUN_NOT_FOUND,
+                    "Cannot find Gitlab instance with url: " + gitlabInstanceUrl
+            );
+        }
+        return token;
+    }
+
+    /**
+     * Get the webhook secret token of a GitLab instance, loading it from the params service if not cached.
+     *
+     * @param gitlabInstanceUrl the url of the GitLab instance.
+     * @return the webhook secret of the instance, null if the instance has no webhook secret.
+     */
+    public String getWebhookSecret(String gitlabInstanceUrl) {
+        return getParamValue(GitlabConfigService.webhookSecretParamName(gitlabInstanceUrl));
+    }
+
+    /**
+     * Remove the token and the webhook secret of a GitLab instance from the cache.
+     *
+     * @param gitlabInstanceUrl the url of the GitLab instance.
+     */
+    public void invalidate(String gitlabInstanceUrl) {
+        tokens.invalidate(gitlabInstanceUrl);
+        tokens.invalidate(GitlabConfigService.webhookSecretParamName(gitlabInstanceUrl));
+    }
+
+    private String getParamValue(String paramName) {
+        ExpiringCache.Entry<String> entry = tokens.getEntry(paramName);
+        if (entry != null) {
+            hits.increment();
+            if (entry.getValue() != null && entry.expiresWithin(refreshAhead)) {
+                refreshInBackground(paramName);
+            }
+            return entry.getValue();
+        }
+        misses.increment();
+        return load(paramName);
+    }
+
+    /**
+     * Read a param from the params service and cache it, unless the param was invalidated in the meantime:
+     * a load started before {@link #invalidate(String)} must not put the old value back in the cache.
+     * Only a missing param (404) is cached as missing: any other error (e.g. 401, 403 or 429) is not cached,
+     * so that a short outage of the params service does not reject the instance until the negative ttl ends.
+     */
+    private String load(String paramName) {
+        long version = tokens.version();
+        ResponseEntity<ParamResource> param = paramsServiceClient.getParamByName(paramName);
+        if (param.getStatusCode() == HttpStatus.NOT_FOUND) {
+            tokens.putIfVersion(paramName, null, negativeTtl, version);
+            return null;
+        }
+        if (!param.getStatusCode().is2xxSuccessful()) {
+            throw new InternalServerException(
+                    ExecutorApiStandardErrors.SC500_50_EXECUTOR_SERVICE_ERROR,
+                    "Unable to read the param " + paramName + " from the params service: " + param.getStatusCode()
+            );
+        }
+        String value = Objects.requireNonNull(param.getBody()).getParamValue();
+        tokens.putIfVersion(paramName, value, ttl, version);
+        return value;
+    }
+
+    private void refreshInBackground(String paramName) {
+        if (!refreshing.add(paramName)) {
+            return;
+        }
+        try {
+            CompletableFuture.runAsync(() -> {
+                try {
+                    load(paramName);
+                } catch (Exception e) {
+                    logger.warn("Unable to refresh param {}: {}", paramName, e.getMessage());
+                } finally {
+                    refreshing.remove(paramName);
+                }
+            }, refreshExecutor);
+        } catch (RuntimeException e) {
+            // Executor saturated: the cached value is still valid, the refresh is retried on the next read.
+            refreshing.remove(paramName);
+        }
+    }
+}
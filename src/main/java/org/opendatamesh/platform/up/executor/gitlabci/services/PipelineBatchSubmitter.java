@@ -0,0 +1,133 @@
+package org.opendatamesh.platform.up.executor.gitlabci.services;
+
+import org.opendatamesh.platform.up.executor.gitlabci.config.AsyncConfiguration;
+import org.opendatamesh.platform.up.executor.gitlabci.config.PipelineConfiguration;
+import org.opendatamesh.platform.up.executor.gitlabci.utils.ParallelTasks;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+
+/**
+ * Triggers the pipelines of a batch of tasks.
+ * <p>
+ * The token of each GitLab instance is resolved once for the whole batch. The instances are served concurrently
+ * on the pipeline executor, each one by at most {@code instance-concurrency} workers taking the tasks from
+ * a shared queue, so that a large batch does not flood a single instance.
+ * <p>
+ * When scheduling is enabled, the tasks exceeding the limits of their project or instance are queued
+ * as accepted tasks instead (see {@link FairPipelineScheduler}), all stored together once the triggers complete.
+ */
+@Service
+public class PipelineBatchSubmitter {
+    private static final Logger logger = LoggerFactory.getLogger(PipelineBatchSubmitter.class);
+
+    private final GitlabPipelineService pipelineService;
+    private final GitlabTokenCache gitlabTokenCache;
+    private final PipelineConfiguration pipelineConfiguration;
+    private final Executor pipelineTaskExecutor;
+    private final FairPipelineScheduler pipelineScheduler;
+
+    public PipelineBatchSubmitter(GitlabPipelineService pipelineService,
+                                  GitlabTokenCache gitlabTokenCache,
+                                  PipelineConfiguration pipelineConfiguration,
+                                  @Qualifier(AsyncConfiguration.PIPELINE_TASK_EXECUTOR) Executor pipelineTaskExecutor,
+                                  FairPipelineScheduler pipelineScheduler) {
+        this.pipelineService = pipelineService;
+        this.gitlabTokenCache = gitlabTokenCache;
+        this.pipelineConfiguration = pipelineConfiguration;
+        this.pipelineTaskExecutor = pipelineTaskExecutor;
+        this.pipelineScheduler = pipelineScheduler;
+    }
+
+    /**
+     * Trigger the pipelines of the submissions without error, and wait for all of them.
+     * The error of each failed submission is stored in the submission itself.
+     *
+     * @param submissions the validated submissions.
+     */
+    public void submitAll(List<PipelineSubmission> submissions) {
+        Map<String, List<PipelineSubmission>> submissionsByInstance = new LinkedHashMap<>();
+        for (PipelineSubmission submission : submissions) {
+            if (submission.getError() == null) {
+                submissionsByInstance
+                        .computeIfAbsent(submission.getGitlabInstanceUrl(), k -> new ArrayList<>())
+                        .add(submission);
+            }
+        }
+
+        List<Runnable> workers = new ArrayList<>();
+        Queue<PipelineSubmission> refused = new ConcurrentLinkedQueue<>();
+        for (Map.Entry<String, List<PipelineSubmission>> instanceSubmissions : submissionsByInstance.entrySet()) {
+            String gitlabToken;
+            try {
+                gitlabToken = gitlabTokenCache.getToken(instanceSubmissions.getKey());
+            } catch (RuntimeException e) {
+                instanceSubmissions.getValue().forEach(submission -> submission.setError(e));
+                continue;
+            }
+            Queue<PipelineSubmission> queue = new ConcurrentLinkedQueue<>(instanceSubmissions.getValue());
+            int workerCount = Math.min(queue.size(), pipelineConfiguration.getSubmissionInstanceConcurrency());
+            for (int i = 0; i < workerCount; i++) {
+                workers.add(() -> {
+                    PipelineSubmission submission;
+                    while ((submission = queue.poll()) != null) {
+                        if (!submit(submission, gitlabToken)) {
+                            refused.add(submission);
+                        }
+                    }
+                });
+            }
+        }
+        logger.debug("Submitting the batch to {} GitLab instances with {} workers", submissionsByInstance.size(), workers.size());
+        ParallelTasks.runAll(pipelineTaskExecutor, workers);
+        acceptAll(new ArrayList<>(refused));
+    }
+
+    /**
+     * @return false if the task has not been admitted by the scheduler and must be queued.
+     */
+    private boolean submit(PipelineSubmission submission, String gitlabToken) {
+        String gitlabInstanceUrl = submission.getGitlabInstanceUrl();
+        String project = submission.getTemplate().getProjectId();
+        if (!pipelineScheduler.tryAdmit(gitlabInstanceUrl, project)) {
+            return false;
+        }
+        try {
+            pipelineService.runPipeline(
+                    submission.getConfiguration(),
+                    submission.getTemplate(),
+                    submission.getTask().getCallbackRef(),
+                    submission.getTask().getId(),
+                    submission.getGitlabInstanceUrl(),
+                    gitlabToken
+            );
+        } catch (RuntimeException e) {
+            logger.warn("Unable to submit task {}: {}", submission.getTask().getId(), e.getMessage());
+            submission.setError(e);
+        } finally {
+            pipelineScheduler.release(gitlabInstanceUrl, project);
+        }
+        return true;
+    }
+
+    private void acceptAll(List<PipelineSubmission> submissions) {
+        if (submissions.isEmpty()) {
+            return;
+        }
+        pipelineService.acceptPipelines(submissions);
+        for (PipelineSubmission submission : submissions) {
+            if (submission.getError() != null) {
+                logger.warn("Unable to accept task {}: {}", submission.getTask().getId(), submission.getError().getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package org.opendatamesh.platform.up.executor.gitlabci.services;
+
+import org.opendatamesh.platform.up.executor.gitlabci.config.AsyncConfiguration;
+import org.opendatamesh.platform.up.executor.gitlabci.config.PipelineConfiguration;
+import org.opendatamesh.platform.up.executor.gitlabci.dao.PipelineRun;
+import org.opendatamesh.platform.up.executor.gitlabci.dao.PipelineRunRepository;
+import org.opendatamesh.platform.up.executor.gitlabci.resources.exceptions.ODMApiException;
+import org.opendatamesh.platform.up.executor.gitlabci.utils.ParallelTasks;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Background job that triggers the pipelines of the tasks accepted asynchronously.
+ * <p>
+ * Accepted tasks are stored as pending pipeline runs, so they survive a restart. A pending run is claimed before
+ * being triggered, so that it is never triggered by two workers at the same time; a run claimed by a worker that
+ * stopped is triggered again once its lease expires.
+ * <p>
+ * Triggers rejected by GitLab (4xx responses, except 408 and 429) mark the task as failed at once, the other
+ * errors are retried with an exponential backoff.
+ * <p>
+ * When scheduling is enabled, the tasks to trigger are selected by the {@link FairPipelineScheduler}, and a new
+ * round starts as soon as a pipeline completes, so that its place is taken by the next task in the queue.
+ * Such rounds run on a dedicated thread, never on the pipeline executor: a round waits for the triggers it
+ * submits to that executor, and would deadlock it if all its threads were running rounds. Rounds requested
+ * while one is already waiting to start are merged into it.
+ */
+@Component
+public class PipelineDispatchWorker implements DisposableBean {
+    private static final Logger logger = LoggerFactory.getLogger(PipelineDispatchWorker.class);
+
+    private final PipelineRunRepository pipelineRunRepository;
+    private final GitlabPipelineService pipelineService;
+    private final PipelineConfiguration pipelineConfiguration;
+    private final Executor pipelineTaskExecutor;
+    private final FairPipelineScheduler pipelineScheduler;
+
+    private final ExecutorService roundExecutor = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "pipeline-dispatch-round");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean roundPending = new AtomicBoolean();
+
+    public PipelineDispatchWorker(PipelineRunRepository pipelineRunRepository,
+                                  GitlabPipelineService pipelineService,
+                                  PipelineConfiguration pipelineConfiguration,
+                                  @Qualifier(AsyncConfiguration.PIPELINE_TASK_EXECUTOR) Executor pipelineTaskExecutor,
+                                  FairPipelineScheduler pipelineScheduler) {
+        this.pipelineRunRepository = pipelineRunRepository;
+        this.pipelineService = pipelineService;
+        this.pipelineConfiguration = pipelineConfiguration;
+        this.pipelineTaskExecutor = pipelineTaskExecutor;
+        this.pipelineScheduler = pipelineScheduler;
+    }
+
+    @Scheduled(
+            initialDelayString = "${odm.executors.gitlab.pipelines-config.dispatch.interval}",
+            fixedDelayString = "${odm.executors.gitlab.pipelines-config.dispatch.interval}",
+            timeUnit = TimeUnit.SECONDS
+    )
+    public void dispatchPendingRuns() {
+        List<PipelineRun> dueRuns = pipelineScheduler.isEnabled()
+                ? pipelineScheduler.selectDueRuns(pipelineConfiguration.getDispatchBatchSize())
+                : pipelineRunRepository.findByDispatchStatusAndNextDispatchAtLessThanEqualOrderByNextDispatchAt(
+                        PipelineRun.DispatchStatus.PENDING,
+                        OffsetDateTime.now(),
+                        PageRequest.of(0, pipelineConfiguration.getDispatchBatchSize())
+                );
+        if (dueRuns.isEmpty()) {
+            return;
+        }
+        List<Runnable> dispatches = new ArrayList<>(dueRuns.size());
+        for (PipelineRun pipelineRun : dueRuns) {
+            dispatches.add(() -> claimAndDispatch(pipelineRun));
+        }
+        ParallelTasks.runAll(pipelineTaskExecutor, dispatches);
+    }
+
+    /**
+     * Trigger an accepted task right away on the pipeline executor, without waiting for the next run of the worker.
+     * If the executor is saturated, the task is left to the worker. When scheduling is enabled, a whole round
+     * is started instead, since the task may have to wait for the tasks queued before it.
+     *
+     * @param pipelineRun the pending pipeline run.
+     */
+    public void dispatchSoon(PipelineRun pipelineRun) {
+        if (pipelineRun.getDispatchStatus() != PipelineRun.DispatchStatus.PENDING) {
+            return;
+        }
+        if (pipelineScheduler.isEnabled()) {
+            requestRound();
+            return;
+        }
+        try {
+            pipelineTaskExecutor.execute(() -> claimAndDispatch(pipelineRun));
+        } catch (RuntimeException e) {
+            logger.debug("Executor saturated, task {} is left to the dispatch worker", pipelineRun.getTaskId());
+        }
+    }
+
+    /**
+     * Start a new round as soon as a pipeline reaches a terminal state, to trigger the tasks waiting for its place.
+     */
+    @EventListener
+    public void onPipelineRunStatusChanged(PipelineRunStatusChangedEvent event) {
+        if (!pipelineScheduler.isEnabled() || !event.getTaskStatus().isTerminal()) {
+            return;
+        }
+        requestRound();
+    }
+
+    /**
+     * Start a round on the dedicated thread, unless one is already waiting to start.
+     */
+    private void requestRound() {
+        if (!roundPending.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            roundExecutor.execute(() -> {
+                // Cleared before the round, so that a request arriving during the round starts another one.
+                roundPending.set(false);
+                try {
+                    dispatchPendingRuns();
+                } catch (RuntimeException e) {
+                    logger.warn("Dispatch round failed: {}", e.getMessage());
+                }
+            });
+        } catch (RuntimeException e) {
+            roundPending.set(false);
+            logger.debug("Dispatch round not started, pending tasks are left to the next run of the dispatch worker");
+        }
+    }
+
+    @Override
+    public void destroy() {
+        roundExecutor.shutdownNow();
+    }
+
+    private void claimAndDispatch(PipelineRun pipelineRun) {
+        try {
+            claimAndDispatchRun(pipelineRun);
+        } finally {
+            pipelineScheduler.release(pipelineRun.getGitlabInstanceUrl(), pipelineRun.getProject());
+        }
+    }
+
+    private void claimAndDispatchRun(PipelineRun pipelineRun) {
+        PipelineRun claimedRun;
+        try {
+            OffsetDateTime now = OffsetDateTime.now();
+            int claimed = pipelineRunRepository.claimDispatch(
+                    pipelineRun.getPipelineRunId(),
+                    PipelineRun.DispatchStatus.PENDING,
+                    now,
+                    now.plusSeconds(pipelineConfiguration.getDispatchLeaseSeconds())
+            );
+            if (claimed == 0) {
+                return;
+            }
+            claimedRun = pipelineRunRepository.findById(pipelineRun.getPipelineRunId()).orElse(null);
+            if (claimedRun == null) {
+                return;
+            }
+        } catch (Exception e) {
+            logger.warn("Unable to claim task {}: {}", pipelineRun.getTaskId(), e.getMessage());
+            return;
+        }
+        try {
+            pipelineService.dispatchPipelineRun(claimedRun);
+        } catch (Exception e) {
+            onDispatchError(claimedRun, e);
+        }
+    }
+
+    private void onDispatchError(PipelineRun pipelineRun, Exception e) {
+        String error = e.getMessage() != null && e.getMessage().length() > 255 ? e.getMessage().substring(0, 255) : e.getMessage();
+        int attempts = pipelineRun.getDispatchAttempts() != null ? pipelineRun.getDispatchAttempts() + 1 : 1;
+        pipelineRun.setDispatchAttempts(attempts);
+        try {
+            if (!isRetriable(e)) {
+                logger.warn("Trigger of task {} rejected, not retrying: {}", pipelineRun.getTaskId(), error);
+                pipelineService.failDispatch(pipelineRun, error);
+            } else if (attempts >= pipelineConfiguration.getDispatchMaxAttempts()) {
+                logger.warn("Trigger of task {} failed {} times, giving up: {}", pipelineRun.getTaskId(), attempts, error);
+                pipelineService.failDispatch(pipelineRun, error);
+            } else {
+                logger.info("Trigger of task {} failed, retrying in {} seconds: {}", pipelineRun.getTaskId(), backoffSeconds(attempts), error);
+                pipelineRun.setDispatchError(error);
+                pipelineRun.setNextDispatchAt(OffsetDateTime.now().plusSeconds(backoffSeconds(attempts)));
+                pipelineRunRepository.save(pipelineRun);
+            }
+        } catch (Exception ex) {
+            // The lease expires and the task is triggered again.
+            logger.warn("Unable to record the trigger error of task {}: {}", pipelineRun.getTaskId(), ex.getMessage());
+        }
+    }
+
+    private static boolean isRetriable(Exception e) {
+        if (!(e instanceof ODMApiException)) {
+            return true;
+        }
+        HttpStatus status = ((ODMApiException) e).getStatus();
+        return !status.is4xxClientError()
+                || status == HttpStatus.REQUEST_TIMEOUT
+                || status == HttpStatus.TOO_MANY_REQUESTS;
+    }
+
+    private long backoffSeconds(int attempts) {
+        long backoff = (long) pipelineConfiguration.getDispatchBackoffInitialSeconds() << Math.min(attempts - 1, 20);
+        return Math.min(backoff, pipelineConfiguration.getDispatchBackoffMaxSeconds());
+    }
+}
@@ -0,0 +1,169 @@
+package org.opendatamesh.platform.up.executor.gitlabci.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.opendatamesh.platform.up.executor.gitlabci.config.PipelineConfiguration;
+import org.opendatamesh.platform.up.executor.gitlabci.dao.PipelineRun;
+import org.opendatamesh.platform.up.executor.gitlabci.dao.PipelineRunArchive;
+import org.opendatamesh.platform.up.executor.gitlabci.dao.PipelineRunArchiveRepository;
+import org.opendatamesh.platform.up.executor.gitlabci.dao.PipelineRunRepository;
+import org.opendatamesh.platform.up.executor.gitlabci.dao.PipelineRunVariables;
+import org.opendatamesh.platform.up.executor.gitlabci.dao.PipelineRunVariablesRepository;
+import org.opendatamesh.platform.up.executor.gitlabci.resources.client.gitlab.GitlabRunState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.OffsetDateTime;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background job that moves the pipeline runs completed for longer than the configured age (with their variables)
+ * from {@code PIPELINE_RUNS} to {@code PIPELINE_RUNS_ARCHIVE}, so that the table read by the hot paths only holds
+ * the active and the recent runs.
+ * <p>
+ * Runs are moved in batches, oldest first, each one in its own short transaction: the rows of the hot table are
+ * locked only while their batch is moved. A single run of the job moves a bounded number of batches, so that it
+ * does not delay the other scheduled jobs; a backlog is drained by the following runs.
+ * <p>
+ * The status of an archived task is still served, from the archive (see {@link GitlabPipelineService}).
+ */
+@Component
+public class PipelineRunArchiver {
+    private static final Logger logger = LoggerFactory.getLogger(PipelineRunArchiver.class);
+
+    private final PipelineRunRepository pipelineRunRepository;
+    private final PipelineRunVariablesRepository pipelineRunVariablesRepository;
+    private final PipelineRunArchiveRepository pipelineRunArchiveRepository;
+    private final PipelineConfiguration pipelineConfiguration;
+    private final TransactionTemplate transactionTemplate;
+    private final TaskStatusCache taskStatusCache;
+
+    private final Counter archivedRuns;
+    private final Counter failedBatches;
+
+    public PipelineRunArchiver(PipelineRunRepository pipelineRunRepository,
+                               PipelineRunVariablesRepository pipelineRunVariablesRepository,
+                               PipelineRunArchiveRepository pipelineRunArchiveRepository,
+                               PipelineConfiguration pipelineConfiguration,
+                               TransactionTemplate transactionTemplate,
+                               TaskStatusCache taskStatusCache,
+                               MeterRegistry meterRegistry) {
+        this.pipelineRunRepository = pipelineRunRepository;
+        this.pipelineRunVariablesRepository = pipelineRunVariablesRepository;
+        this.pipelineRunArchiveRepository = pipelineRunArchiveRepository;
+        this.pipelineConfiguration = pipelineConfiguration;
+        this.transactionTemplate = transactionTemplate;
+        this.taskStatusCache = taskStatusCache;
+
+        this.archivedRuns = Counter.builder("odm.gitlab.retention.archived")
+                .description("Completed pipeline runs moved to the archive")
+                .register(meterRegistry);
+        this.failedBatches = Counter.builder("odm.gitlab.retention.failures")
+                .description("Batches of pipeline runs that could not be moved to the archive")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(
+            initialDelayString = "${odm.executors.gitlab.pipelines-config.retention.interval}",
+            fixedDelayString = "${odm.executors.gitlab.pipelines-config.retention.interval}",
+            timeUnit = TimeUnit.SECONDS
+    )
+    public void archiveScheduled() {
+        if (Boolean.TRUE.equals(pipelineConfiguration.getRetentionEnabled())) {
+            archiveCompletedRuns(OffsetDateTime.now().minusDays(pipelineConfiguration.getRetentionMaxAgeDays()));
+        }
+    }
+
+    /**
+     * Move to the archive the pipeline runs completed before the given instant, up to the configured number of batches.
+     *
+     * @param completedBefore the instant before which the runs have to be completed.
+     * @return the number of archived pipeline runs.
+     */
+    public int archiveCompletedRuns(OffsetDateTime completedBefore) {
+        long start = System.nanoTime();
+        int batchSize = pipelineConfiguration.getRetentionBatchSize();
+        int archived = 0;
+        int batches = 0;
+        while (batches < pipelineConfiguration.getRetentionMaxBatches()) {
+            int moved;
+            try {
+                moved = archiveBatch(completedBefore, batchSize);
+            } catch (RuntimeException e) {
+                // E.g. another node archived the same runs: the batch is rolled back and retried by the next run.
+                failedBatches.increment();
+                logger.warn("Unable to archive pipeline runs completed before {}: {}", completedBefore, e.getMessage());
+                break;
+            }
+            if (moved == 0) {
+                break;
+            }
+            archived += moved;
+            batches++;
+            if (moved < batchSize) {
+                break;
+            }
+        }
+        if (archived > 0) {
+            logger.info("Archived {} pipeline runs completed before {} in {} batches ({} ms)",
+                    archived, completedBefore, batches, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+        return archived;
+    }
+
+    private int archiveBatch(OffsetDateTime completedBefore, int batchSize) {
+        OffsetDateTime archivedAt = OffsetDateTime.now();
+        List<Long> taskIds = transactionTemplate.execute(transactionStatus -> {
+            List<Long> pipelineRunIds = pipelineRunRepository.findIdsCompletedBefore(
+                    GitlabRunState.terminalStates(), completedBefore, PageRequest.of(0, batchSize)
+            );
+            if (pipelineRunIds.isEmpty()) {
+                return Collections.emptyList();
+            }
+            Map<Long, PipelineRunVariables> variables = new HashMap<>();
+            for (PipelineRunVariables runVariables : pipelineRunVariablesRepository.findAllById(pipelineRunIds)) {
+                variables.put(runVariables.getPipelineRunId(), runVariables);
+            }
+            List<PipelineRunArchive> archives = new ArrayList<>(pipelineRunIds.size());
+            List<Long> archivedTaskIds = new ArrayList<>(pipelineRunIds.size());
+            for (PipelineRun pipelineRun : pipelineRunRepository.findAllById(pipelineRunIds)) {
+                archives.add(toArchive(pipelineRun, variables.get(pipelineRun.getPipelineRunId()), archivedAt));
+                archivedTaskIds.add(pipelineRun.getTaskId());
+            }
+            pipelineRunArchiveRepository.saveAll(archives);
+            pipelineRunVariablesRepository.deleteByPipelineRunIds(pipelineRunIds);
+            pipelineRunRepository.deleteByPipelineRunIds(pipelineRunIds);
+            return archivedTaskIds;
+        });
+        // The cached statuses are still right, but they would keep the archived tasks in memory.
+        taskIds.forEach(taskStatusCache::invalidate);
+        archivedRuns.increment(taskIds.size());
+        return taskIds.size();
+    }
+
+    private static PipelineRunArchive toArchive(PipelineRun pipelineRun, PipelineRunVariables variables, OffsetDateTime archivedAt) {
+        PipelineRunArchive archive = new PipelineRunArchive();
+        archive.setPipelineRunId(pipelineRun.getPipelineRunId());
+        archive.setTaskId(pipelineRun.getTaskId());
+        archive.setRunId(pipelineRun.getRunId());
+        archive.setProject(pipelineRun.getProject());
+        archive.setRef(pipelineRun.getRef());
+        archive.setStatus(pipelineRun.getStatus());
+        archive.setVariables(variables != null ? variables.getVariables() : null);
+        archive.setCreatedAt(pipelineRun.getCreatedAt());
+        archive.setFinishedAt(pipelineRun.getFinishedAt());
+        archive.setGitlabInstanceUrl(pipelineRun.getGitlabInstanceUrl());
+        archive.setCallbackRef(pipelineRun.getCallbackRef());
+        archive.setDispatchStatus(pipelineRun.getDispatchStatus());
+        archive.setDispatchError(pipelineRun.getDispatchError());
+        archive.setPriority(pipelineRun.getPriority());
+        archive.setVersion(pipelineRun.getVersion());
+        archive.setArchivedAt(archivedAt);
+        return archive;
+    }
+}
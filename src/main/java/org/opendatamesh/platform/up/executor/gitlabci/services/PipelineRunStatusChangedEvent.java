@@ -0,0 +1,20 @@
+package org.opendatamesh.platform.up.executor.gitlabci.services;
+
+import lombok.Getter;
+import org.opendatamesh.platform.up.executor.gitlabci.resources.TaskStatus;
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Published after the status of a pipeline run has been saved with a different value.
+ */
+@Getter
+public class PipelineRunStatusChangedEvent extends ApplicationEvent {
+    private final Long taskId;
+    private final TaskStatus taskStatus;
+
+    public PipelineRunStatusChangedEvent(Object source, Long taskId, TaskStatus taskStatus) {
+        super(source);
+        this.taskId = taskId;
+        this.taskStatus = taskStatus;
+    }
+}
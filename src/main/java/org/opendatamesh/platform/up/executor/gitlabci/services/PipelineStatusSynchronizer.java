@@ -0,0 +1,254 @@
+package org.opendatamesh.platform.up.executor.gitlabci.services;
+
+import org.opendatamesh.platform.up.executor.gitlabci.clients.GitlabClientRegistry;
+import org.opendatamesh.platform.up.executor.gitlabci.config.AsyncConfiguration;
+import org.opendatamesh.platform.up.executor.gitlabci.config.PipelineConfiguration;
+import org.opendatamesh.platform.up.executor.gitlabci.dao.PipelineRun;
+import org.opendatamesh.platform.up.executor.gitlabci.dao.PipelineRunRepository;
+import org.opendatamesh.platform.up.executor.gitlabci.resources.client.gitlab.GitlabRunState;
+import org.opendatamesh.platform.up.executor.gitlabci.utils.ParallelTasks;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZonedDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background job that keeps the status of the active pipeline runs aligned with GitLab.
+ * <p>
+ * The status endpoint reads the pipeline runs from the database, so the traffic towards GitLab depends
+ * on the number of active runs and not on how often the DevOps module asks for their status.
+ * Runs updated through GitLab webhooks are polled only as a fallback, when no event arrives for a while.
+ * <p>
+ * In batch mode, the active runs are grouped by GitLab instance and project, and each group is refreshed
+ * with the pipelines updated since the previous synchronization of the group.
+ * <p>
+ * Runs (or groups) are refreshed concurrently on the pipeline executor, or on the event loop of the
+ * non-blocking client when it is enabled.
+ */
+@Component
+public class PipelineStatusSynchronizer {
+    private static final Logger logger = LoggerFactory.getLogger(PipelineStatusSynchronizer.class);
+
+    /**
+     * Margin subtracted from the last synchronization instant, to tolerate clock skew with the GitLab server.
+     */
+    private static final long CLOCK_SKEW_SECONDS = 60;
+
+    private final PipelineRunRepository pipelineRunRepository;
+    private final GitlabPipelineService pipelineService;
+    private final PipelineConfiguration pipelineConfiguration;
+    private final Executor pipelineTaskExecutor;
+    private final GitlabClientRegistry gitlabClientRegistry;
+    private final PollingSchedule pollingSchedule;
+
+    private final Map<ProjectKey, ZonedDateTime> lastBatchSync = new ConcurrentHashMap<>();
+
+    public PipelineStatusSynchronizer(PipelineRunRepository pipelineRunRepository,
+                                      GitlabPipelineService pipelineService,
+                                      PipelineConfiguration pipelineConfiguration,
+                                      @Qualifier(AsyncConfiguration.PIPELINE_TASK_EXECUTOR) Executor pipelineTaskExecutor,
+                                      GitlabClientRegistry gitlabClientRegistry,
+                                      PollingSchedule pollingSchedule) {
+        this.pipelineRunRepository = pipelineRunRepository;
+        this.pipelineService = pipelineService;
+        this.pipelineConfiguration = pipelineConfiguration;
+        this.pipelineTaskExecutor = pipelineTaskExecutor;
+        this.gitlabClientRegistry = gitlabClientRegistry;
+        this.pollingSchedule = pollingSchedule;
+    }
+
+    /**
+     * Refresh the pipeline runs that are not in a terminal state, did not receive any webhook event
+     * within the configured fallback window and are due according to the {@link PollingSchedule}.
+     * The active runs (or projects, in batch mode) are loaded and refreshed a page at a time.
+     */
+    @Scheduled(
+            initialDelayString = "${odm.executors.gitlab.pipelines-config.polling.interval}",
+            fixedDelayString = "${odm.executors.gitlab.pipelines-config.polling.interval}",
+            timeUnit = TimeUnit.SECONDS
+    )
+    public void synchronizeActiveRuns() {
+        OffsetDateTime eventThreshold = OffsetDateTime.now().minusSeconds(pipelineConfiguration.getWebhookFallbackWindowSeconds());
+        if (Boolean.TRUE.equals(pipelineConfiguration.getPollingBatchEnabled())) {
+            synchronizeInBatch(eventThreshold);
+        } else {
+            synchronizeOneByOne(eventThreshold);
+        }
+    }
+
+    private void synchronizeOneByOne(OffsetDateTime eventThreshold) {
+        int fetchSize = pipelineConfiguration.getPollingFetchSize();
+        Set<Long> activeTaskIds = new HashSet<>();
+        int dueCount = 0;
+        Long after = 0L;
+        List<PipelineRun> activeRuns;
+        do {
+            activeRuns = pipelineRunRepository.findByStatusInWithoutEventsSince(
+                    GitlabRunState.activeStates(), eventThreshold, after, PageRequest.of(0, fetchSize)
+            );
+            Instant now = Instant.now();
+            List<PipelineRun> dueRuns = new ArrayList<>();
+            for (PipelineRun pipelineRun : activeRuns) {
+                activeTaskIds.add(pipelineRun.getTaskId());
+                if (pollingSchedule.isDue(pipelineRun, now)) {
+                    dueRuns.add(pipelineRun);
+                }
+            }
+            refreshRuns(dueRuns);
+            dueCount += dueRuns.size();
+            if (!activeRuns.isEmpty()) {
+                after = activeRuns.get(activeRuns.size() - 1).getPipelineRunId();
+            }
+        } while (activeRuns.size() == fetchSize);
+        pollingSchedule.retainAll(activeTaskIds);
+        logger.debug("Synchronized {} of {} active pipeline runs", dueCount, activeTaskIds.size());
+    }
+
+    private void refreshRuns(List<PipelineRun> activeRuns) {
+        if (activeRuns.isEmpty()) {
+            return;
+        }
+        if (gitlabClientRegistry.isReactive()) {
+            synchronizeReactive(activeRuns);
+            return;
+        }
+        List<Runnable> refreshes = new ArrayList<>(activeRuns.size());
+        for (PipelineRun pipelineRun : activeRuns) {
+            refreshes.add(() -> {
+                try {
+                    pollingSchedule.recordPoll(pipelineService.refreshPipelineRun(pipelineRun));
+                } catch (Exception e) {
+                    pollingSchedule.recordPoll(pipelineRun);
+                    logger.warn("Unable to synchronize pipeline run of task {}: {}", pipelineRun.getTaskId(), e.getMessage());
+                }
+            });
+        }
+        ParallelTasks.runAll(pipelineTaskExecutor, refreshes);
+    }
+
+    /**
+     * Refresh all the runs concurrently through the non-blocking client: the GitLab calls share the event loop
+     * threads and the scheduler thread only waits for the whole round to complete.
+     */
+    private void synchronizeReactive(List<PipelineRun> activeRuns) {
+        Flux.fromIterable(activeRuns)
+                .flatMap(pipelineRun -> pipelineService.refreshPipelineRunReactive(pipelineRun)
+                        .doOnNext(pollingSchedule::recordPoll)
+                        .onErrorResume(e -> {
+                            pollingSchedule.recordPoll(pipelineRun);
+                            logger.warn("Unable to synchronize pipeline run of task {}: {}", pipelineRun.getTaskId(), e.getMessage());
+                            return Mono.empty();
+                        }))
+                .then()
+                .block();
+    }
+
+    private void synchronizeInBatch(OffsetDateTime eventThreshold) {
+        int fetchSize = pipelineConfiguration.getPollingFetchSize();
+        Set<Long> activeTaskIds = new HashSet<>();
+        Set<ProjectKey> activeProjects = new HashSet<>();
+        int dueCount = 0;
+        ProjectKey after = new ProjectKey("", "");
+        List<PipelineRunRepository.ProjectRef> projects;
+        do {
+            projects = pipelineRunRepository.findProjectsByStatusInWithoutEventsSince(
+                    GitlabRunState.activeStates(), eventThreshold, after.gitlabInstanceUrl, after.project, PageRequest.of(0, fetchSize)
+            );
+            // A project is listed when at least one of its runs is due; the list refreshes all of them.
+            Instant now = Instant.now();
+            List<Runnable> refreshes = new ArrayList<>();
+            for (PipelineRunRepository.ProjectRef project : projects) {
+                ProjectKey key = new ProjectKey(project.getGitlabInstanceUrl(), project.getProject());
+                List<PipelineRun> pipelineRuns = pipelineRunRepository.findByProjectAndStatusInWithoutEventsSince(
+                        key.gitlabInstanceUrl, key.project, GitlabRunState.activeStates(), eventThreshold
+                );
+                activeProjects.add(key);
+                pipelineRuns.forEach(pipelineRun -> activeTaskIds.add(pipelineRun.getTaskId()));
+                if (pipelineRuns.stream().anyMatch(pipelineRun -> pollingSchedule.isDue(pipelineRun, now))) {
+                    refreshes.add(() -> synchronizeProject(key, pipelineRuns));
+                }
+                after = key;
+            }
+            ParallelTasks.runAll(pipelineTaskExecutor, refreshes);
+            dueCount += refreshes.size();
+        } while (projects.size() == fetchSize);
+        pollingSchedule.retainAll(activeTaskIds);
+        lastBatchSync.keySet().retainAll(activeProjects);
+        logger.debug("Synchronized {} of {} projects with active pipeline runs", dueCount, activeProjects.size());
+    }
+
+    private void synchronizeProject(ProjectKey key, List<PipelineRun> pipelineRuns) {
+        ZonedDateTime syncStartedAt = ZonedDateTime.now();
+        ZonedDateTime updatedAfter = lastBatchSync.containsKey(key)
+                ? lastBatchSync.get(key)
+                : oldestCreation(pipelineRuns);
+        try {
+            int updated = pipelineService.refreshPipelineRuns(
+                    key.gitlabInstanceUrl,
+                    key.project,
+                    pipelineRuns,
+                    updatedAfter != null ? updatedAfter.minusSeconds(CLOCK_SKEW_SECONDS) : null
+            );
+            lastBatchSync.put(key, syncStartedAt);
+            pipelineRuns.forEach(pollingSchedule::recordPoll);
+            logger.debug("Project {} on {}: {} of {} active runs changed status",
+                    key.project, key.gitlabInstanceUrl, updated, pipelineRuns.size());
+        } catch (Exception e) {
+            pipelineRuns.forEach(pollingSchedule::recordPoll);
+            logger.warn("Unable to synchronize pipeline runs of project {} on {}: {}",
+                    key.project, key.gitlabInstanceUrl, e.getMessage());
+        }
+    }
+
+    /**
+     * @param pipelineRuns the pipeline runs.
+     * @return the creation instant of the oldest pipeline run, null if unknown.
+     */
+    private static ZonedDateTime oldestCreation(List<PipelineRun> pipelineRuns) {
+        OffsetDateTime oldest = null;
+        for (PipelineRun pipelineRun : pipelineRuns) {
+            if (pipelineRun.getCreatedAt() == null) {
+                return null;
+            }
+            if (oldest == null || pipelineRun.getCreatedAt().isBefore(oldest)) {
+                oldest = pipelineRun.getCreatedAt();
+            }
+        }
+        return oldest != null ? oldest.toZonedDateTime() : null;
+    }
+
+    private static class ProjectKey {
+        private final String gitlabInstanceUrl;
+        private final String project;
+
+        private ProjectKey(String gitlabInstanceUrl, String project) {
+            this.gitlabInstanceUrl = gitlabInstanceUrl;
+            this.project = project;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            ProjectKey that = (ProjectKey) o;
+            return Objects.equals(gitlabInstanceUrl, that.gitlabInstanceUrl) && Objects.equals(project, that.project);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(gitlabInstanceUrl, project);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package org.opendatamesh.platform.up.executor.gitlabci.services;
+
+import lombok.Data;
+import org.opendatamesh.platform.up.executor.gitlabci.resources.ConfigurationResource;
+import org.opendatamesh.platform.up.executor.gitlabci.resources.TaskResource;
+import org.opendatamesh.platform.up.executor.gitlabci.resources.TemplateResource;
+
+/**
+ * A task of a batch submission, with its parsed template and configuration and, once processed, its error.
+ */
+@Data
+public class PipelineSubmission {
+    private final TaskResource task;
+    private TemplateResource template;
+    private ConfigurationResource configuration;
+    private String gitlabInstanceUrl;
+
+    /**
+     * True if the task has been accepted and waits for its turn to be triggered.
+     */
+    private boolean queued;
+
+    /**
+     * The error of the task, null if the pipeline has been triggered (or not processed yet).
+     */
+    private RuntimeException error;
+}
@@ -0,0 +1,106 @@
+package org.opendatamesh.platform.up.executor.gitlabci.services;
+
+import lombok.RequiredArgsConstructor;
+import org.opendatamesh.platform.up.executor.gitlabci.config.PollingBackoffConfiguration;
+import org.opendatamesh.platform.up.executor.gitlabci.dao.PipelineRun;
+import org.opendatamesh.platform.up.executor.gitlabci.resources.client.gitlab.GitlabRunState;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Keeps, for each active pipeline run, the instant of its next status poll.
+ * <p>
+ * The delay between two polls grows exponentially while the status does not change, and restarts from the
+ * initial delay as soon as it changes. Queued and running pipelines follow separate curves, and every delay is
+ * randomized so that runs created together do not keep polling GitLab at the same time.
+ * Runs in a terminal state are never polled again.
+ */
+@Component
+@RequiredArgsConstructor
+public class PollingSchedule {
+
+    private final PollingBackoffConfiguration backoffConfiguration;
+
+    private final Map<Long, NextPoll> nextPolls = new ConcurrentHashMap<>();
+
+    /**
+     * @param pipelineRun the pipeline run.
+     * @param now         the current instant.
+     * @return true if the pipeline run has to be polled.
+     */
+    public boolean isDue(PipelineRun pipelineRun, Instant now) {
+        if (pipelineRun.getStatus() != null && pipelineRun.getStatus().isTerminal()) {
+            return false;
+        }
+        NextPoll nextPoll = nextPolls.get(pipelineRun.getTaskId());
+        return nextPoll == null || !now.isBefore(nextPoll.at);
+    }
+
+    /**
+     * Schedule the next poll of a pipeline run, after it has been polled (successfully or not).
+     *
+     * @param pipelineRun the pipeline run, with the status observed by the poll.
+     */
+    public void recordPoll(PipelineRun pipelineRun) {
+        GitlabRunState status = pipelineRun.getStatus();
+        if (status != null && status.isTerminal()) {
+            nextPolls.remove(pipelineRun.getTaskId());
+            return;
+        }
+        nextPolls.compute(pipelineRun.getTaskId(), (taskId, previous) -> {
+            int attempt = previous != null && previous.status == status ? previous.attempt + 1 : 0;
+            Duration delay = delay(pipelineRun.getGitlabInstanceUrl(), status, attempt);
+            return new NextPoll(status, attempt, Instant.now().plus(delay));
+        });
+    }
+
+    /**
+     * Forget the pipeline runs that are no longer active.
+     *
+     * @param activeTaskIds the task ids of the currently active pipeline runs.
+     */
+    public void retainAll(Set<Long> activeTaskIds) {
+        nextPolls.keySet().retainAll(activeTaskIds);
+    }
+
+    Duration delay(String gitlabInstanceUrl, GitlabRunState status, int attempt) {
+        PollingBackoffConfiguration.InstanceBackoff instanceBackoff = backoffConfiguration.getInstances().get(gitlabInstanceUrl);
+        boolean running = status == GitlabRunState.running;
+        PollingBackoffConfiguration.Curve defaults = running ? backoffConfiguration.getRunning() : backoffConfiguration.getQueued();
+        PollingBackoffConfiguration.Curve override = instanceBackoff == null ? null
+                : running ? instanceBackoff.getRunning() : instanceBackoff.getQueued();
+
+        int initial = valueOf(override == null ? null : override.getInitial(), defaults.getInitial());
+        int max = valueOf(override == null ? null : override.getMax(), defaults.getMax());
+        double multiplier = valueOf(override == null ? null : override.getMultiplier(), defaults.getMultiplier());
+        double jitter = valueOf(instanceBackoff == null ? null : instanceBackoff.getJitter(), backoffConfiguration.getJitter());
+
+        double seconds = Math.min(max, initial * Math.pow(multiplier, attempt));
+        if (jitter > 0) {
+            seconds *= 1 + ThreadLocalRandom.current().nextDouble(-jitter, jitter);
+        }
+        return Duration.ofMillis((long) (seconds * 1000));
+    }
+
+    private static <T> T valueOf(T override, T defaultValue) {
+        return override != null ? override : defaultValue;
+    }
+
+    private static class NextPoll {
+        private final GitlabRunState status;
+        private final int attempt;
+        private final Instant at;
+
+        private NextPoll(GitlabRunState status, int attempt, Instant at) {
+            this.status = status;
+            this.attempt = attempt;
+            this.at = at;
+        }
+    }
+}
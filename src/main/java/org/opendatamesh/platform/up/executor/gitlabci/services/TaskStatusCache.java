@@ -0,0 +1,103 @@
+package org.opendatamesh.platform.up.executor.gitlabci.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.opendatamesh.platform.up.executor.gitlabci.config.PipelineConfiguration;
+import org.opendatamesh.platform.up.executor.gitlabci.utils.ExpiringCache;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Cache of the task statuses served by the status endpoint.
+ * <p>
+ * A terminal status never changes, so it is kept until evicted by the size limit. The status of an active task is
+ * kept for a short time to live, as a safety net: the service updates the cached status whenever it saves a new one.
+ */
+@Component
+public class TaskStatusCache {
+
+    private final ExpiringCache<Long, VersionedTaskStatus> statuses;
+    private final Duration activeTtl;
+
+    private final Counter hits;
+    private final Counter misses;
+
+    public TaskStatusCache(PipelineConfiguration pipelineConfiguration, MeterRegistry meterRegistry) {
+        this.statuses = new ExpiringCache<>(pipelineConfiguration.getStatusCacheMaxSize());
+        this.activeTtl = Duration.ofSeconds(pipelineConfiguration.getStatusCacheActiveTtlSeconds());
+
+        this.hits = Counter.builder("odm.gitlab.status.cache.requests")
+                .tag("result", "hit")
+                .description("Status reads served from cache")
+                .register(meterRegistry);
+        this.misses = Counter.builder("odm.gitlab.status.cache.requests")
+                .tag("result", "miss")
+                .description("Status reads forwarded to the database")
+                .register(meterRegistry);
+        Gauge.builder("odm.gitlab.status.cache.size", statuses, ExpiringCache::size)
+                .description("Number of cached task statuses")
+                .register(meterRegistry);
+        FunctionCounter.builder("odm.gitlab.status.cache.evictions", statuses, ExpiringCache::evictionCount)
+                .description("Task statuses removed from cache because expired or because of the size limit")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @param taskId the id of the task.
+     * @return the cached status of the task, null if not cached.
+     */
+    public VersionedTaskStatus get(Long taskId) {
+        VersionedTaskStatus status = statuses.get(taskId);
+        if (status != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return status;
+    }
+
+    /**
+     * Store the status just saved for a task, replacing the cached one.
+     *
+     * @param taskId the id of the task.
+     * @param status the new status.
+     */
+    public void put(Long taskId, VersionedTaskStatus status) {
+        statuses.put(taskId, status, ttl(status));
+    }
+
+    /**
+     * Store the status just read for a task, unless a newer status has been saved in the meantime.
+     *
+     * @param taskId the id of the task.
+     * @param status the status read.
+     */
+    public void putIfAbsent(Long taskId, VersionedTaskStatus status) {
+        statuses.putIfAbsent(taskId, status, ttl(status));
+    }
+
+    /**
+     * Remove the cached status of a task if it differs from the status just read from the database,
+     * e.g. because the new status was saved by another instance of the executor.
+     *
+     * @param taskId the id of the task.
+     * @param status the status read from the database.
+     */
+    public void invalidateIfOutdated(Long taskId, VersionedTaskStatus status) {
+        VersionedTaskStatus cachedStatus = statuses.get(taskId);
+        if (cachedStatus != null && !cachedStatus.getETag().equals(status.getETag())) {
+            statuses.invalidate(taskId);
+        }
+    }
+
+    public void invalidate(Long taskId) {
+        statuses.invalidate(taskId);
+    }
+
+    private Duration ttl(VersionedTaskStatus status) {
+        return status.getStatus().isTerminal() ? null : activeTtl;
+    }
+}
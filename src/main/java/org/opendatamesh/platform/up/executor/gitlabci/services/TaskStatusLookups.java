@@ -0,0 +1,69 @@
+package org.opendatamesh.platform.up.executor.gitlabci.services;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.opendatamesh.platform.up.executor.gitlabci.dao.PipelineRun;
+import org.opendatamesh.platform.up.executor.gitlabci.utils.SingleFlight;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces the concurrent status lookups of the same task.
+ * <p>
+ * Callers asking for the status of a task while a read (or a GitLab refresh) of the same task is in progress
+ * share its outcome, so a burst of requests for one task costs a single query and a single GitLab call.
+ * The share of coalesced calls is exported as {@code odm.gitlab.status.lookups} with {@code result=coalesced}.
+ */
+@Component
+public class TaskStatusLookups {
+
+    private final SingleFlight<Long, VersionedTaskStatus> reads = new SingleFlight<>();
+    private final SingleFlight<Long, PipelineRun> refreshes = new SingleFlight<>();
+
+    public TaskStatusLookups(MeterRegistry meterRegistry) {
+        register(meterRegistry, "read", reads);
+        register(meterRegistry, "refresh", refreshes);
+    }
+
+    /**
+     * @param taskId the id of the task.
+     * @param reader reads the status of the task.
+     * @return the status of the task.
+     */
+    public VersionedTaskStatus read(Long taskId, Supplier<VersionedTaskStatus> reader) {
+        return reads.execute(taskId, reader);
+    }
+
+    /**
+     * @param taskId    the id of the task.
+     * @param refresher refreshes the pipeline run of the task from GitLab.
+     * @return the refreshed pipeline run.
+     */
+    public PipelineRun refresh(Long taskId, Supplier<PipelineRun> refresher) {
+        return refreshes.execute(taskId, refresher);
+    }
+
+    /**
+     * @param taskId    the id of the task.
+     * @param refresher starts the refresh of the pipeline run of the task from GitLab.
+     * @return the refreshed pipeline run.
+     */
+    public CompletableFuture<PipelineRun> refreshAsync(Long taskId, Supplier<CompletableFuture<PipelineRun>> refresher) {
+        return refreshes.executeAsync(taskId, refresher);
+    }
+
+    private static void register(MeterRegistry meterRegistry, String operation, SingleFlight<Long, ?> singleFlight) {
+        FunctionCounter.builder("odm.gitlab.status.lookups", singleFlight, SingleFlight::executedCount)
+                .tag("operation", operation)
+                .tag("result", "executed")
+                .description("Status lookups actually run")
+                .register(meterRegistry);
+        FunctionCounter.builder("odm.gitlab.status.lookups", singleFlight, SingleFlight::coalescedCount)
+                .tag("operation", operation)
+                .tag("result", "coalesced")
+                .description("Status lookups served by a lookup of the same task already in progress")
+                .register(meterRegistry);
+    }
+}
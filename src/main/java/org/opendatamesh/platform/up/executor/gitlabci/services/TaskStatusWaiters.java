@@ -0,0 +1,145 @@
+package org.opendatamesh.platform.up.executor.gitlabci.services;
+
+import org.opendatamesh.platform.up.executor.gitlabci.resources.TaskStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Registry of the pending long-poll status requests.
+ * <p>
+ * A waiting request does not hold any thread: its {@link DeferredResult} is completed by the thread that saves
+ * the new status of the task, or by the servlet container when the wait expires.
+ * <p>
+ * A status saved by another instance of the executor (e.g. a webhook event received by another replica) publishes
+ * no event here: the awaited tasks are also re-read periodically, so such a change completes the waiting requests
+ * within the recheck interval.
+ */
+@Component
+public class TaskStatusWaiters {
+    private static final Logger logger = LoggerFactory.getLogger(TaskStatusWaiters.class);
+
+    private final Map<Long, Set<Waiter>> waiters = new ConcurrentHashMap<>();
+
+    /**
+     * Create a result completed as soon as the status of the task differs from the given one.
+     *
+     * @param taskId        the id of the task.
+     * @param currentStatus the status of the task known by the caller.
+     * @param waitMillis    the maximum wait, in milliseconds.
+     * @param statusReader  reads the stored status of the task, on recheck, when the wait expires
+     *                      (or to close the registration race).
+     * @return the deferred status.
+     */
+    public DeferredResult<TaskStatus> await(Long taskId, TaskStatus currentStatus, long waitMillis, Supplier<TaskStatus> statusReader) {
+        return await(taskId, currentStatus, waitMillis, statusReader, Function.identity());
+    }
+
+    /**
+     * Create a result completed as soon as the status of the task differs from the given one,
+     * with a response built from the new status.
+     *
+     * @param taskId        the id of the task.
+     * @param currentStatus the status of the task known by the caller.
+     * @param waitMillis    the maximum wait, in milliseconds.
+     * @param statusReader  reads the stored status of the task, on recheck, when the wait expires
+     *                      (or to close the registration race).
+     * @param response      builds the response from the status.
+     * @param <T>           the type of the response.
+     * @return the deferred response.
+     */
+    public <T> DeferredResult<T> await(Long taskId, TaskStatus currentStatus, long waitMillis,
+                                       Supplier<TaskStatus> statusReader, Function<TaskStatus, T> response) {
+        DeferredResult<T> result = new DeferredResult<>(waitMillis);
+        Waiter waiter = new Waiter(status -> {
+            if (!result.isSetOrExpired()) {
+                result.setResult(response.apply(status));
+            }
+        }, currentStatus, statusReader);
+        result.onTimeout(() -> result.setResult(response.apply(statusReader.get())));
+        result.onCompletion(() -> remove(taskId, waiter));
+        waiters.computeIfAbsent(taskId, k -> ConcurrentHashMap.newKeySet()).add(waiter);
+
+        // The status may have changed between the first read and the registration.
+        TaskStatus latestStatus = statusReader.get();
+        if (latestStatus != currentStatus) {
+            waiter.complete.accept(latestStatus);
+        }
+        return result;
+    }
+
+    @EventListener
+    public void onStatusChanged(PipelineRunStatusChangedEvent event) {
+        Set<Waiter> taskWaiters = waiters.get(event.getTaskId());
+        if (taskWaiters != null) {
+            complete(taskWaiters, event.getTaskStatus());
+        }
+    }
+
+    /**
+     * Re-read the status of the awaited tasks, to complete the requests waiting for a status saved elsewhere.
+     */
+    @Scheduled(
+            initialDelayString = "${odm.executors.gitlab.pipelines-config.status.recheck-interval}",
+            fixedDelayString = "${odm.executors.gitlab.pipelines-config.status.recheck-interval}",
+            timeUnit = TimeUnit.SECONDS
+    )
+    public void recheckWaitingTasks() {
+        for (Map.Entry<Long, Set<Waiter>> entry : waiters.entrySet()) {
+            Waiter anyWaiter = entry.getValue().stream().findAny().orElse(null);
+            if (anyWaiter == null) {
+                continue;
+            }
+            try {
+                complete(entry.getValue(), anyWaiter.statusReader.get());
+            } catch (RuntimeException e) {
+                logger.warn("Unable to recheck the status of task {}: {}", entry.getKey(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * @return the number of requests waiting for a status change.
+     */
+    public int size() {
+        return waiters.values().stream().mapToInt(Set::size).sum();
+    }
+
+    private static void complete(Set<Waiter> taskWaiters, TaskStatus status) {
+        for (Waiter waiter : taskWaiters) {
+            if (waiter.initialStatus != status) {
+                waiter.complete.accept(status);
+            }
+        }
+    }
+
+    private void remove(Long taskId, Waiter waiter) {
+        waiters.computeIfPresent(taskId, (k, taskWaiters) -> {
+            taskWaiters.remove(waiter);
+            return taskWaiters.isEmpty() ? null : taskWaiters;
+        });
+    }
+
+    private static class Waiter {
+        private final Consumer<TaskStatus> complete;
+        private final TaskStatus initialStatus;
+        private final Supplier<TaskStatus> statusReader;
+
+        private Waiter(Consumer<TaskStatus> complete, TaskStatus initialStatus, Supplier<TaskStatus> statusReader) {
+            this.complete = complete;
+            this.initialStatus = initialStatus;
+            this.statusReader = statusReader;
+        }
+    }
+}
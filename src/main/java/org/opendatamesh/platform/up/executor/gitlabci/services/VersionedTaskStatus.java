@@ -0,0 +1,20 @@
+package org.opendatamesh.platform.up.executor.gitlabci.services;
+
+import lombok.Data;
+import org.opendatamesh.platform.up.executor.gitlabci.resources.TaskStatus;
+
+/**
+ * Status of a task with the version of its pipeline run, identifying a representation of the status.
+ */
+@Data
+public class VersionedTaskStatus {
+    private final TaskStatus status;
+    private final Long version;
+
+    /**
+     * @return the strong entity tag of the status, changing whenever the pipeline run is updated.
+     */
+    public String getETag() {
+        return "\"" + (version != null ? version : 0) + "-" + status + "\"";
+    }
+}
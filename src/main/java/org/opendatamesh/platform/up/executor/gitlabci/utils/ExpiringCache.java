@@ -0,0 +1,161 @@
+package org.opendatamesh.platform.up.executor.gitlabci.utils;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded, in-memory cache with a per-entry time to live.
+ * <p>
+ * When the maximum size is reached, the least recently used entry is evicted.
+ * Expired entries are removed lazily, when they are read.
+ * <p>
+ * Values loaded outside the cache can be stored with {@link #putIfVersion(Object, Object, Duration, long)}:
+ * the value is discarded if the cache was invalidated while it was being loaded. A single counter tracks the
+ * invalidations of all the keys, so that invalidating many keys costs no memory; the price is that a load
+ * overlapping the invalidation of another key is discarded too, and simply loaded again at the next read.
+ *
+ * @param <K> the type of the keys.
+ * @param <V> the type of the cached values.
+ */
+public class ExpiringCache<K, V> {
+
+    private final int maxSize;
+    private final LinkedHashMap<K, Entry<V>> entries;
+    private final AtomicLong evictionCount = new AtomicLong();
+    private long version;
+
+    public ExpiringCache(int maxSize) {
+        this.maxSize = maxSize;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                if (size() > ExpiringCache.this.maxSize) {
+                    evictionCount.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * @param key the key.
+     * @return the entry associated with the key, or null if missing or expired.
+     */
+    public synchronized Entry<V> getEntry(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry != null && entry.isExpired()) {
+            entries.remove(key);
+            evictionCount.incrementAndGet();
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * @param key the key.
+     * @return the value associated with the key, or null if missing or expired.
+     */
+    public V get(K key) {
+        Entry<V> entry = getEntry(key);
+        return entry != null ? entry.getValue() : null;
+    }
+
+    /**
+     * Add or replace an entry.
+     *
+     * @param key   the key.
+     * @param value the value.
+     * @param ttl   the time to live of the entry, null if the entry never expires.
+     */
+    public synchronized void put(K key, V value, Duration ttl) {
+        entries.put(key, new Entry<>(value, ttl != null ? Instant.now().plus(ttl) : null));
+    }
+
+    /**
+     * Add an entry, unless a valid entry already exists for the key.
+     *
+     * @param key   the key.
+     * @param value the value.
+     * @param ttl   the time to live of the entry, null if the entry never expires.
+     */
+    public synchronized void putIfAbsent(K key, V value, Duration ttl) {
+        if (getEntry(key) == null) {
+            put(key, value, ttl);
+        }
+    }
+
+    /**
+     * Add or replace an entry, unless the cache was invalidated after the given version was read.
+     *
+     * @param key     the key.
+     * @param value   the value.
+     * @param ttl     the time to live of the entry, null if the entry never expires.
+     * @param version the version of the cache read with {@link #version()} before loading the value.
+     * @return true if the entry was stored.
+     */
+    public synchronized boolean putIfVersion(K key, V value, Duration ttl, long version) {
+        if (this.version != version) {
+            return false;
+        }
+        put(key, value, ttl);
+        return true;
+    }
+
+    /**
+     * @return the version of the cache, which changes every time a key (or the whole cache) is invalidated.
+     */
+    public synchronized long version() {
+        return version;
+    }
+
+    public synchronized void invalidate(K key) {
+        entries.remove(key);
+        version++;
+    }
+
+    public synchronized void invalidateAll() {
+        entries.clear();
+        version++;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return the number of entries removed because of the size limit or of their expiration.
+     */
+    public long evictionCount() {
+        return evictionCount.get();
+    }
+
+    public static class Entry<V> {
+        private final V value;
+        private final Instant expiresAt;
+
+        private Entry(V value, Instant expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+
+        public V getValue() {
+            return value;
+        }
+
+        public boolean isExpired() {
+            return expiresAt != null && !Instant.now().isBefore(expiresAt);
+        }
+
+        /**
+         * @param window the time window.
+         * @return true if the entry expires within the given time window.
+         */
+        public boolean expiresWithin(Duration window) {
+            return expiresAt != null && !Instant.now().plus(window).isBefore(expiresAt);
+        }
+    }
+}
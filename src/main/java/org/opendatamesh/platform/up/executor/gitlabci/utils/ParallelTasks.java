@@ -0,0 +1,36 @@
+package org.opendatamesh.platform.up.executor.gitlabci.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Helper to run independent blocking tasks concurrently on an executor.
+ */
+public class ParallelTasks {
+
+    private ParallelTasks() {
+    }
+
+    /**
+     * Run all the tasks on the executor and wait for their completion.
+     * A task rejected by a saturated executor runs on the calling thread, which slows down the submission
+     * of the following tasks instead of failing them.
+     * Tasks are expected to handle their own exceptions.
+     *
+     * @param executor the executor.
+     * @param tasks    the tasks to be run.
+     */
+    public static void runAll(Executor executor, List<Runnable> tasks) {
+        List<CompletableFuture<Void>> futures = new ArrayList<>(tasks.size());
+        for (Runnable task : tasks) {
+            try {
+                futures.add(CompletableFuture.runAsync(task, executor));
+            } catch (RuntimeException e) {
+                task.run();
+            }
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+    }
+}
@@ -0,0 +1,100 @@
+package org.opendatamesh.platform.up.executor.gitlabci.utils;
+
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.DefaultResponseErrorHandler;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Factory of {@link RestTemplate} instances backed by a bounded, keep-alive connection pool.
+ * <p>
+ * The templates created by {@link #create(HttpComponentsClientHttpRequestFactory)} never throw on 4xx/5xx responses:
+ * callers inspect the returned status code, as they used to do with {@code TestRestTemplate}.
+ */
+public class RestTemplateFactory {
+
+    private RestTemplateFactory() {
+    }
+
+    /**
+     * Create a pooled request factory.
+     *
+     * @param connectTimeoutMillis the connect timeout, in milliseconds.
+     * @param readTimeoutMillis    the read timeout, in milliseconds.
+     * @param maxConnections       the maximum number of pooled connections.
+     * @param keepAliveSeconds     the maximum time an idle connection is kept alive.
+     * @param connectionTtlSeconds the maximum lifetime of a connection, 0 (or less) for no limit.
+     * @return the request factory. It must be destroyed when no longer used to release the pool.
+     */
+    public static HttpComponentsClientHttpRequestFactory createPooledRequestFactory(int connectTimeoutMillis,
+                                                                                   int readTimeoutMillis,
+                                                                                   int maxConnections,
+                                                                                   int keepAliveSeconds,
+                                                                                   int connectionTtlSeconds) {
+        // The time to live bounds the whole life of a connection (e.g. to follow DNS changes), whereas idle
+        // connections are closed after the keep-alive by the evictor below.
+        PoolingHttpClientConnectionManager connectionManager =
+                new PoolingHttpClientConnectionManager(connectionTtlSeconds, TimeUnit.SECONDS);
+        connectionManager.setMaxTotal(maxConnections);
+        connectionManager.setDefaultMaxPerRoute(maxConnections);
+
+        long maxKeepAliveMillis = TimeUnit.SECONDS.toMillis(keepAliveSeconds);
+        CloseableHttpClient httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setKeepAliveStrategy((response, context) -> {
+                    long serverKeepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+                    return serverKeepAlive > 0 ? Math.min(serverKeepAlive, maxKeepAliveMillis) : maxKeepAliveMillis;
+                })
+                .evictExpiredConnections()
+                .evictIdleConnections(keepAliveSeconds, TimeUnit.SECONDS)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectTimeout(connectTimeoutMillis)
+                        .setConnectionRequestTimeout(connectTimeoutMillis)
+                        .setSocketTimeout(readTimeoutMillis)
+                        .build())
+                .build();
+
+        HttpComponentsClientHttpRequestFactory requestFactory = new HttpComponentsClientHttpRequestFactory(httpClient);
+        requestFactory.setConnectTimeout(connectTimeoutMillis);
+        requestFactory.setReadTimeout(readTimeoutMillis);
+        return requestFactory;
+    }
+
+    /**
+     * Create a {@link RestTemplate} on top of the given request factory.
+     *
+     * @param requestFactory the (pooled) request factory.
+     * @return the rest template.
+     */
+    public static RestTemplate create(HttpComponentsClientHttpRequestFactory requestFactory) {
+        RestTemplate restTemplate = new RestTemplate(requestFactory);
+        restTemplate.setErrorHandler(new NoOpResponseErrorHandler());
+        return restTemplate;
+    }
+
+    /**
+     * Create a {@link RestTemplate} on top of the given request factory, throwing a
+     * {@link org.springframework.web.client.RestClientResponseException} on 4xx/5xx responses instead of reading
+     * the error body as the expected response type.
+     *
+     * @param requestFactory the (pooled) request factory.
+     * @return the rest template.
+     */
+    public static RestTemplate createRaisingErrors(HttpComponentsClientHttpRequestFactory requestFactory) {
+        return new RestTemplate(requestFactory);
+    }
+
+    private static class NoOpResponseErrorHandler extends DefaultResponseErrorHandler {
+        @Override
+        public boolean hasError(ClientHttpResponse response) {
+            return false;
+        }
+    }
+}
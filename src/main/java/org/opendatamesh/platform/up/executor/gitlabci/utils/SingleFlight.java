@@ -0,0 +1,108 @@
+package org.opendatamesh.platform.up.executor.gitlabci.utils;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Deduplicates concurrent executions of the same operation.
+ * <p>
+ * The first caller for a key runs the operation, the callers arriving while it is in progress wait for
+ * its outcome (value or exception) instead of running it again. Nothing is kept once the operation completes.
+ *
+ * @param <K> the type of the keys.
+ * @param <V> the type of the results.
+ */
+public class SingleFlight<K, V> {
+
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong executedCount = new AtomicLong();
+    private final AtomicLong coalescedCount = new AtomicLong();
+
+    /**
+     * Run the operation on the calling thread, or wait for the one already in progress for the same key.
+     *
+     * @param key       the key.
+     * @param operation the operation.
+     * @return the result of the operation.
+     */
+    public V execute(K key, Supplier<V> operation) {
+        CompletableFuture<V> call = new CompletableFuture<>();
+        CompletableFuture<V> current = inFlight.putIfAbsent(key, call);
+        if (current != null) {
+            coalescedCount.incrementAndGet();
+            return join(current);
+        }
+        executedCount.incrementAndGet();
+        try {
+            V value = operation.get();
+            call.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            call.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, call);
+        }
+    }
+
+    /**
+     * Start the asynchronous operation, or share the one already in progress for the same key.
+     * Cancelling the returned future does not cancel the shared operation.
+     *
+     * @param key       the key.
+     * @param operation starts the operation.
+     * @return the result of the operation.
+     */
+    public CompletableFuture<V> executeAsync(K key, Supplier<CompletableFuture<V>> operation) {
+        CompletableFuture<V> call = new CompletableFuture<>();
+        CompletableFuture<V> current = inFlight.putIfAbsent(key, call);
+        if (current != null) {
+            coalescedCount.incrementAndGet();
+            return current.copy();
+        }
+        executedCount.incrementAndGet();
+        try {
+            operation.get().whenComplete((value, e) -> {
+                inFlight.remove(key, call);
+                if (e != null) {
+                    call.completeExceptionally(e instanceof CompletionException && e.getCause() != null ? e.getCause() : e);
+                } else {
+                    call.complete(value);
+                }
+            });
+        } catch (RuntimeException e) {
+            inFlight.remove(key, call);
+            call.completeExceptionally(e);
+        }
+        return call.copy();
+    }
+
+    /**
+     * @return the number of operations actually run.
+     */
+    public long executedCount() {
+        return executedCount.get();
+    }
+
+    /**
+     * @return the number of calls served by an operation already in progress.
+     */
+    public long coalescedCount() {
+        return coalescedCount.get();
+    }
+
+    private static <V> V join(CompletableFuture<V> call) {
+        try {
+            return call.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+}
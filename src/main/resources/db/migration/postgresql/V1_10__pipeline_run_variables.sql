@@ -0,0 +1,12 @@
+-- Variables are read only to trigger accepted tasks: they are moved out of the rows read by the status queries.
+CREATE TABLE IF NOT EXISTS PIPELINE_RUN_VARIABLES (
+    PIPELINE_RUN_ID BIGINT PRIMARY KEY,
+    VARIABLES TEXT,
+    CONSTRAINT FK_PIPELINE_RUN_VARIABLES_RUN FOREIGN KEY (PIPELINE_RUN_ID) REFERENCES PIPELINE_RUNS (PIPELINE_RUN_ID) ON DELETE CASCADE
+);
+
+INSERT INTO PIPELINE_RUN_VARIABLES (PIPELINE_RUN_ID, VARIABLES)
+SELECT PIPELINE_RUN_ID, VARIABLES FROM PIPELINE_RUNS WHERE VARIABLES IS NOT NULL
+ON CONFLICT (PIPELINE_RUN_ID) DO NOTHING;
+
+ALTER TABLE PIPELINE_RUNS DROP COLUMN IF EXISTS VARIABLES;
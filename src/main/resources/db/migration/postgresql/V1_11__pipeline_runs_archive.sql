@@ -0,0 +1,24 @@
+-- Terminal pipeline runs moved out of PIPELINE_RUNS by the retention job.
+CREATE TABLE IF NOT EXISTS PIPELINE_RUNS_ARCHIVE (
+    PIPELINE_RUN_ID BIGINT PRIMARY KEY,
+    TASK_ID BIGINT,
+    RUN_ID VARCHAR(255),
+    PROJECT VARCHAR(255),
+    REF VARCHAR(255),
+    STATUS VARCHAR(255),
+    VARIABLES TEXT,
+    CREATED_AT TIMESTAMP WITH TIME ZONE,
+    FINISHED_AT TIMESTAMP WITH TIME ZONE,
+    GITLAB_INSTANCE_URL VARCHAR(255),
+    CALLBACK_REF VARCHAR(255),
+    DISPATCH_STATUS VARCHAR(255),
+    DISPATCH_ERROR VARCHAR(255),
+    PRIORITY INTEGER,
+    VERSION BIGINT,
+    ARCHIVED_AT TIMESTAMP WITH TIME ZONE
+);
+
+CREATE INDEX IF NOT EXISTS IDX_PIPELINE_RUNS_ARCHIVE_TASK ON PIPELINE_RUNS_ARCHIVE (TASK_ID);
+
+-- Failed accepted tasks have no finish instant: they are aged from their reservation.
+CREATE INDEX IF NOT EXISTS IDX_PIPELINE_RUNS_RESERVED_AT ON PIPELINE_RUNS (RESERVED_AT) WHERE FINISHED_AT IS NULL;
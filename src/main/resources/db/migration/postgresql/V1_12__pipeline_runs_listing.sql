@@ -0,0 +1,7 @@
+-- Pipeline run listing (GET /pipeline-runs): runs are read by descending id, so each filter has an index
+-- ending with the id. Unfiltered pages use the primary key.
+CREATE INDEX IF NOT EXISTS IDX_PIPELINE_RUNS_STATUS_ID ON PIPELINE_RUNS (STATUS, PIPELINE_RUN_ID);
+CREATE INDEX IF NOT EXISTS IDX_PIPELINE_RUNS_PROJECT_ID ON PIPELINE_RUNS (GITLAB_INSTANCE_URL, PROJECT, PIPELINE_RUN_ID);
+-- Time ranges cannot use the id order: ids are reserved in blocks by each node and CREATED_AT comes from GitLab.
+-- A range alone reads the runs created in it through this index, then sorts them by id.
+CREATE INDEX IF NOT EXISTS IDX_PIPELINE_RUNS_CREATED_AT ON PIPELINE_RUNS (CREATED_AT);
@@ -0,0 +1 @@
+ALTER TABLE PIPELINE_RUNS ADD COLUMN IF NOT EXISTS LAST_EVENT_AT TIMESTAMP WITH TIME ZONE;
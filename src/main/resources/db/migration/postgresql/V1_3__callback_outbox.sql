@@ -0,0 +1,18 @@
+ALTER TABLE PIPELINE_RUNS ADD COLUMN IF NOT EXISTS CALLBACK_REF VARCHAR(255);
+
+CREATE TABLE IF NOT EXISTS CALLBACK_OUTBOX (
+    CALLBACK_ID BIGINT PRIMARY KEY,
+    TASK_ID BIGINT NOT NULL,
+    STATUS VARCHAR(255) NOT NULL,
+    CALLBACK_REF VARCHAR(255) NOT NULL,
+    TARGET_HOST VARCHAR(255),
+    DELIVERY_STATUS VARCHAR(255) NOT NULL,
+    ATTEMPTS INTEGER NOT NULL DEFAULT 0,
+    NEXT_ATTEMPT_AT TIMESTAMP WITH TIME ZONE,
+    LAST_ERROR VARCHAR(255),
+    CREATED_AT TIMESTAMP WITH TIME ZONE,
+    DELIVERED_AT TIMESTAMP WITH TIME ZONE,
+    CONSTRAINT UK_CALLBACK_OUTBOX_TASK_STATUS UNIQUE (TASK_ID, STATUS)
+);
+
+CREATE INDEX IF NOT EXISTS IDX_CALLBACK_OUTBOX_DUE ON CALLBACK_OUTBOX (DELIVERY_STATUS, NEXT_ATTEMPT_AT);
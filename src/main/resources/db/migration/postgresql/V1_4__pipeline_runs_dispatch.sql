@@ -0,0 +1,4 @@
+ALTER TABLE PIPELINE_RUNS ADD COLUMN IF NOT EXISTS DISPATCH_STATUS VARCHAR(255);
+ALTER TABLE PIPELINE_RUNS ADD COLUMN IF NOT EXISTS RESERVED_AT TIMESTAMP WITH TIME ZONE;
+
+UPDATE PIPELINE_RUNS SET DISPATCH_STATUS = 'TRIGGERED' WHERE DISPATCH_STATUS IS NULL;
@@ -0,0 +1,6 @@
+ALTER TABLE PIPELINE_RUNS ADD COLUMN IF NOT EXISTS REF VARCHAR(255);
+ALTER TABLE PIPELINE_RUNS ADD COLUMN IF NOT EXISTS DISPATCH_ATTEMPTS INTEGER;
+ALTER TABLE PIPELINE_RUNS ADD COLUMN IF NOT EXISTS NEXT_DISPATCH_AT TIMESTAMP WITH TIME ZONE;
+ALTER TABLE PIPELINE_RUNS ADD COLUMN IF NOT EXISTS DISPATCH_ERROR VARCHAR(255);
+
+CREATE INDEX IF NOT EXISTS IDX_PIPELINE_RUNS_DISPATCH_DUE ON PIPELINE_RUNS (DISPATCH_STATUS, NEXT_DISPATCH_AT);
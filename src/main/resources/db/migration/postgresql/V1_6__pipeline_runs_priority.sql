@@ -0,0 +1,5 @@
+ALTER TABLE PIPELINE_RUNS ADD COLUMN IF NOT EXISTS PRIORITY INTEGER DEFAULT 0;
+
+UPDATE PIPELINE_RUNS SET PRIORITY = 0 WHERE PRIORITY IS NULL;
+
+CREATE INDEX IF NOT EXISTS IDX_PIPELINE_RUNS_PROJECT_STATUS ON PIPELINE_RUNS (GITLAB_INSTANCE_URL, PROJECT, STATUS);
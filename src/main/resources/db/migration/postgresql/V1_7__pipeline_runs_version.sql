@@ -0,0 +1,3 @@
+ALTER TABLE PIPELINE_RUNS ADD COLUMN IF NOT EXISTS VERSION BIGINT DEFAULT 0;
+
+UPDATE PIPELINE_RUNS SET VERSION = 0 WHERE VERSION IS NULL;
@@ -0,0 +1,25 @@
+-- Timestamps were stored as ISO strings (possibly with a zone id suffix, e.g. "...+01:00[Europe/Rome]").
+-- Values that cannot be parsed are set to NULL.
+CREATE OR REPLACE FUNCTION PIPELINE_RUNS_TO_TIMESTAMPTZ(value VARCHAR) RETURNS TIMESTAMP WITH TIME ZONE AS $$
+BEGIN
+    RETURN regexp_replace(value, '\[[^]]*\]$', '')::TIMESTAMP WITH TIME ZONE;
+EXCEPTION WHEN OTHERS THEN
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql IMMUTABLE;
+
+ALTER TABLE PIPELINE_RUNS
+    ALTER COLUMN CREATED_AT TYPE TIMESTAMP WITH TIME ZONE USING PIPELINE_RUNS_TO_TIMESTAMPTZ(CREATED_AT),
+    ALTER COLUMN FINISHED_AT TYPE TIMESTAMP WITH TIME ZONE USING PIPELINE_RUNS_TO_TIMESTAMPTZ(FINISHED_AT);
+
+DROP FUNCTION PIPELINE_RUNS_TO_TIMESTAMPTZ(VARCHAR);
+
+-- Active runs per instance (status synchronization, scheduling): only the few non-terminal rows are indexed.
+CREATE INDEX IF NOT EXISTS IDX_PIPELINE_RUNS_ACTIVE ON PIPELINE_RUNS (GITLAB_INSTANCE_URL, STATUS, LAST_EVENT_AT)
+    WHERE STATUS IN ('created', 'waiting_for_resource', 'preparing', 'pending', 'running', 'manual', 'scheduled');
+
+-- Webhook events, matched by instance and GitLab pipeline id.
+CREATE INDEX IF NOT EXISTS IDX_PIPELINE_RUNS_INSTANCE_RUN ON PIPELINE_RUNS (GITLAB_INSTANCE_URL, RUN_ID);
+
+-- Runs finished since a given instant.
+CREATE INDEX IF NOT EXISTS IDX_PIPELINE_RUNS_FINISHED_AT ON PIPELINE_RUNS (FINISHED_AT) WHERE FINISHED_AT IS NOT NULL;
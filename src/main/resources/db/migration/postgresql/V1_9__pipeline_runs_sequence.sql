@@ -0,0 +1,5 @@
+-- Pipeline run ids are allocated in blocks of 50 (pooled optimizer): the increment must be equal to
+-- odm.executors.gitlab.db-config.id-allocation-size. Ids continue after the existing runs.
+CREATE SEQUENCE IF NOT EXISTS PIPELINE_RUNS_SEQ INCREMENT BY 50;
+
+SELECT setval('PIPELINE_RUNS_SEQ', COALESCE(MAX(PIPELINE_RUN_ID), 0) + 50, false) FROM PIPELINE_RUNS;
@@ -103,10 +103,18 @@ public class GitlabConfigControllerTest {
         WireMock.stubFor(delete(urlMatching("/api/v1/pp/params/params/INSTANCE_URL"))
                 .willReturn(aResponse().withStatus(200))
         );
+        // The instance has no webhook secret.
+        WireMock.stubFor(get(urlMatching("/api/v1/pp/params/params/filter\\?name=INSTANCE_URL.+webhook-secret"))
+                .willReturn(aResponse().withStatus(404)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("{}")
+                )
+        );
 
         wireMockServer.start();
 
         configController.deleteInstance(INSTANCE_URL);
+        WireMock.verify(getRequestedFor(urlMatching("/api/v1/pp/params/params/filter\\?name=INSTANCE_URL.+webhook-secret")));
         wireMockServer.stop();
     }
 
@@ -0,0 +1,241 @@
+package org.opendatamesh.platform.up.executor.gitlabci.controllers;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.github.tomakehurst.wiremock.client.WireMock;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.opendatamesh.platform.up.executor.gitlabci.clients.GitlabClient;
+import org.opendatamesh.platform.up.executor.gitlabci.clients.GitlabClientAdapter;
+import org.opendatamesh.platform.up.executor.gitlabci.clients.GitlabClientRegistry;
+import org.opendatamesh.platform.up.executor.gitlabci.config.GitlabClientConfiguration;
+import org.opendatamesh.platform.up.executor.gitlabci.dao.PipelineRun;
+import org.opendatamesh.platform.up.executor.gitlabci.dao.PipelineRunRepository;
+import org.opendatamesh.platform.up.executor.gitlabci.resources.ConfigurationResource;
+import org.opendatamesh.platform.up.executor.gitlabci.resources.TaskResource;
+import org.opendatamesh.platform.up.executor.gitlabci.resources.TaskStatus;
+import org.opendatamesh.platform.up.executor.gitlabci.resources.TemplateResource;
+import org.opendatamesh.platform.up.executor.gitlabci.resources.client.gitlab.GitlabRunResourceResponse;
+import org.opendatamesh.platform.up.executor.gitlabci.resources.client.gitlab.GitlabRunState;
+import org.opendatamesh.platform.up.executor.gitlabci.resources.client.params.ParamResource;
+import org.opendatamesh.platform.up.executor.gitlabci.resources.exceptions.GitlabClientException;
+import org.opendatamesh.platform.up.executor.gitlabci.resources.exceptions.InternalServerException;
+import org.opendatamesh.platform.up.executor.gitlabci.resources.exceptions.TooManyRequestsException;
+import org.opendatamesh.platform.up.executor.gitlabci.resources.exceptions.UnprocessableEntityException;
+import org.opendatamesh.platform.up.executor.gitlabci.services.GitlabPipelineService;
+import org.opendatamesh.platform.up.executor.gitlabci.services.PipelineStatusSynchronizer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.OffsetDateTime;
+import java.time.ZonedDateTime;
+import java.util.Map;
+import java.util.UUID;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+
+/**
+ * Same flows as {@link GitlabExecutorControllerTest}, with GitLab called through the reactive client.
+ */
+@SpringBootTest
+@AutoConfigureWireMock(port = 8004)
+public class GitlabExecutorControllerReactiveTest {
+    ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    ParamResource responseParam = new ParamResource();
+
+    @Autowired
+    private GitlabExecutorController executorController;
+    @Autowired
+    private PipelineRunRepository pipelineRunRepository;
+    @Autowired
+    private GitlabPipelineService pipelineService;
+    @Autowired
+    private PipelineStatusSynchronizer pipelineStatusSynchronizer;
+    @Autowired
+    private GitlabClientRegistry gitlabClientRegistry;
+    @Autowired
+    private GitlabClientConfiguration gitlabClientConfiguration;
+    private final static String INSTANCE_URL = "http://localhost:8004";
+    // A dedicated instance url for the 429 answers, so that the emptied rate limiter does not affect the other tests.
+    private final static String RATE_LIMITED_INSTANCE_URL = "http://127.0.0.1:8004";
+    private final static String GITLAB_TOKEN = "SECRET_VALUE";
+    private final String UUIDCode = UUID.randomUUID().toString();
+
+    @BeforeEach
+    void setup() throws JsonProcessingException {
+        objectMapper.registerModule(new JavaTimeModule());
+        responseParam.setId(Long.parseLong("1"));
+        responseParam.setDisplayName(INSTANCE_URL);
+        responseParam.setParamName(INSTANCE_URL);
+        responseParam.setParamValue(GITLAB_TOKEN);
+        WireMock.stubFor(get(urlMatching("/api/v1/pp/params/params/filter\\?name=.*"))
+                .willReturn(
+                        aResponse()
+                                .withStatus(200)
+                                .withHeader("Content-Type", "application/json")
+                                .withBody(objectMapper.writeValueAsString(responseParam))
+                )
+        );
+        ReflectionTestUtils.setField(gitlabClientConfiguration, "reactive", true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReflectionTestUtils.setField(gitlabClientConfiguration, "reactive", false);
+    }
+
+    @Test
+    public void testCreateTaskSuccess() throws Exception {
+        stubTrigger("1010", 201, objectMapper.writeValueAsString(pipeline("34", GitlabRunState.created)));
+
+        executorController.createTaskEndpoint(task(34L, "1010"), null);
+
+        PipelineRun pipelineRun = pipelineRunRepository.findByTaskId(34L).orElseThrow();
+        Assertions.assertEquals("34", pipelineRun.getRunId());
+        Assertions.assertEquals(PipelineRun.DispatchStatus.TRIGGERED, pipelineRun.getDispatchStatus());
+    }
+
+    @Test
+    public void testCreateTaskErrors() throws Exception {
+        stubTrigger("1011", 400, "{\"message\":\"invalid\"}");
+        stubTrigger("1012", 429, "{\"message\":\"slow down\"}");
+
+        Assertions.assertThrows(UnprocessableEntityException.class, () -> executorController.createTaskEndpoint(task(35L, "1011"), null));
+        Assertions.assertThrows(TooManyRequestsException.class, () -> executorController.createTaskEndpoint(task(36L, "1012", RATE_LIMITED_INSTANCE_URL), null));
+        // A rejected trigger releases the reservation, so the task can be submitted again.
+        Assertions.assertTrue(pipelineRunRepository.findByTaskId(35L).isEmpty());
+        Assertions.assertTrue(pipelineRunRepository.findByTaskId(36L).isEmpty());
+    }
+
+    @Test
+    public void testCreateTaskEmptyBody() throws Exception {
+        stubTrigger("1013", 201, "");
+
+        executorController.createTaskEndpoint(task(37L, "1013"), null);
+
+        // The pipeline may have been created: the reservation is kept until it expires, instead of triggering again.
+        PipelineRun pipelineRun = pipelineRunRepository.findByTaskId(37L).orElseThrow();
+        Assertions.assertEquals(PipelineRun.DispatchStatus.RESERVED, pipelineRun.getDispatchStatus());
+        WireMock.verify(1, postRequestedFor(urlMatching("/api/v4/projects/1013/pipeline")));
+    }
+
+    @Test
+    public void testRefreshErrors() {
+        stubRead("38", 403, "{\"message\":\"forbidden\"}");
+        stubRead("39", 429, "{\"message\":\"slow down\"}");
+        stubRead("40", 200, "");
+
+        Assertions.assertThrows(InternalServerException.class,
+                () -> pipelineService.refreshPipelineRunReactive(runningPipelineRun(38L)).block());
+        Assertions.assertThrows(TooManyRequestsException.class,
+                () -> pipelineService.refreshPipelineRunReactive(runningPipelineRun(39L, RATE_LIMITED_INSTANCE_URL)).block());
+        Assertions.assertThrows(InternalServerException.class,
+                () -> pipelineService.refreshPipelineRunReactive(runningPipelineRun(40L)).block());
+    }
+
+    @Test
+    public void testSynchronizeActiveRuns() throws JsonProcessingException {
+        stubRead("41", 200, objectMapper.writeValueAsString(pipeline("41", GitlabRunState.success)));
+        stubRead("42", 404, "{\"message\":\"404 Not found\"}");
+        runningPipelineRun(41L);
+        runningPipelineRun(42L);
+
+        pipelineStatusSynchronizer.synchronizeActiveRuns();
+
+        // A failed refresh does not stop the others.
+        Assertions.assertEquals(TaskStatus.PROCESSED, executorController.readTaskStatus(41L, null).getResult());
+        Assertions.assertEquals(TaskStatus.PROCESSING, executorController.readTaskStatus(42L, null).getResult());
+    }
+
+    @Test
+    public void testClientAdapter() throws JsonProcessingException {
+        stubRead("43", 200, objectMapper.writeValueAsString(pipeline("43", GitlabRunState.running)));
+        stubRead("44", 404, "{\"message\":\"404 Not found\"}");
+        stubRead("45", 200, "");
+        GitlabClient gitlabClient = gitlabClientRegistry.getClient(INSTANCE_URL, GITLAB_TOKEN);
+        GitlabClientAdapter adapter = new GitlabClientAdapter(gitlabClient);
+
+        Assertions.assertEquals("43", adapter.readTask("1000", "43").block().getId());
+        GitlabClientException e = Assertions.assertThrows(GitlabClientException.class, () -> adapter.readTask("1000", "44").block());
+        Assertions.assertEquals(404, e.getCode());
+        // The error body of GitLab is never read as a pipeline.
+        e = Assertions.assertThrows(GitlabClientException.class, () -> gitlabClient.readTask("1000", "44"));
+        Assertions.assertEquals(404, e.getCode());
+        Assertions.assertEquals("{\"message\":\"404 Not found\"}", e.getResponseBody());
+        Assertions.assertTrue(adapter.readTask("1000", "45").blockOptional().isEmpty());
+    }
+
+    private void stubTrigger(String project, int status, String body) {
+        WireMock.stubFor(post(urlMatching("/api/v4/projects/" + project + "/pipeline"))
+                .willReturn(
+                        aResponse()
+                                .withStatus(status)
+                                .withHeader("Content-Type", "application/json")
+                                .withBody(body)
+                ));
+    }
+
+    private void stubRead(String pipelineId, int status, String body) {
+        WireMock.stubFor(get(urlMatching("/api/v4/projects/1000/pipelines/" + pipelineId))
+                .willReturn(
+                        aResponse()
+                                .withStatus(status)
+                                .withHeader("Content-Type", "application/json")
+                                .withBody(body)
+                ));
+    }
+
+    private TaskResource task(Long taskId, String project) throws JsonProcessingException {
+        return task(taskId, project, INSTANCE_URL);
+    }
+
+    private TaskResource task(Long taskId, String project, String gitlabInstanceUrl) throws JsonProcessingException {
+        TaskResource requestTask = new TaskResource();
+        requestTask.setId(taskId);
+        requestTask.setStatus(TaskStatus.PLANNED);
+        requestTask.setActivityId(UUIDCode);
+        ConfigurationResource configurationResource = new ConfigurationResource();
+        configurationResource.setParams(Map.of(
+                "gitlabInstanceUrl", gitlabInstanceUrl
+        ));
+        TemplateResource templateResource = new TemplateResource();
+        templateResource.setProjectId(project);
+        templateResource.setBranch("master");
+        requestTask.setConfigurations(objectMapper.writeValueAsString(configurationResource));
+        requestTask.setTemplate(objectMapper.writeValueAsString(templateResource));
+        return requestTask;
+    }
+
+    private PipelineRun runningPipelineRun(Long taskId) {
+        return runningPipelineRun(taskId, INSTANCE_URL);
+    }
+
+    private PipelineRun runningPipelineRun(Long taskId, String gitlabInstanceUrl) {
+        PipelineRun pipelineRun = pipelineRunRepository.findByTaskId(taskId).orElseGet(PipelineRun::new);
+        pipelineRun.setRunId(taskId.toString());
+        pipelineRun.setProject("1000");
+        pipelineRun.setTaskId(taskId);
+        pipelineRun.setStatus(GitlabRunState.running);
+        pipelineRun.setGitlabInstanceUrl(gitlabInstanceUrl);
+        pipelineRun.setCreatedAt(OffsetDateTime.now());
+        return pipelineRunRepository.saveAndFlush(pipelineRun);
+    }
+
+    private static GitlabRunResourceResponse pipeline(String id, GitlabRunState status) {
+        GitlabRunResourceResponse pipeline = new GitlabRunResourceResponse();
+        pipeline.setId(id);
+        pipeline.setIid(id);
+        pipeline.setProjectId(1000);
+        pipeline.setStatus(status.toString());
+        pipeline.setCreatedAt(ZonedDateTime.now());
+        pipeline.setUpdatedAt(ZonedDateTime.now());
+        return pipeline;
+    }
+}
@@ -6,29 +6,60 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.github.tomakehurst.wiremock.WireMockServer;
 import com.github.tomakehurst.wiremock.client.WireMock;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.opendatamesh.platform.up.executor.gitlabci.clients.GitlabCircuitBreaker;
+import org.opendatamesh.platform.up.executor.gitlabci.clients.GitlabClientRegistry;
+import org.opendatamesh.platform.up.executor.gitlabci.config.AsyncConfiguration;
+import org.opendatamesh.platform.up.executor.gitlabci.config.SchedulingConfiguration;
 import org.opendatamesh.platform.up.executor.gitlabci.dao.PipelineRun;
+import org.opendatamesh.platform.up.executor.gitlabci.dao.PipelineRunArchiveRepository;
 import org.opendatamesh.platform.up.executor.gitlabci.dao.PipelineRunRepository;
 import org.opendatamesh.platform.up.executor.gitlabci.resources.ConfigurationResource;
 import org.opendatamesh.platform.up.executor.gitlabci.resources.TaskResource;
 import org.opendatamesh.platform.up.executor.gitlabci.resources.TaskStatus;
+import org.opendatamesh.platform.up.executor.gitlabci.resources.TaskSubmissionResultResource;
 import org.opendatamesh.platform.up.executor.gitlabci.resources.TemplateResource;
 import org.opendatamesh.platform.up.executor.gitlabci.resources.client.gitlab.GitlabRunResourceResponse;
 import org.opendatamesh.platform.up.executor.gitlabci.resources.client.gitlab.GitlabRunState;
 import org.opendatamesh.platform.up.executor.gitlabci.resources.client.params.ParamResource;
+import org.opendatamesh.platform.up.executor.gitlabci.resources.exceptions.ConflictException;
+import org.opendatamesh.platform.up.executor.gitlabci.resources.exceptions.InternalServerException;
+import org.opendatamesh.platform.up.executor.gitlabci.resources.exceptions.NotFoundException;
+import org.opendatamesh.platform.up.executor.gitlabci.resources.exceptions.TooManyRequestsException;
 import org.opendatamesh.platform.up.executor.gitlabci.resources.exceptions.UnprocessableEntityException;
+import org.opendatamesh.platform.up.executor.gitlabci.services.GitlabPipelineService;
+import org.opendatamesh.platform.up.executor.gitlabci.services.PipelineDispatchWorker;
+import org.opendatamesh.platform.up.executor.gitlabci.services.PipelineRunArchiver;
+import org.opendatamesh.platform.up.executor.gitlabci.services.PipelineStatusSynchronizer;
+import org.opendatamesh.platform.up.executor.gitlabci.services.PipelineSubmission;
+import org.opendatamesh.platform.up.executor.gitlabci.services.TaskStatusCache;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
 
+import java.time.OffsetDateTime;
 import java.time.ZonedDateTime;
-import java.util.Date;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.*;
 
@@ -45,12 +76,36 @@ public class GitlabExecutorControllerTest {
     private GitlabExecutorController executorController;
     @Autowired
     private PipelineRunRepository pipelineRunRepository;
+    @Autowired
+    private GitlabPipelineService pipelineService;
+    @Autowired
+    private PipelineStatusSynchronizer pipelineStatusSynchronizer;
+    @Autowired
+    private GitlabClientRegistry gitlabClientRegistry;
+    @Autowired
+    private PipelineDispatchWorker pipelineDispatchWorker;
+    @Autowired
+    private SchedulingConfiguration schedulingConfiguration;
+    @Autowired
+    private TaskStatusCache taskStatusCache;
+    @Autowired
+    private PipelineRunArchiver pipelineRunArchiver;
+    @Autowired
+    private PipelineRunArchiveRepository pipelineRunArchiveRepository;
+    @Autowired
+    @Qualifier(AsyncConfiguration.PIPELINE_TASK_EXECUTOR)
+    private AsyncTaskExecutor pipelineTaskExecutor;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
     private final static String INSTANCE_URL = "http://localhost:8004";
     private final static String GITLAB_TOKEN = "SECRET_VALUE";
     private final String UUIDCode = UUID.randomUUID().toString();
 
     @BeforeEach
     void setup() {
+        // The WireMock server is shared by all the tests: the request counts verified by a test must not include
+        // the requests of the previous ones.
+        WireMock.resetAllRequests();
         objectMapper.registerModule(new JavaTimeModule());
         responseParam.setId(Long.parseLong("1"));
         responseParam.setDisplayName(INSTANCE_URL);
@@ -75,6 +130,16 @@ public class GitlabExecutorControllerTest {
         user.setUsername("first");
         user.setAvatarUrl("");
         gitlabRunResourceResponse.setUser(user);
+
+        // The controller methods are called directly: bind a request, as the dispatcher servlet would do.
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setContextPath("/executor");
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+    }
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
     }
 
     @Test
@@ -113,7 +178,7 @@ public class GitlabExecutorControllerTest {
         requestTask.setConfigurations(objectMapper.writeValueAsString(configurationResource));
         requestTask.setTemplate(objectMapper.writeValueAsString(templateResource));
 
-        TaskResource response = executorController.createTaskEndpoint(requestTask);
+        TaskResource response = executorController.createTaskEndpoint(requestTask, null).getBody();
 
         Assertions.assertEquals(Long.parseLong("1"), response.getId());
         Assertions.assertEquals(TaskStatus.PLANNED, response.getStatus());
@@ -121,6 +186,269 @@ public class GitlabExecutorControllerTest {
         wireMockServer.stop();
     }
 
+    @Test
+    public void testCreateTaskIdempotent() throws Exception {
+        // A project of its own, so that the trigger count includes only the submissions of this test.
+        gitlabRunResourceResponse.setId("16");
+        WireMock.stubFor(post(urlMatching("/api/v4/projects/1014/pipeline"))
+                .willReturn(
+                        aResponse()
+                                .withStatus(201)
+                                .withHeader("Content-Type", "application/json")
+                                .withBody(objectMapper.writeValueAsString(gitlabRunResourceResponse))
+                ))
+        ;
+
+        WireMock.stubFor(get(urlMatching("/api/v1/pp/params/params/filter\\?name=.*"))
+                .willReturn(
+                        aResponse()
+                                .withStatus(200)
+                                .withHeader("Content-Type", "application/json")
+                                .withBody(objectMapper.writeValueAsString(responseParam))
+                )
+        );
+        TaskResource requestTask = new TaskResource();
+        requestTask.setId(Long.parseLong("16"));
+        requestTask.setStatus(TaskStatus.PLANNED);
+        requestTask.setActivityId(UUIDCode);
+        ConfigurationResource configurationResource = new ConfigurationResource();
+        configurationResource.setParams(Map.of(
+                "gitlabInstanceUrl", INSTANCE_URL
+        ));
+        TemplateResource templateResource = new TemplateResource();
+        templateResource.setProjectId("1014");
+        templateResource.setBranch("master");
+        requestTask.setConfigurations(objectMapper.writeValueAsString(configurationResource));
+        requestTask.setTemplate(objectMapper.writeValueAsString(templateResource));
+
+        executorController.createTaskEndpoint(requestTask, null);
+        TaskResource response = executorController.createTaskEndpoint(requestTask, null).getBody();
+
+        // The repeated submission returns the existing run without a second trigger.
+        Assertions.assertEquals(Long.parseLong("16"), response.getId());
+        WireMock.verify(1, postRequestedFor(urlMatching("/api/v4/projects/1014/pipeline")));
+        PipelineRun pipelineRun = pipelineRunRepository.findByTaskId(16L).orElseThrow();
+        Assertions.assertEquals("16", pipelineRun.getRunId());
+        Assertions.assertEquals(PipelineRun.DispatchStatus.TRIGGERED, pipelineRun.getDispatchStatus());
+    }
+
+    @Test
+    public void testCreateTaskAlreadyInProgress() throws Exception {
+        // A submission of the same task is triggering the pipeline.
+        PipelineRun reservation = pipelineRunRepository.findByTaskId(17L).orElseGet(PipelineRun::new);
+        reservation.setTaskId(17L);
+        reservation.setDispatchStatus(PipelineRun.DispatchStatus.RESERVED);
+        reservation.setReservedAt(OffsetDateTime.now());
+        pipelineRunRepository.saveAndFlush(reservation);
+
+        TaskResource requestTask = new TaskResource();
+        requestTask.setId(Long.parseLong("17"));
+        requestTask.setStatus(TaskStatus.PLANNED);
+        requestTask.setActivityId(UUIDCode);
+        ConfigurationResource configurationResource = new ConfigurationResource();
+        configurationResource.setParams(Map.of(
+                "gitlabInstanceUrl", INSTANCE_URL
+        ));
+        TemplateResource templateResource = new TemplateResource();
+        templateResource.setProjectId("1015");
+        templateResource.setBranch("master");
+        requestTask.setConfigurations(objectMapper.writeValueAsString(configurationResource));
+        requestTask.setTemplate(objectMapper.writeValueAsString(templateResource));
+
+        Assertions.assertThrows(ConflictException.class, () -> executorController.createTaskEndpoint(requestTask, null));
+        WireMock.verify(0, postRequestedFor(urlMatching("/api/v4/projects/1015/pipeline")));
+        Assertions.assertEquals(TaskStatus.PLANNED, executorController.readTaskStatus(17L, null).getResult());
+    }
+
+    @Test
+    public void testCreateTasksBatch() throws Exception {
+        gitlabRunResourceResponse.setId("18");
+        WireMock.stubFor(post(urlMatching("/api/v4/projects/1000/pipeline"))
+                .willReturn(
+                        aResponse()
+                                .withStatus(201)
+                                .withHeader("Content-Type", "application/json")
+                                .withBody(objectMapper.writeValueAsString(gitlabRunResourceResponse))
+                ))
+        ;
+
+        WireMock.stubFor(get(urlMatching("/api/v1/pp/params/params/filter\\?name=.*"))
+                .willReturn(
+                        aResponse()
+                                .withStatus(200)
+                                .withHeader("Content-Type", "application/json")
+                                .withBody(objectMapper.writeValueAsString(responseParam))
+                )
+        );
+        ConfigurationResource configurationResource = new ConfigurationResource();
+        configurationResource.setParams(Map.of(
+                "gitlabInstanceUrl", INSTANCE_URL
+        ));
+        TemplateResource templateResource = new TemplateResource();
+        templateResource.setProjectId("1000");
+        templateResource.setBranch("master");
+        List<TaskResource> tasks = new ArrayList<>();
+        for (long taskId : new long[]{18L, 19L, 20L, 18L}) {
+            TaskResource requestTask = new TaskResource();
+            requestTask.setId(taskId);
+            requestTask.setStatus(TaskStatus.PLANNED);
+            requestTask.setActivityId(UUIDCode);
+            requestTask.setConfigurations(objectMapper.writeValueAsString(configurationResource));
+            if (taskId != 20L) {
+                requestTask.setTemplate(objectMapper.writeValueAsString(templateResource));
+            }
+            tasks.add(requestTask);
+        }
+
+        List<TaskSubmissionResultResource> results = executorController.createTasksEndpoint(tasks);
+
+        Assertions.assertEquals(4, results.size());
+        Assertions.assertEquals(201, results.get(0).getStatus());
+        Assertions.assertEquals(201, results.get(1).getStatus());
+        // Task without template.
+        Assertions.assertEquals(422, results.get(2).getStatus());
+        Assertions.assertEquals("42201", results.get(2).getError().getCode());
+        // Task submitted twice in the same batch.
+        Assertions.assertEquals(422, results.get(3).getStatus());
+        WireMock.verify(2, postRequestedFor(urlMatching("/api/v4/projects/1000/pipeline")));
+        Assertions.assertTrue(pipelineRunRepository.findByTaskId(19L).isPresent());
+        Assertions.assertTrue(pipelineRunRepository.findByTaskId(20L).isEmpty());
+    }
+
+    @Test
+    public void testCreateTaskRespondAsync() throws Exception {
+        gitlabRunResourceResponse.setId("21");
+        WireMock.stubFor(post(urlMatching("/api/v4/projects/1000/pipeline"))
+                .willReturn(
+                        aResponse()
+                                .withStatus(201)
+                                .withHeader("Content-Type", "application/json")
+                                .withBody(objectMapper.writeValueAsString(gitlabRunResourceResponse))
+                ))
+        ;
+
+        WireMock.stubFor(get(urlMatching("/api/v1/pp/params/params/filter\\?name=.*"))
+                .willReturn(
+                        aResponse()
+                                .withStatus(200)
+                                .withHeader("Content-Type", "application/json")
+                                .withBody(objectMapper.writeValueAsString(responseParam))
+                )
+        );
+        TaskResource requestTask = new TaskResource();
+        requestTask.setId(Long.parseLong("21"));
+        requestTask.setStatus(TaskStatus.PLANNED);
+        requestTask.setActivityId(UUIDCode);
+        ConfigurationResource configurationResource = new ConfigurationResource();
+        configurationResource.setParams(Map.of(
+                "gitlabInstanceUrl", INSTANCE_URL
+        ));
+        TemplateResource templateResource = new TemplateResource();
+        templateResource.setProjectId("1000");
+        templateResource.setBranch("master");
+        requestTask.setConfigurations(objectMapper.writeValueAsString(configurationResource));
+        requestTask.setTemplate(objectMapper.writeValueAsString(templateResource));
+
+        ResponseEntity<TaskResource> response = executorController.createTaskEndpoint(requestTask, "respond-async");
+
+        Assertions.assertEquals(HttpStatus.ACCEPTED, response.getStatusCode());
+        Assertions.assertEquals("http://localhost/executor/tasks/21/status", response.getHeaders().getLocation().toString());
+        // The pipeline is triggered in background, by the executor or by the worker.
+        long deadline = System.currentTimeMillis() + 10_000;
+        PipelineRun pipelineRun = pipelineRunRepository.findByTaskId(21L).orElseThrow();
+        while (pipelineRun.getDispatchStatus() != PipelineRun.DispatchStatus.TRIGGERED && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+            pipelineDispatchWorker.dispatchPendingRuns();
+            pipelineRun = pipelineRunRepository.findByTaskId(21L).orElseThrow();
+        }
+        Assertions.assertEquals(PipelineRun.DispatchStatus.TRIGGERED, pipelineRun.getDispatchStatus());
+        Assertions.assertEquals("21", pipelineRun.getRunId());
+        // The variables stored with the accepted task are sent with the trigger.
+        WireMock.verify(1, postRequestedFor(urlMatching("/api/v4/projects/1000/pipeline"))
+                .withRequestBody(matchingJsonPath("$.variables[?(@.key == 'taskId' && @.value == '21')]")));
+    }
+
+    @Test
+    public void testCreateTaskQueuedByScheduler() throws Exception {
+        gitlabRunResourceResponse.setId("22");
+        gitlabRunResourceResponse.setProjectId(1002);
+        gitlabRunResourceResponse.setStatus(GitlabRunState.running.toString());
+        WireMock.stubFor(post(urlMatching("/api/v4/projects/1002/pipeline"))
+                .willReturn(
+                        aResponse()
+                                .withStatus(201)
+                                .withHeader("Content-Type", "application/json")
+                                .withBody(objectMapper.writeValueAsString(gitlabRunResourceResponse))
+                ))
+        ;
+
+        WireMock.stubFor(get(urlMatching("/api/v1/pp/params/params/filter\\?name=.*"))
+                .willReturn(
+                        aResponse()
+                                .withStatus(200)
+                                .withHeader("Content-Type", "application/json")
+                                .withBody(objectMapper.writeValueAsString(responseParam))
+                )
+        );
+        TemplateResource templateResource = new TemplateResource();
+        templateResource.setProjectId("1002");
+        templateResource.setBranch("master");
+        List<TaskResource> requestTasks = new ArrayList<>();
+        for (String[] task : new String[][]{{"22", "0"}, {"23", "1"}, {"24", "5"}}) {
+            TaskResource requestTask = new TaskResource();
+            requestTask.setId(Long.parseLong(task[0]));
+            requestTask.setStatus(TaskStatus.PLANNED);
+            requestTask.setActivityId(UUIDCode);
+            ConfigurationResource configurationResource = new ConfigurationResource();
+            configurationResource.setParams(Map.of(
+                    "gitlabInstanceUrl", INSTANCE_URL,
+                    "priority", task[1]
+            ));
+            requestTask.setConfigurations(objectMapper.writeValueAsString(configurationResource));
+            requestTask.setTemplate(objectMapper.writeValueAsString(templateResource));
+            requestTasks.add(requestTask);
+        }
+
+        Integer maxInFlightPerProject = schedulingConfiguration.getMaxInFlightPerProject();
+        schedulingConfiguration.setEnabled(true);
+        schedulingConfiguration.setMaxInFlightPerProject(1);
+        try {
+            Assertions.assertEquals(HttpStatus.CREATED, executorController.createTaskEndpoint(requestTasks.get(0), null).getStatusCode());
+            // The project has a pipeline in flight: the other tasks wait for their turn.
+            Assertions.assertEquals(HttpStatus.ACCEPTED, executorController.createTaskEndpoint(requestTasks.get(1), null).getStatusCode());
+            Assertions.assertEquals(HttpStatus.ACCEPTED, executorController.createTaskEndpoint(requestTasks.get(2), null).getStatusCode());
+            pipelineDispatchWorker.dispatchPendingRuns();
+            WireMock.verify(1, postRequestedFor(urlMatching("/api/v4/projects/1002/pipeline")));
+            Assertions.assertEquals(PipelineRun.DispatchStatus.PENDING, pipelineRunRepository.findByTaskId(23L).orElseThrow().getDispatchStatus());
+
+            // Once the first pipeline completes, the task with the highest priority takes its place.
+            gitlabRunResourceResponse.setStatus(GitlabRunState.success.toString());
+            WireMock.stubFor(get(urlMatching("/api/v4/projects/1002/pipelines/22"))
+                    .willReturn(
+                            aResponse()
+                                    .withStatus(200)
+                                    .withHeader("Content-Type", "application/json")
+                                    .withBody(objectMapper.writeValueAsString(gitlabRunResourceResponse))
+                    ))
+            ;
+            pipelineService.refreshPipelineRun(pipelineRunRepository.findByTaskId(22L).orElseThrow());
+            long deadline = System.currentTimeMillis() + 10_000;
+            PipelineRun pipelineRun = pipelineRunRepository.findByTaskId(24L).orElseThrow();
+            while (pipelineRun.getDispatchStatus() != PipelineRun.DispatchStatus.TRIGGERED && System.currentTimeMillis() < deadline) {
+                Thread.sleep(100);
+                pipelineDispatchWorker.dispatchPendingRuns();
+                pipelineRun = pipelineRunRepository.findByTaskId(24L).orElseThrow();
+            }
+            Assertions.assertEquals(PipelineRun.DispatchStatus.TRIGGERED, pipelineRun.getDispatchStatus());
+            Assertions.assertEquals(PipelineRun.DispatchStatus.PENDING, pipelineRunRepository.findByTaskId(23L).orElseThrow().getDispatchStatus());
+            WireMock.verify(2, postRequestedFor(urlMatching("/api/v4/projects/1002/pipeline")));
+        } finally {
+            schedulingConfiguration.setEnabled(false);
+            schedulingConfiguration.setMaxInFlightPerProject(maxInFlightPerProject);
+            pipelineRunRepository.findByTaskId(23L).ifPresent(pipelineRunRepository::delete);
+        }
+    }
+
     @Test
     public void createTaskWithoutTaskId() throws Exception {
         TaskResource requestTask = new TaskResource();
@@ -136,7 +464,7 @@ public class GitlabExecutorControllerTest {
         requestTask.setConfigurations(objectMapper.writeValueAsString(configurationResource));
         requestTask.setTemplate(objectMapper.writeValueAsString(templateResource));
 
-        Assertions.assertThrows(UnprocessableEntityException.class, () -> executorController.createTaskEndpoint(requestTask));
+        Assertions.assertThrows(UnprocessableEntityException.class, () -> executorController.createTaskEndpoint(requestTask, null));
     }
 
     @Test
@@ -150,7 +478,7 @@ public class GitlabExecutorControllerTest {
         templateResource.setBranch("master");
         requestTask.setTemplate(objectMapper.writeValueAsString(templateResource));
 
-        Assertions.assertThrows(UnprocessableEntityException.class, () -> executorController.createTaskEndpoint(requestTask));
+        Assertions.assertThrows(UnprocessableEntityException.class, () -> executorController.createTaskEndpoint(requestTask, null));
     }
 
     @Test
@@ -165,7 +493,7 @@ public class GitlabExecutorControllerTest {
         ));
         requestTask.setConfigurations(objectMapper.writeValueAsString(configurationResource));
 
-        Assertions.assertThrows(UnprocessableEntityException.class, () -> executorController.createTaskEndpoint(requestTask));
+        Assertions.assertThrows(UnprocessableEntityException.class, () -> executorController.createTaskEndpoint(requestTask, null));
     }
 
     @Test
@@ -184,7 +512,7 @@ public class GitlabExecutorControllerTest {
         templateResource.setBranch("master");
         requestTask.setTemplate(objectMapper.writeValueAsString(templateResource));
 
-        Assertions.assertThrows(UnprocessableEntityException.class, () -> executorController.createTaskEndpoint(requestTask));
+        Assertions.assertThrows(UnprocessableEntityException.class, () -> executorController.createTaskEndpoint(requestTask, null));
     }
 
     @Test
@@ -208,7 +536,7 @@ public class GitlabExecutorControllerTest {
 
         wireMockServer.start();
         TaskResource requestTask = new TaskResource();
-        requestTask.setId(Long.parseLong("1"));
+        requestTask.setId(Long.parseLong("11"));
         requestTask.setStatus(TaskStatus.PLANNED);
         requestTask.setActivityId(UUIDCode);
         ConfigurationResource configurationResource = new ConfigurationResource();
@@ -221,7 +549,7 @@ public class GitlabExecutorControllerTest {
         requestTask.setConfigurations(objectMapper.writeValueAsString(configurationResource));
         requestTask.setTemplate(objectMapper.writeValueAsString(templateResource));
 
-        Assertions.assertThrows(UnprocessableEntityException.class, () -> executorController.createTaskEndpoint(requestTask));
+        Assertions.assertThrows(UnprocessableEntityException.class, () -> executorController.createTaskEndpoint(requestTask, null));
 
         wireMockServer.stop();
     }
@@ -247,7 +575,7 @@ public class GitlabExecutorControllerTest {
 
         wireMockServer.start();
         TaskResource requestTask = new TaskResource();
-        requestTask.setId(Long.parseLong("1"));
+        requestTask.setId(Long.parseLong("12"));
         requestTask.setStatus(TaskStatus.PLANNED);
         requestTask.setActivityId(UUIDCode);
         ConfigurationResource configurationResource = new ConfigurationResource();
@@ -260,11 +588,99 @@ public class GitlabExecutorControllerTest {
         requestTask.setConfigurations(objectMapper.writeValueAsString(configurationResource));
         requestTask.setTemplate(objectMapper.writeValueAsString(templateResource));
 
-        Assertions.assertThrows(UnprocessableEntityException.class, () -> executorController.createTaskEndpoint(requestTask));
+        Assertions.assertThrows(UnprocessableEntityException.class, () -> executorController.createTaskEndpoint(requestTask, null));
 
         wireMockServer.stop();
     }
 
+    @Test
+    public void createTask429() throws Exception {
+        // A dedicated instance url, so that the paused rate limiter does not affect the other tests.
+        String rateLimitedInstanceUrl = "http://127.0.0.1:8004";
+        WireMock.stubFor(post(urlMatching("/api/v4/projects/1000/pipeline"))
+                .willReturn(
+                        aResponse()
+                                .withStatus(429)
+                                .withHeader("Retry-After", "60")
+                ))
+        ;
+
+        WireMock.stubFor(get(urlMatching("/api/v1/pp/params/params/filter\\?name=.*"))
+                .willReturn(
+                        aResponse()
+                                .withStatus(200)
+                                .withHeader("Content-Type", "application/json")
+                                .withBody(objectMapper.writeValueAsString(responseParam))
+                )
+        );
+
+        TaskResource requestTask = new TaskResource();
+        requestTask.setId(Long.parseLong("13"));
+        requestTask.setStatus(TaskStatus.PLANNED);
+        requestTask.setActivityId(UUIDCode);
+        ConfigurationResource configurationResource = new ConfigurationResource();
+        configurationResource.setParams(Map.of(
+                "gitlabInstanceUrl", rateLimitedInstanceUrl
+        ));
+        TemplateResource templateResource = new TemplateResource();
+        templateResource.setProjectId("1000");
+        templateResource.setBranch("master");
+        requestTask.setConfigurations(objectMapper.writeValueAsString(configurationResource));
+        requestTask.setTemplate(objectMapper.writeValueAsString(templateResource));
+
+        Assertions.assertThrows(TooManyRequestsException.class, () -> executorController.createTaskEndpoint(requestTask, null));
+        // The limiter honours Retry-After: the second trigger is rejected without reaching GitLab.
+        Assertions.assertThrows(TooManyRequestsException.class, () -> executorController.createTaskEndpoint(requestTask, null));
+        WireMock.verify(1, postRequestedFor(urlMatching("/api/v4/projects/1000/pipeline")));
+    }
+
+    @Test
+    public void createTaskCircuitOpen() throws Exception {
+        WireMock.stubFor(post(urlMatching("/api/v4/projects/1001/pipeline"))
+                .willReturn(
+                        aResponse()
+                                .withStatus(503)
+                ))
+        ;
+
+        WireMock.stubFor(get(urlMatching("/api/v1/pp/params/params/filter\\?name=.*"))
+                .willReturn(
+                        aResponse()
+                                .withStatus(200)
+                                .withHeader("Content-Type", "application/json")
+                                .withBody(objectMapper.writeValueAsString(responseParam))
+                )
+        );
+
+        TaskResource requestTask = new TaskResource();
+        requestTask.setId(Long.parseLong("14"));
+        requestTask.setStatus(TaskStatus.PLANNED);
+        requestTask.setActivityId(UUIDCode);
+        ConfigurationResource configurationResource = new ConfigurationResource();
+        configurationResource.setParams(Map.of(
+                "gitlabInstanceUrl", INSTANCE_URL
+        ));
+        TemplateResource templateResource = new TemplateResource();
+        templateResource.setProjectId("1001");
+        templateResource.setBranch("master");
+        requestTask.setConfigurations(objectMapper.writeValueAsString(configurationResource));
+        requestTask.setTemplate(objectMapper.writeValueAsString(templateResource));
+
+        try {
+            // minimum-calls failed calls open the circuit.
+            for (int i = 0; i < 10; i++) {
+                Assertions.assertThrows(InternalServerException.class, () -> executorController.createTaskEndpoint(requestTask, null));
+            }
+            Assertions.assertEquals(GitlabCircuitBreaker.State.OPEN, gitlabClientRegistry.getCircuitBreaker(INSTANCE_URL).getState());
+            // The next trigger fails fast, without reaching GitLab.
+            Assertions.assertThrows(InternalServerException.class, () -> executorController.createTaskEndpoint(requestTask, null));
+            WireMock.verify(10, postRequestedFor(urlMatching("/api/v4/projects/1001/pipeline")));
+        } finally {
+            // Reset the circuit, so that the other tests are not affected.
+            gitlabClientRegistry.evict(INSTANCE_URL);
+        }
+    }
+
     @Test
     public void createTask400() throws Exception {
         wireMockServer = new WireMockServer();
@@ -287,7 +703,7 @@ public class GitlabExecutorControllerTest {
 
         wireMockServer.start();
         TaskResource requestTask = new TaskResource();
-        requestTask.setId(Long.parseLong("1"));
+        requestTask.setId(Long.parseLong("15"));
         requestTask.setStatus(TaskStatus.PLANNED);
         requestTask.setActivityId(UUIDCode);
         ConfigurationResource configurationResource = new ConfigurationResource();
@@ -300,34 +716,124 @@ public class GitlabExecutorControllerTest {
         requestTask.setConfigurations(objectMapper.writeValueAsString(configurationResource));
         requestTask.setTemplate(objectMapper.writeValueAsString(templateResource));
 
-        Assertions.assertThrows(UnprocessableEntityException.class, () -> executorController.createTaskEndpoint(requestTask));
+        Assertions.assertThrows(UnprocessableEntityException.class, () -> executorController.createTaskEndpoint(requestTask, null));
 
         wireMockServer.stop();
     }
 
     @BeforeEach
     public void populateDb() {
-        List<PipelineRun> runs = pipelineRunRepository.findAll();
-        if (pipelineRunRepository.findById(1L).isEmpty()) {
+        if (pipelineRunRepository.findByTaskId(2L).isEmpty()) {
             PipelineRun pipelineRun = new PipelineRun();
-            pipelineRun.setPipelineRunId(1L);
             pipelineRun.setRunId("2");
-            pipelineRun.setFinishedAt(new Date().toString());
+            pipelineRun.setFinishedAt(OffsetDateTime.now());
             pipelineRun.setProject("1000");
-            pipelineRun.setVariables(List.of());
             pipelineRun.setTaskId(2L);
             pipelineRun.setStatus(GitlabRunState.success);
             pipelineRun.setGitlabInstanceUrl(INSTANCE_URL);
-            pipelineRun.setCreatedAt(new Date().toString());
+            pipelineRun.setCreatedAt(OffsetDateTime.now());
             pipelineRunRepository.saveAndFlush(pipelineRun);
         }
     }
 
     @Test
-    public void testReadTaskSuccess() throws JsonProcessingException, ExecutionException, InterruptedException {
-        wireMockServer = new WireMockServer();
+    public void testReadTaskSuccess() {
+        TaskStatus status = (TaskStatus) executorController.readTaskStatus(2L, null).getResult();
+        Assertions.assertEquals(TaskStatus.PROCESSED, status);
+    }
+
+    @Test
+    public void testReadTaskConditional() {
+        ResponseEntity<TaskStatus> response = (ResponseEntity<TaskStatus>) executorController.readTaskStatusEndpoint(2L, null, null).getResult();
+        Assertions.assertEquals(HttpStatus.OK, response.getStatusCode());
+        Assertions.assertEquals(TaskStatus.PROCESSED, response.getBody());
+        String eTag = response.getHeaders().getETag();
+        Assertions.assertNotNull(eTag);
+
+        ResponseEntity<TaskStatus> notModified = (ResponseEntity<TaskStatus>) executorController.readTaskStatusEndpoint(2L, null, eTag).getResult();
+        Assertions.assertEquals(HttpStatus.NOT_MODIFIED, notModified.getStatusCode());
+        Assertions.assertEquals(eTag, notModified.getHeaders().getETag());
+        Assertions.assertNull(notModified.getBody());
+
+        // An outdated ETag is answered at once, even when waiting for a change.
+        ResponseEntity<TaskStatus> modified = (ResponseEntity<TaskStatus>) executorController.readTaskStatusEndpoint(2L, 30, "\"0-PROCESSING\"").getResult();
+        Assertions.assertEquals(HttpStatus.OK, modified.getStatusCode());
+        Assertions.assertEquals(TaskStatus.PROCESSED, modified.getBody());
+    }
+
+    @Test
+    public void testReadTaskTerminalStatusCached() {
+        PipelineRun pipelineRun = new PipelineRun();
+        pipelineRun.setRunId("26");
+        pipelineRun.setProject("1000");
+        pipelineRun.setTaskId(26L);
+        pipelineRun.setStatus(GitlabRunState.success);
+        pipelineRun.setGitlabInstanceUrl(INSTANCE_URL);
+        pipelineRunRepository.saveAndFlush(pipelineRun);
+        Assertions.assertEquals(TaskStatus.PROCESSED, executorController.readTaskStatus(26L, null).getResult());
+
+        // A terminal status is served from cache, without reading the database.
+        pipelineRunRepository.delete(pipelineRunRepository.findByTaskId(26L).orElseThrow());
+        Assertions.assertEquals(TaskStatus.PROCESSED, executorController.readTaskStatus(26L, null).getResult());
+
+        taskStatusCache.invalidate(26L);
+        Assertions.assertThrows(NotFoundException.class, () -> executorController.readTaskStatus(26L, null).getResult());
+    }
+
+    @Test
+    public void testArchiveCompletedRun() throws JsonProcessingException {
+        PipelineRun pipelineRun = new PipelineRun();
+        pipelineRun.setRunId("27");
+        pipelineRun.setProject("1000");
+        pipelineRun.setTaskId(27L);
+        pipelineRun.setStatus(GitlabRunState.failed);
+        pipelineRun.setGitlabInstanceUrl(INSTANCE_URL);
+        pipelineRun.setCreatedAt(OffsetDateTime.now().minusDays(61));
+        pipelineRun.setFinishedAt(OffsetDateTime.now().minusDays(60));
+        pipelineRunRepository.saveAndFlush(pipelineRun);
+
+        Assertions.assertTrue(pipelineRunArchiver.archiveCompletedRuns(OffsetDateTime.now().minusDays(30)) >= 1);
+        Assertions.assertTrue(pipelineRunRepository.findByTaskId(27L).isEmpty());
+        Assertions.assertEquals(GitlabRunState.failed,
+                pipelineRunArchiveRepository.findFirstByTaskIdOrderByArchivedAtDesc(27L).orElseThrow().getStatus());
+        // The status of an archived task is read from the archive.
+        Assertions.assertEquals(TaskStatus.FAILED, executorController.readTaskStatus(27L, null).getResult());
+
+        // A retried submission of the archived task does not trigger a second pipeline.
+        WireMock.stubFor(get(urlMatching("/api/v1/pp/params/params/filter\\?name=.*"))
+                .willReturn(
+                        aResponse()
+                                .withStatus(200)
+                                .withHeader("Content-Type", "application/json")
+                                .withBody(objectMapper.writeValueAsString(responseParam))
+                )
+        );
+        TaskResource requestTask = new TaskResource();
+        requestTask.setId(27L);
+        requestTask.setStatus(TaskStatus.PLANNED);
+        requestTask.setActivityId(UUIDCode);
+        ConfigurationResource configurationResource = new ConfigurationResource();
+        configurationResource.setParams(Map.of(
+                "gitlabInstanceUrl", INSTANCE_URL
+        ));
+        TemplateResource templateResource = new TemplateResource();
+        templateResource.setProjectId("1023");
+        templateResource.setBranch("master");
+        requestTask.setConfigurations(objectMapper.writeValueAsString(configurationResource));
+        requestTask.setTemplate(objectMapper.writeValueAsString(templateResource));
+
+        executorController.createTaskEndpoint(requestTask, null);
+        executorController.createTaskEndpoint(requestTask, "respond-async");
+
+        WireMock.verify(0, postRequestedFor(urlMatching("/api/v4/projects/1023/pipeline")));
+        Assertions.assertTrue(pipelineRunRepository.findByTaskId(27L).isEmpty());
+        Assertions.assertEquals(TaskStatus.FAILED, executorController.readTaskStatus(27L, null).getResult());
+    }
 
-        WireMock.stubFor(get(urlMatching("/api/v4/projects/1000/pipelines/1"))
+    @Test
+    public void testSaturatedExecutorStillAcceptsTasks() throws Exception {
+        gitlabRunResourceResponse.setId("28");
+        WireMock.stubFor(post(urlMatching("/api/v4/projects/1016/pipeline"))
                 .willReturn(
                         aResponse()
                                 .withStatus(201)
@@ -335,6 +841,83 @@ public class GitlabExecutorControllerTest {
                                 .withBody(objectMapper.writeValueAsString(gitlabRunResourceResponse))
                 ))
         ;
+        WireMock.stubFor(get(urlMatching("/api/v1/pp/params/params/filter\\?name=.*"))
+                .willReturn(
+                        aResponse()
+                                .withStatus(200)
+                                .withHeader("Content-Type", "application/json")
+                                .withBody(objectMapper.writeValueAsString(responseParam))
+                )
+        );
+        TaskResource requestTask = new TaskResource();
+        requestTask.setId(Long.parseLong("28"));
+        requestTask.setStatus(TaskStatus.PLANNED);
+        requestTask.setActivityId(UUIDCode);
+        ConfigurationResource configurationResource = new ConfigurationResource();
+        configurationResource.setParams(Map.of(
+                "gitlabInstanceUrl", INSTANCE_URL
+        ));
+        TemplateResource templateResource = new TemplateResource();
+        templateResource.setProjectId("1016");
+        templateResource.setBranch("master");
+        requestTask.setConfigurations(objectMapper.writeValueAsString(configurationResource));
+        requestTask.setTemplate(objectMapper.writeValueAsString(templateResource));
+
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            // Core threads, queue and extra threads are filled by blocked tasks, until a task is rejected.
+            boolean saturated = false;
+            for (int i = 0; i < 1000 && !saturated; i++) {
+                try {
+                    pipelineTaskExecutor.execute(() -> {
+                        try {
+                            release.await(30, TimeUnit.SECONDS);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    saturated = true;
+                }
+            }
+            Assertions.assertTrue(saturated);
+
+            // The saturated executor does not fail the request: the task is left to the dispatch worker.
+            ResponseEntity<TaskResource> response = executorController.createTaskEndpoint(requestTask, "respond-async");
+            Assertions.assertEquals(HttpStatus.ACCEPTED, response.getStatusCode());
+            Assertions.assertEquals(PipelineRun.DispatchStatus.PENDING, pipelineRunRepository.findByTaskId(28L).orElseThrow().getDispatchStatus());
+        } finally {
+            release.countDown();
+        }
+
+        long deadline = System.currentTimeMillis() + 10_000;
+        PipelineRun pipelineRun = pipelineRunRepository.findByTaskId(28L).orElseThrow();
+        while (pipelineRun.getDispatchStatus() != PipelineRun.DispatchStatus.TRIGGERED && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+            pipelineDispatchWorker.dispatchPendingRuns();
+            pipelineRun = pipelineRunRepository.findByTaskId(28L).orElseThrow();
+        }
+        Assertions.assertEquals(PipelineRun.DispatchStatus.TRIGGERED, pipelineRun.getDispatchStatus());
+        WireMock.verify(1, postRequestedFor(urlMatching("/api/v4/projects/1016/pipeline")));
+    }
+
+    @Test
+    public void testReadTaskNotExistingPipeline() {
+        Assertions.assertThrows(NotFoundException.class, () -> executorController.readTaskStatus(4L, null).getResult());
+    }
+
+    @Test
+    public void testSynchronizeActiveRun() throws JsonProcessingException {
+        wireMockServer = new WireMockServer();
+
+        WireMock.stubFor(get(urlMatching("/api/v4/projects/1000/pipelines/3"))
+                .willReturn(
+                        aResponse()
+                                .withStatus(200)
+                                .withHeader("Content-Type", "application/json")
+                                .withBody(objectMapper.writeValueAsString(gitlabRunResourceResponse))
+                ))
+        ;
 
         WireMock.stubFor(get(urlMatching("/api/v1/pp/params/params/filter\\?name=.*"))
                 .willReturn(
@@ -345,21 +928,225 @@ public class GitlabExecutorControllerTest {
                 )
         );
 
-        TaskStatus status = executorController.readTaskStatus(1L);
-        Assertions.assertEquals(TaskStatus.PROCESSED, status);
+        // Stubs are registered before the run, so that a background poll can only succeed.
+        PipelineRun pipelineRun = pipelineRunRepository.findByTaskId(3L).orElseGet(PipelineRun::new);
+        pipelineRun.setRunId("3");
+        pipelineRun.setProject("1000");
+        pipelineRun.setTaskId(3L);
+        pipelineRun.setStatus(GitlabRunState.running);
+        pipelineRun.setGitlabInstanceUrl(INSTANCE_URL);
+        pipelineRun.setCreatedAt(OffsetDateTime.now());
+        pipelineRunRepository.saveAndFlush(pipelineRun);
+
+        Assertions.assertEquals(TaskStatus.PROCESSING, executorController.readTaskStatus(3L, null).getResult());
+        pipelineStatusSynchronizer.synchronizeActiveRuns();
+        Assertions.assertEquals(TaskStatus.PROCESSED, executorController.readTaskStatus(3L, null).getResult());
         wireMockServer.stop();
     }
 
     @Test
-    public void testReadTaskNotExistingPipeline() {
-        Assertions.assertThrows(ExecutionException.class, () -> executorController.readTaskStatus(4L));
+    public void testRefreshCoalesced() throws Exception {
+        gitlabRunResourceResponse.setId("25");
+        WireMock.stubFor(get(urlMatching("/api/v4/projects/1000/pipelines/25"))
+                .willReturn(
+                        aResponse()
+                                .withStatus(200)
+                                .withFixedDelay(500)
+                                .withHeader("Content-Type", "application/json")
+                                .withBody(objectMapper.writeValueAsString(gitlabRunResourceResponse))
+                ))
+        ;
+
+        WireMock.stubFor(get(urlMatching("/api/v1/pp/params/params/filter\\?name=.*"))
+                .willReturn(
+                        aResponse()
+                                .withStatus(200)
+                                .withHeader("Content-Type", "application/json")
+                                .withBody(objectMapper.writeValueAsString(responseParam))
+                )
+        );
+
+        // A recent event keeps the run out of the background polling.
+        PipelineRun pipelineRun = new PipelineRun();
+        pipelineRun.setRunId("25");
+        pipelineRun.setProject("1000");
+        pipelineRun.setTaskId(25L);
+        pipelineRun.setStatus(GitlabRunState.running);
+        pipelineRun.setGitlabInstanceUrl(INSTANCE_URL);
+        pipelineRun.setLastEventAt(OffsetDateTime.now());
+        PipelineRun savedPipelineRun = pipelineRunRepository.saveAndFlush(pipelineRun);
+
+        ExecutorService callers = Executors.newFixedThreadPool(4);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<PipelineRun>> refreshes = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                refreshes.add(callers.submit(() -> {
+                    start.await();
+                    return pipelineService.refreshPipelineRun(savedPipelineRun);
+                }));
+            }
+            start.countDown();
+            for (Future<PipelineRun> refresh : refreshes) {
+                Assertions.assertEquals(GitlabRunState.success, refresh.get(10, TimeUnit.SECONDS).getStatus());
+            }
+        } finally {
+            callers.shutdownNow();
+        }
+        WireMock.verify(1, getRequestedFor(urlMatching("/api/v4/projects/1000/pipelines/25")));
+        Assertions.assertEquals(TaskStatus.PROCESSED, executorController.readTaskStatus(25L, null).getResult());
+    }
+
+    @Test
+    public void testRefreshPipelineRunsInBatch() throws JsonProcessingException {
+        WireMock.stubFor(get(urlMatching("/api/v1/pp/params/params/filter\\?name=.*"))
+                .willReturn(
+                        aResponse()
+                                .withStatus(200)
+                                .withHeader("Content-Type", "application/json")
+                                .withBody(objectMapper.writeValueAsString(responseParam))
+                )
+        );
+        gitlabRunResourceResponse.setId("31");
+        gitlabRunResourceResponse.setStatus(GitlabRunState.success.toString());
+        String firstPage = objectMapper.writeValueAsString(List.of(gitlabRunResourceResponse));
+        gitlabRunResourceResponse.setId("32");
+        gitlabRunResourceResponse.setStatus(GitlabRunState.failed.toString());
+        String secondPage = objectMapper.writeValueAsString(List.of(gitlabRunResourceResponse));
+        WireMock.stubFor(get(urlPathEqualTo("/api/v4/projects/1004/pipelines"))
+                .withQueryParam("page", equalTo("1"))
+                .willReturn(
+                        aResponse()
+                                .withStatus(200)
+                                .withHeader("Content-Type", "application/json")
+                                .withHeader("X-Next-Page", "2")
+                                .withBody(firstPage)
+                ));
+        WireMock.stubFor(get(urlPathEqualTo("/api/v4/projects/1004/pipelines"))
+                .withQueryParam("page", equalTo("2"))
+                .willReturn(
+                        aResponse()
+                                .withStatus(200)
+                                .withHeader("Content-Type", "application/json")
+                                .withHeader("X-Next-Page", "")
+                                .withBody(secondPage)
+                ));
+
+        // A recent event keeps the runs out of the background polling.
+        List<PipelineRun> pipelineRuns = new ArrayList<>();
+        for (long taskId = 31; taskId <= 33; taskId++) {
+            PipelineRun pipelineRun = new PipelineRun();
+            pipelineRun.setRunId(Long.toString(taskId));
+            pipelineRun.setProject("1004");
+            pipelineRun.setTaskId(taskId);
+            pipelineRun.setStatus(GitlabRunState.running);
+            pipelineRun.setGitlabInstanceUrl(INSTANCE_URL);
+            pipelineRun.setLastEventAt(OffsetDateTime.now());
+            pipelineRuns.add(pipelineRunRepository.saveAndFlush(pipelineRun));
+        }
+
+        // Pipeline 33 is not in the list (not updated since the given instant): its run keeps its status.
+        Assertions.assertEquals(2, pipelineService.refreshPipelineRuns(INSTANCE_URL, "1004", pipelineRuns, null));
+        WireMock.verify(2, getRequestedFor(urlPathEqualTo("/api/v4/projects/1004/pipelines")));
+        Assertions.assertEquals(GitlabRunState.success, pipelineRunRepository.findByTaskId(31L).orElseThrow().getStatus());
+        Assertions.assertEquals(GitlabRunState.failed, pipelineRunRepository.findByTaskId(32L).orElseThrow().getStatus());
+        Assertions.assertEquals(GitlabRunState.running, pipelineRunRepository.findByTaskId(33L).orElseThrow().getStatus());
+    }
+
+    @Test
+    public void testAcceptPipelinesInBatch() {
+        List<PipelineSubmission> submissions = List.of(submission(46L, "1021"), submission(47L, "1021"), submission(48L, "1021"));
+
+        pipelineService.acceptPipelines(submissions);
+
+        List<Long> pipelineRunIds = new ArrayList<>();
+        for (PipelineSubmission submission : submissions) {
+            Assertions.assertTrue(submission.isQueued());
+            Assertions.assertNull(submission.getError());
+            pipelineRunIds.add(pipelineRunRepository.findByTaskId(submission.getTask().getId()).orElseThrow().getPipelineRunId());
+        }
+        // The ids come from a block reserved with a single call to PIPELINE_RUNS_SEQ.
+        Assertions.assertEquals(50L, jdbcTemplate.queryForObject(
+                "SELECT INCREMENT FROM INFORMATION_SCHEMA.SEQUENCES WHERE SEQUENCE_NAME = 'PIPELINE_RUNS_SEQ'", Long.class));
+        Assertions.assertEquals(pipelineRunIds.get(0) + 1, pipelineRunIds.get(1));
+        Assertions.assertEquals(pipelineRunIds.get(1) + 1, pipelineRunIds.get(2));
+    }
+
+    @Test
+    public void testAcceptPipelinesInBatchWithExistingTask() {
+        pipelineService.acceptPipelines(List.of(submission(49L, "1021")));
+        Long existingPipelineRunId = pipelineRunRepository.findByTaskId(49L).orElseThrow().getPipelineRunId();
+        List<PipelineSubmission> submissions = List.of(submission(63L, "1021"), submission(49L, "1021"), submission(64L, "1021"));
+
+        // The batch fails on the existing task and the tasks are accepted one by one.
+        pipelineService.acceptPipelines(submissions);
+
+        for (PipelineSubmission submission : submissions) {
+            Assertions.assertTrue(submission.isQueued());
+            Assertions.assertNull(submission.getError());
+        }
+        Assertions.assertEquals(existingPipelineRunId, pipelineRunRepository.findByTaskId(49L).orElseThrow().getPipelineRunId());
+        Assertions.assertTrue(pipelineRunRepository.findByTaskId(63L).isPresent());
+        Assertions.assertTrue(pipelineRunRepository.findByTaskId(64L).isPresent());
+    }
+
+    @Test
+    public void testRefreshPipelineRunsInBatchWithConflict() throws JsonProcessingException {
+        WireMock.stubFor(get(urlMatching("/api/v1/pp/params/params/filter\\?name=.*"))
+                .willReturn(
+                        aResponse()
+                                .withStatus(200)
+                                .withHeader("Content-Type", "application/json")
+                                .withBody(objectMapper.writeValueAsString(responseParam))
+                )
+        );
+        List<GitlabRunResourceResponse> pipelines = new ArrayList<>();
+        for (String runId : new String[]{"65", "66"}) {
+            GitlabRunResourceResponse pipeline = new GitlabRunResourceResponse();
+            pipeline.setId(runId);
+            pipeline.setIid(runId);
+            pipeline.setProjectId(1022);
+            pipeline.setStatus(GitlabRunState.success.toString());
+            pipeline.setUpdatedAt(ZonedDateTime.now());
+            pipelines.add(pipeline);
+        }
+        WireMock.stubFor(get(urlPathEqualTo("/api/v4/projects/1022/pipelines"))
+                .willReturn(
+                        aResponse()
+                                .withStatus(200)
+                                .withHeader("Content-Type", "application/json")
+                                .withBody(objectMapper.writeValueAsString(pipelines))
+                ));
+
+        // A recent event keeps the runs out of the background polling.
+        List<PipelineRun> pipelineRuns = new ArrayList<>();
+        for (long taskId = 65; taskId <= 66; taskId++) {
+            PipelineRun pipelineRun = new PipelineRun();
+            pipelineRun.setRunId(Long.toString(taskId));
+            pipelineRun.setProject("1022");
+            pipelineRun.setTaskId(taskId);
+            pipelineRun.setStatus(GitlabRunState.running);
+            pipelineRun.setGitlabInstanceUrl(INSTANCE_URL);
+            pipelineRun.setLastEventAt(OffsetDateTime.now());
+            pipelineRuns.add(pipelineRunRepository.saveAndFlush(pipelineRun));
+        }
+        // Run 66 is updated (e.g. by a webhook) after being read: its copy is stale.
+        PipelineRun concurrentUpdate = pipelineRunRepository.findByTaskId(66L).orElseThrow();
+        concurrentUpdate.setStatus(GitlabRunState.canceled);
+        pipelineRunRepository.saveAndFlush(concurrentUpdate);
+
+        pipelineService.refreshPipelineRuns(INSTANCE_URL, "1022", pipelineRuns, null);
+
+        // The batch fails on the stale run, the changes are saved one by one and only the stale one is skipped.
+        Assertions.assertEquals(GitlabRunState.success, pipelineRunRepository.findByTaskId(65L).orElseThrow().getStatus());
+        Assertions.assertEquals(GitlabRunState.canceled, pipelineRunRepository.findByTaskId(66L).orElseThrow().getStatus());
     }
 
     @Test
     public void testReadTask400ErrorServer() throws JsonProcessingException {
         wireMockServer = new WireMockServer();
 
-        WireMock.stubFor(get(urlMatching("/api/v4/projects/1000/pipelines/1"))
+        WireMock.stubFor(get(urlMatching("/api/v4/projects/1000/pipelines/2"))
                 .willReturn(
                         aResponse()
                                 .withStatus(400)
@@ -377,7 +1164,8 @@ public class GitlabExecutorControllerTest {
                 )
         );
 
-        Assertions.assertThrows(ExecutionException.class, () -> executorController.readTaskStatus(1L));
+        PipelineRun pipelineRun = pipelineRunRepository.findByTaskId(2L).orElseThrow();
+        Assertions.assertThrows(InternalServerException.class, () -> pipelineService.refreshPipelineRun(pipelineRun));
         wireMockServer.stop();
 
     }
@@ -386,7 +1174,7 @@ public class GitlabExecutorControllerTest {
     public void testReadTask401ErrorServer() throws JsonProcessingException {
         wireMockServer = new WireMockServer();
 
-        WireMock.stubFor(get(urlMatching("/api/v4/projects/1000/pipelines/1"))
+        WireMock.stubFor(get(urlMatching("/api/v4/projects/1000/pipelines/2"))
                 .willReturn(
                         aResponse()
                                 .withStatus(401)
@@ -404,7 +1192,8 @@ public class GitlabExecutorControllerTest {
                 )
         );
 
-        Assertions.assertThrows(ExecutionException.class, () -> executorController.readTaskStatus(1L));
+        PipelineRun pipelineRun = pipelineRunRepository.findByTaskId(2L).orElseThrow();
+        Assertions.assertThrows(InternalServerException.class, () -> pipelineService.refreshPipelineRun(pipelineRun));
         wireMockServer.stop();
     }
 
@@ -412,7 +1201,7 @@ public class GitlabExecutorControllerTest {
     public void testReadTask403ErrorServer() throws JsonProcessingException {
         wireMockServer = new WireMockServer();
 
-        WireMock.stubFor(get(urlMatching("/api/v4/projects/1000/pipelines/1"))
+        WireMock.stubFor(get(urlMatching("/api/v4/projects/1000/pipelines/2"))
                 .willReturn(
                         aResponse()
                                 .withStatus(403)
@@ -430,7 +1219,27 @@ public class GitlabExecutorControllerTest {
                 )
         );
 
-        Assertions.assertThrows(ExecutionException.class, () -> executorController.readTaskStatus(1L));
+        PipelineRun pipelineRun = pipelineRunRepository.findByTaskId(2L).orElseThrow();
+        Assertions.assertThrows(InternalServerException.class, () -> pipelineService.refreshPipelineRun(pipelineRun));
         wireMockServer.stop();
     }
+
+    private PipelineSubmission submission(Long taskId, String project) {
+        TaskResource task = new TaskResource();
+        task.setId(taskId);
+        task.setStatus(TaskStatus.PLANNED);
+        task.setActivityId(UUIDCode);
+        ConfigurationResource configurationResource = new ConfigurationResource();
+        configurationResource.setParams(Map.of(
+                "gitlabInstanceUrl", INSTANCE_URL
+        ));
+        TemplateResource templateResource = new TemplateResource();
+        templateResource.setProjectId(project);
+        templateResource.setBranch("master");
+        PipelineSubmission submission = new PipelineSubmission(task);
+        submission.setConfiguration(configurationResource);
+        submission.setTemplate(templateResource);
+        submission.setGitlabInstanceUrl(INSTANCE_URL);
+        return submission;
+    }
 }
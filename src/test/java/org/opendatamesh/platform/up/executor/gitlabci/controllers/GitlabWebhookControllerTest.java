@@ -0,0 +1,268 @@
+package org.opendatamesh.platform.up.executor.gitlabci.controllers;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.tomakehurst.wiremock.client.WireMock;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.opendatamesh.platform.up.executor.gitlabci.clients.DevOpsCallbackClient;
+import org.opendatamesh.platform.up.executor.gitlabci.dao.CallbackDelivery;
+import org.opendatamesh.platform.up.executor.gitlabci.dao.CallbackDeliveryRepository;
+import org.opendatamesh.platform.up.executor.gitlabci.dao.PipelineRun;
+import org.opendatamesh.platform.up.executor.gitlabci.dao.PipelineRunRepository;
+import org.opendatamesh.platform.up.executor.gitlabci.resources.TaskStatus;
+import org.opendatamesh.platform.up.executor.gitlabci.resources.client.gitlab.GitlabPipelineEventResource;
+import org.opendatamesh.platform.up.executor.gitlabci.resources.client.gitlab.GitlabRunState;
+import org.opendatamesh.platform.up.executor.gitlabci.resources.client.params.ParamResource;
+import org.opendatamesh.platform.up.executor.gitlabci.resources.exceptions.ODMApiExceptionHandler;
+import org.opendatamesh.platform.up.executor.gitlabci.resources.exceptions.UnauthorizedException;
+import org.opendatamesh.platform.up.executor.gitlabci.services.CallbackDeliveryWorker;
+import org.opendatamesh.platform.up.executor.gitlabci.services.TaskStatusCache;
+import org.opendatamesh.platform.up.executor.gitlabci.services.TaskStatusWaiters;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.time.OffsetDateTime;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+
+@SpringBootTest
+@AutoConfigureWireMock(port = 8004)
+public class GitlabWebhookControllerTest {
+    ObjectMapper objectMapper = new ObjectMapper();
+    ParamResource responseParam = new ParamResource();
+
+    @Autowired
+    private GitlabWebhookController webhookController;
+    @Autowired
+    private GitlabExecutorController executorController;
+    @Autowired
+    private PipelineRunRepository pipelineRunRepository;
+    @Autowired
+    private CallbackDeliveryRepository callbackDeliveryRepository;
+    @Autowired
+    private CallbackDeliveryWorker callbackDeliveryWorker;
+    @Autowired
+    private TaskStatusCache taskStatusCache;
+    @Autowired
+    private TaskStatusWaiters taskStatusWaiters;
+    private final static String INSTANCE_URL = "http://localhost:8004";
+    private final static String WEBHOOK_SECRET = "SECRET_VALUE";
+    private final static String PIPELINE_HOOK = "Pipeline Hook";
+
+    @BeforeEach
+    void setup() throws JsonProcessingException {
+        responseParam.setId(Long.parseLong("1"));
+        responseParam.setDisplayName(INSTANCE_URL);
+        responseParam.setParamName(INSTANCE_URL);
+        responseParam.setParamValue(WEBHOOK_SECRET);
+
+        WireMock.stubFor(get(urlMatching("/api/v1/pp/params/params/filter\\?name=.*"))
+                .willReturn(
+                        aResponse()
+                                .withStatus(200)
+                                .withHeader("Content-Type", "application/json")
+                                .withBody(objectMapper.writeValueAsString(responseParam))
+                )
+        );
+
+        PipelineRun pipelineRun = pipelineRunRepository.findByTaskId(50L).orElseGet(PipelineRun::new);
+        pipelineRun.setRunId("50");
+        pipelineRun.setProject("1000");
+        pipelineRun.setTaskId(50L);
+        pipelineRun.setStatus(GitlabRunState.running);
+        pipelineRun.setFinishedAt(null);
+        pipelineRun.setGitlabInstanceUrl(INSTANCE_URL);
+        pipelineRun.setCreatedAt(OffsetDateTime.now());
+        pipelineRunRepository.saveAndFlush(pipelineRun);
+        // The run is reset behind the service, so its cached status is stale.
+        taskStatusCache.invalidate(50L);
+    }
+
+    @Test
+    public void testPipelineEventUpdatesRun() {
+        webhookController.receivePipelineEvent(INSTANCE_URL, WEBHOOK_SECRET, PIPELINE_HOOK, pipelineEvent("50", "success"));
+
+        Assertions.assertEquals(TaskStatus.PROCESSED, executorController.readTaskStatus(50L, null).getResult());
+        PipelineRun pipelineRun = pipelineRunRepository.findByTaskId(50L).orElseThrow();
+        Assertions.assertNotNull(pipelineRun.getLastEventAt());
+        Assertions.assertNotNull(pipelineRun.getFinishedAt());
+    }
+
+    @Test
+    public void testLongPollCompletesOnStatusChange() {
+        DeferredResult<TaskStatus> result = executorController.readTaskStatus(50L, 30);
+        Assertions.assertFalse(result.hasResult());
+
+        webhookController.receivePipelineEvent(INSTANCE_URL, WEBHOOK_SECRET, PIPELINE_HOOK, pipelineEvent("50", "canceled"));
+
+        Assertions.assertTrue(result.hasResult());
+        Assertions.assertEquals(TaskStatus.ABORTED, result.getResult());
+    }
+
+    @Test
+    public void testLongPollCompletesOnStatusSavedElsewhere() {
+        DeferredResult<TaskStatus> result = executorController.readTaskStatus(50L, 30);
+        Assertions.assertFalse(result.hasResult());
+
+        // As if saved by another instance of the executor: no event is published here.
+        PipelineRun pipelineRun = pipelineRunRepository.findByTaskId(50L).orElseThrow();
+        pipelineRun.setStatus(GitlabRunState.success);
+        pipelineRunRepository.saveAndFlush(pipelineRun);
+        Assertions.assertFalse(result.hasResult());
+
+        taskStatusWaiters.recheckWaitingTasks();
+
+        Assertions.assertTrue(result.hasResult());
+        Assertions.assertEquals(TaskStatus.PROCESSED, result.getResult());
+        Assertions.assertEquals(TaskStatus.PROCESSED, executorController.readTaskStatus(50L, null).getResult());
+    }
+
+    @Test
+    public void testPipelineEventWithInvalidSecret() {
+        Assertions.assertThrows(UnauthorizedException.class, () -> webhookController.receivePipelineEvent(
+                INSTANCE_URL, "WRONG_SECRET", PIPELINE_HOOK, pipelineEvent("50", "success")));
+        Assertions.assertThrows(UnauthorizedException.class, () -> webhookController.receivePipelineEvent(
+                INSTANCE_URL, null, PIPELINE_HOOK, pipelineEvent("50", "success")));
+
+        Assertions.assertEquals(TaskStatus.PROCESSING, executorController.readTaskStatus(50L, null).getResult());
+    }
+
+    @Test
+    public void testPipelineEventWithInvalidSecretIsUnauthorized() throws Exception {
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(webhookController)
+                .setControllerAdvice(new ODMApiExceptionHandler())
+                .build();
+        mockMvc.perform(MockMvcRequestBuilders.post("/webhooks/gitlab")
+                        .param("gitlabInstanceUrl", INSTANCE_URL)
+                        .header("X-Gitlab-Token", "WRONG_SECRET")
+                        .header("X-Gitlab-Event", PIPELINE_HOOK)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(pipelineEvent("50", "success"))))
+                .andExpect(MockMvcResultMatchers.status().isUnauthorized())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.code").value("40102"));
+    }
+
+    @Test
+    public void testOtherEventsAreIgnored() {
+        webhookController.receivePipelineEvent(INSTANCE_URL, WEBHOOK_SECRET, "Push Hook", pipelineEvent("50", "success"));
+
+        Assertions.assertEquals(TaskStatus.PROCESSING, executorController.readTaskStatus(50L, null).getResult());
+    }
+
+    @Test
+    public void testPipelineEventForUnknownRun() {
+        Assertions.assertDoesNotThrow(() -> webhookController.receivePipelineEvent(
+                INSTANCE_URL, WEBHOOK_SECRET, PIPELINE_HOOK, pipelineEvent("999", "success")));
+    }
+
+    @Test
+    public void testPipelineEventWithUnknownStatus() {
+        OffsetDateTime lastEventAt = pipelineRunRepository.findByTaskId(50L).orElseThrow().getLastEventAt();
+
+        // Answered without error, so GitLab does not disable the hook; the synchronizer keeps polling the run.
+        Assertions.assertDoesNotThrow(() -> webhookController.receivePipelineEvent(
+                INSTANCE_URL, WEBHOOK_SECRET, PIPELINE_HOOK, pipelineEvent("50", "waiting_for_resource_v2")));
+
+        Assertions.assertEquals(TaskStatus.PROCESSING, executorController.readTaskStatus(50L, null).getResult());
+        Assertions.assertEquals(lastEventAt, pipelineRunRepository.findByTaskId(50L).orElseThrow().getLastEventAt());
+    }
+
+    @Test
+    public void testTerminalEventDeliversCallback() throws InterruptedException {
+        String callbackPath = "/api/v1/pp/devops/tasks/51/status";
+        WireMock.stubFor(post(urlEqualTo(callbackPath))
+                .willReturn(aResponse().withStatus(200)));
+
+        PipelineRun pipelineRun = pipelineRunRepository.findByTaskId(51L).orElseGet(PipelineRun::new);
+        pipelineRun.setRunId("51");
+        pipelineRun.setProject("1000");
+        pipelineRun.setTaskId(51L);
+        pipelineRun.setStatus(GitlabRunState.running);
+        pipelineRun.setGitlabInstanceUrl(INSTANCE_URL);
+        pipelineRun.setCallbackRef(INSTANCE_URL + callbackPath);
+        pipelineRunRepository.saveAndFlush(pipelineRun);
+
+        webhookController.receivePipelineEvent(INSTANCE_URL, WEBHOOK_SECRET, PIPELINE_HOOK, pipelineEvent("51", "failed"));
+        // A second terminal event must not enqueue a second callback.
+        webhookController.receivePipelineEvent(INSTANCE_URL, WEBHOOK_SECRET, PIPELINE_HOOK, pipelineEvent("51", "failed"));
+
+        callbackDeliveryWorker.deliverDueCallbacks();
+        CallbackDelivery callbackDelivery = null;
+        for (int i = 0; i < 50; i++) {
+            callbackDelivery = callbackDeliveryRepository.findAll().stream()
+                    .filter(c -> c.getTaskId().equals(51L))
+                    .findFirst().orElseThrow();
+            if (callbackDelivery.getDeliveryStatus() == CallbackDelivery.DeliveryStatus.DELIVERED) {
+                break;
+            }
+            Thread.sleep(100);
+        }
+
+        Assertions.assertEquals(1, callbackDeliveryRepository.findAll().stream().filter(c -> c.getTaskId().equals(51L)).count());
+        Assertions.assertEquals(TaskStatus.FAILED, callbackDelivery.getStatus());
+        Assertions.assertEquals(CallbackDelivery.DeliveryStatus.DELIVERED, callbackDelivery.getDeliveryStatus());
+        WireMock.verify(1, postRequestedFor(urlEqualTo(callbackPath))
+                .withHeader(DevOpsCallbackClient.IDEMPOTENCY_KEY_HEADER, equalTo("gitlab-task-51-FAILED")));
+    }
+
+    @Test
+    public void testInvalidCallbackRefFails() throws InterruptedException {
+        // An invalid reference is recorded as failed when the callback is enqueued.
+        PipelineRun pipelineRun = pipelineRunRepository.findByTaskId(52L).orElseGet(PipelineRun::new);
+        pipelineRun.setRunId("52");
+        pipelineRun.setProject("1000");
+        pipelineRun.setTaskId(52L);
+        pipelineRun.setStatus(GitlabRunState.running);
+        pipelineRun.setGitlabInstanceUrl(INSTANCE_URL);
+        pipelineRun.setCallbackRef("not a url");
+        pipelineRunRepository.saveAndFlush(pipelineRun);
+        webhookController.receivePipelineEvent(INSTANCE_URL, WEBHOOK_SECRET, PIPELINE_HOOK, pipelineEvent("52", "success"));
+        CallbackDelivery enqueued = callbackDeliveryRepository.findAll().stream()
+                .filter(c -> c.getTaskId().equals(52L))
+                .findFirst().orElseThrow();
+        Assertions.assertEquals(CallbackDelivery.DeliveryStatus.FAILED, enqueued.getDeliveryStatus());
+
+        // A reference the client cannot expand fails at the first attempt instead of being claimed forever.
+        CallbackDelivery callbackDelivery = new CallbackDelivery();
+        callbackDelivery.setTaskId(53L);
+        callbackDelivery.setStatus(TaskStatus.PROCESSED);
+        callbackDelivery.setCallbackRef(INSTANCE_URL + "/api/v1/pp/devops/tasks/{taskId}/status");
+        callbackDelivery.setTargetHost("localhost");
+        callbackDelivery.setDeliveryStatus(CallbackDelivery.DeliveryStatus.PENDING);
+        callbackDelivery.setAttempts(0);
+        callbackDelivery.setCreatedAt(OffsetDateTime.now());
+        callbackDelivery.setNextAttemptAt(callbackDelivery.getCreatedAt());
+        Long callbackId = callbackDeliveryRepository.saveAndFlush(callbackDelivery).getCallbackId();
+
+        callbackDeliveryWorker.deliverDueCallbacks();
+        for (int i = 0; i < 50; i++) {
+            callbackDelivery = callbackDeliveryRepository.findById(callbackId).orElseThrow();
+            if (callbackDelivery.getDeliveryStatus() != CallbackDelivery.DeliveryStatus.PENDING) {
+                break;
+            }
+            Thread.sleep(100);
+        }
+        Assertions.assertEquals(CallbackDelivery.DeliveryStatus.FAILED, callbackDelivery.getDeliveryStatus());
+        Assertions.assertEquals(1, callbackDelivery.getAttempts());
+    }
+
+    private GitlabPipelineEventResource pipelineEvent(String pipelineId, String status) {
+        GitlabPipelineEventResource.ObjectAttributes attributes = new GitlabPipelineEventResource.ObjectAttributes();
+        attributes.setId(pipelineId);
+        attributes.setStatus(status);
+        attributes.setFinishedAt("2024-03-01 10:15:30 UTC");
+        GitlabPipelineEventResource event = new GitlabPipelineEventResource();
+        event.setObjectKind("pipeline");
+        event.setObjectAttributes(attributes);
+        return event;
+    }
+}
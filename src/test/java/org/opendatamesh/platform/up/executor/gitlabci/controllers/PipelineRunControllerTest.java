@@ -0,0 +1,81 @@
+package org.opendatamesh.platform.up.executor.gitlabci.controllers;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.opendatamesh.platform.up.executor.gitlabci.dao.PipelineRun;
+import org.opendatamesh.platform.up.executor.gitlabci.dao.PipelineRunRepository;
+import org.opendatamesh.platform.up.executor.gitlabci.resources.PipelineRunPageResource;
+import org.opendatamesh.platform.up.executor.gitlabci.resources.PipelineRunResource;
+import org.opendatamesh.platform.up.executor.gitlabci.resources.client.gitlab.GitlabRunState;
+import org.opendatamesh.platform.up.executor.gitlabci.resources.exceptions.UnprocessableEntityException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@SpringBootTest
+@AutoConfigureWireMock(port = 8004)
+public class PipelineRunControllerTest {
+    @Autowired
+    private PipelineRunController pipelineRunController;
+    @Autowired
+    private PipelineRunRepository pipelineRunRepository;
+    private final static String INSTANCE_URL = "http://localhost:8004";
+    private final static String PROJECT = "2001";
+
+    @BeforeEach
+    public void populateDb() {
+        createRun(60L, GitlabRunState.success);
+        createRun(61L, GitlabRunState.running);
+        createRun(62L, GitlabRunState.running);
+    }
+
+    private void createRun(Long taskId, GitlabRunState status) {
+        if (pipelineRunRepository.findByTaskId(taskId).isPresent()) {
+            return;
+        }
+        PipelineRun pipelineRun = new PipelineRun();
+        pipelineRun.setRunId(taskId.toString());
+        pipelineRun.setProject(PROJECT);
+        pipelineRun.setTaskId(taskId);
+        pipelineRun.setStatus(status);
+        pipelineRun.setGitlabInstanceUrl(INSTANCE_URL);
+        pipelineRun.setCreatedAt(OffsetDateTime.now());
+        pipelineRunRepository.saveAndFlush(pipelineRun);
+    }
+
+    @Test
+    public void testReadPipelineRunsPaged() {
+        PipelineRunPageResource firstPage = pipelineRunController.readPipelineRuns(null, INSTANCE_URL, PROJECT, null, null, null, 2);
+        Assertions.assertEquals(List.of(62L, 61L), taskIds(firstPage));
+        Assertions.assertNotNull(firstPage.getNext());
+
+        PipelineRunPageResource lastPage = pipelineRunController.readPipelineRuns(null, INSTANCE_URL, PROJECT, null, null, firstPage.getNext(), 2);
+        Assertions.assertEquals(List.of(60L), taskIds(lastPage));
+        Assertions.assertNull(lastPage.getNext());
+    }
+
+    @Test
+    public void testReadPipelineRunsFiltered() {
+        PipelineRunPageResource page = pipelineRunController.readPipelineRuns(
+                List.of(GitlabRunState.success), INSTANCE_URL, PROJECT, OffsetDateTime.now().minusDays(1), null, null, null
+        );
+        Assertions.assertEquals(List.of(60L), taskIds(page));
+        Assertions.assertEquals(GitlabRunState.success, page.getContent().get(0).getStatus());
+    }
+
+    @Test
+    public void testReadPipelineRunsInvalidLimit() {
+        UnprocessableEntityException e = Assertions.assertThrows(UnprocessableEntityException.class,
+                () -> pipelineRunController.readPipelineRuns(null, null, null, null, null, null, 1000));
+        Assertions.assertEquals("42206", e.getStandardError().code());
+    }
+
+    private static List<Long> taskIds(PipelineRunPageResource page) {
+        return page.getContent().stream().map(PipelineRunResource::getTaskId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,124 @@
+package org.opendatamesh.platform.up.executor.gitlabci.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.opendatamesh.platform.up.executor.gitlabci.clients.ParamsServiceClient;
+import org.opendatamesh.platform.up.executor.gitlabci.config.ParamConfiguration;
+import org.opendatamesh.platform.up.executor.gitlabci.resources.client.params.ParamResource;
+import org.opendatamesh.platform.up.executor.gitlabci.resources.exceptions.InternalServerException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+public class GitlabTokenCacheTest {
+    private static final String INSTANCE_URL = "https://gitlab.example.com";
+
+    private ParamsServiceClient paramsServiceClient;
+    private ParamConfiguration paramConfiguration;
+
+    @BeforeEach
+    public void setUp() {
+        paramsServiceClient = Mockito.mock(ParamsServiceClient.class);
+        paramConfiguration = Mockito.mock(ParamConfiguration.class);
+        Mockito.when(paramConfiguration.getTokenCacheMaxSize()).thenReturn(10);
+        Mockito.when(paramConfiguration.getTokenCacheTtlSeconds()).thenReturn(1);
+        Mockito.when(paramConfiguration.getTokenCacheRefreshAheadSeconds()).thenReturn(0);
+        Mockito.when(paramConfiguration.getTokenCacheNegativeTtlSeconds()).thenReturn(30);
+        Mockito.when(paramsServiceClient.getParamByName(INSTANCE_URL))
+                .thenReturn(param("token-1"), param("token-2"));
+    }
+
+    @Test
+    public void testTokenReloadedAfterTtl() throws InterruptedException {
+        GitlabTokenCache tokenCache = newTokenCache();
+        Assertions.assertEquals("token-1", tokenCache.getToken(INSTANCE_URL));
+        Assertions.assertEquals("token-1", tokenCache.getToken(INSTANCE_URL));
+        Mockito.verify(paramsServiceClient, Mockito.times(1)).getParamByName(INSTANCE_URL);
+
+        Thread.sleep(1100);
+        Assertions.assertEquals("token-2", tokenCache.getToken(INSTANCE_URL));
+        Mockito.verify(paramsServiceClient, Mockito.times(2)).getParamByName(INSTANCE_URL);
+    }
+
+    @Test
+    public void testTokenRefreshedAhead() {
+        // Every cached token is within the refresh window: each hit serves the cached token and reloads it.
+        Mockito.when(paramConfiguration.getTokenCacheRefreshAheadSeconds()).thenReturn(1);
+        GitlabTokenCache tokenCache = newTokenCache();
+        Assertions.assertEquals("token-1", tokenCache.getToken(INSTANCE_URL));
+        Assertions.assertEquals("token-1", tokenCache.getToken(INSTANCE_URL));
+        Assertions.assertEquals("token-2", tokenCache.getToken(INSTANCE_URL));
+        Mockito.verify(paramsServiceClient, Mockito.times(3)).getParamByName(INSTANCE_URL);
+    }
+
+    @Test
+    public void testInvalidate() {
+        GitlabTokenCache tokenCache = newTokenCache();
+        Assertions.assertEquals("token-1", tokenCache.getToken(INSTANCE_URL));
+        tokenCache.invalidate(INSTANCE_URL);
+        Assertions.assertEquals("token-2", tokenCache.getToken(INSTANCE_URL));
+        Assertions.assertEquals("token-2", tokenCache.getToken(INSTANCE_URL));
+        Mockito.verify(paramsServiceClient, Mockito.times(2)).getParamByName(INSTANCE_URL);
+    }
+
+    @Test
+    public void testInvalidateDuringLoad() {
+        AtomicReference<GitlabTokenCache> tokenCache = new AtomicReference<>();
+        Mockito.when(paramsServiceClient.getParamByName(INSTANCE_URL))
+                .thenAnswer(invocation -> {
+                    // The token is updated while its old value is on the way back from the params service.
+                    tokenCache.get().invalidate(INSTANCE_URL);
+                    return param("token-1");
+                })
+                .thenReturn(param("token-2"));
+        tokenCache.set(newTokenCache());
+
+        Assertions.assertEquals("token-1", tokenCache.get().getToken(INSTANCE_URL));
+        Assertions.assertEquals("token-2", tokenCache.get().getToken(INSTANCE_URL));
+    }
+
+    @Test
+    public void testMissingParamCached() {
+        String webhookSecretName = GitlabConfigService.webhookSecretParamName(INSTANCE_URL);
+        Mockito.when(paramsServiceClient.getParamByName(webhookSecretName))
+                .thenReturn(ResponseEntity.notFound().build());
+        GitlabTokenCache tokenCache = newTokenCache();
+        Assertions.assertNull(tokenCache.getWebhookSecret(INSTANCE_URL));
+        Assertions.assertNull(tokenCache.getWebhookSecret(INSTANCE_URL));
+        Mockito.verify(paramsServiceClient, Mockito.times(1)).getParamByName(webhookSecretName);
+
+        // Registering the instance invalidates the missing secret.
+        tokenCache.invalidate(INSTANCE_URL);
+        Assertions.assertNull(tokenCache.getWebhookSecret(INSTANCE_URL));
+        Mockito.verify(paramsServiceClient, Mockito.times(2)).getParamByName(webhookSecretName);
+    }
+
+    @Test
+    public void testParamsServiceErrorNotCached() {
+        Mockito.when(paramsServiceClient.getParamByName(INSTANCE_URL))
+                .thenReturn(ResponseEntity.status(HttpStatus.FORBIDDEN).build(), ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).build())
+                .thenReturn(param("token-1"));
+        GitlabTokenCache tokenCache = newTokenCache();
+        Assertions.assertThrows(InternalServerException.class, () -> tokenCache.getToken(INSTANCE_URL));
+        Assertions.assertThrows(InternalServerException.class, () -> tokenCache.getToken(INSTANCE_URL));
+
+        // The errors were not cached: the token is read as soon as the params service answers.
+        Assertions.assertEquals("token-1", tokenCache.getToken(INSTANCE_URL));
+        Mockito.verify(paramsServiceClient, Mockito.times(3)).getParamByName(INSTANCE_URL);
+    }
+
+    private GitlabTokenCache newTokenCache() {
+        return new GitlabTokenCache(paramsServiceClient, paramConfiguration, new SimpleMeterRegistry(), Runnable::run);
+    }
+
+    private static ResponseEntity<ParamResource> param(String value) {
+        ParamResource param = new ParamResource();
+        param.setParamName(INSTANCE_URL);
+        param.setParamValue(value);
+        return ResponseEntity.ok(param);
+    }
+}
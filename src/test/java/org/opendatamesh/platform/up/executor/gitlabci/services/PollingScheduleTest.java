@@ -0,0 +1,153 @@
+package org.opendatamesh.platform.up.executor.gitlabci.services;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.opendatamesh.platform.up.executor.gitlabci.config.PollingBackoffConfiguration;
+import org.opendatamesh.platform.up.executor.gitlabci.dao.PipelineRun;
+import org.opendatamesh.platform.up.executor.gitlabci.resources.client.gitlab.GitlabRunState;
+
+import javax.validation.Validation;
+import javax.validation.Validator;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Set;
+
+public class PollingScheduleTest {
+    private static final String INSTANCE_URL = "http://localhost:8004";
+    private static final String OTHER_INSTANCE_URL = "http://localhost:8005";
+
+    private PollingBackoffConfiguration backoffConfiguration;
+    private PollingSchedule pollingSchedule;
+
+    @BeforeEach
+    void setUp() {
+        backoffConfiguration = new PollingBackoffConfiguration();
+        backoffConfiguration.setJitter(0.0);
+        backoffConfiguration.setQueued(curve(5, 60, 2.0));
+        backoffConfiguration.setRunning(curve(10, 120, 3.0));
+        pollingSchedule = new PollingSchedule(backoffConfiguration);
+    }
+
+    @Test
+    public void testQueuedBackoff() {
+        assertDelays(INSTANCE_URL, GitlabRunState.pending, 5, 10, 20, 40, 60, 60);
+        assertDelays(INSTANCE_URL, GitlabRunState.created, 5, 10, 20, 40, 60, 60);
+    }
+
+    @Test
+    public void testRunningBackoff() {
+        assertDelays(INSTANCE_URL, GitlabRunState.running, 10, 30, 90, 120, 120);
+    }
+
+    @Test
+    public void testInstanceOverride() {
+        PollingBackoffConfiguration.InstanceBackoff instanceBackoff = new PollingBackoffConfiguration.InstanceBackoff();
+        instanceBackoff.getRunning().setMax(30);
+        backoffConfiguration.getInstances().put(OTHER_INSTANCE_URL, instanceBackoff);
+
+        // Only the values of the override change, the others come from the default curves.
+        assertDelays(OTHER_INSTANCE_URL, GitlabRunState.running, 10, 30, 30);
+        assertDelays(OTHER_INSTANCE_URL, GitlabRunState.pending, 5, 10, 20, 40, 60);
+        assertDelays(INSTANCE_URL, GitlabRunState.running, 10, 30, 90, 120);
+    }
+
+    @Test
+    public void testJitterBounds() {
+        backoffConfiguration.setJitter(0.2);
+        for (int i = 0; i < 1000; i++) {
+            long delay = pollingSchedule.delay(INSTANCE_URL, GitlabRunState.running, 0).toMillis();
+            Assertions.assertTrue(delay >= 8000 && delay <= 12000, "Delay out of the jitter bounds: " + delay);
+        }
+
+        PollingBackoffConfiguration.InstanceBackoff instanceBackoff = new PollingBackoffConfiguration.InstanceBackoff();
+        instanceBackoff.setJitter(0.0);
+        backoffConfiguration.getInstances().put(OTHER_INSTANCE_URL, instanceBackoff);
+        Assertions.assertEquals(Duration.ofSeconds(10), pollingSchedule.delay(OTHER_INSTANCE_URL, GitlabRunState.running, 0));
+    }
+
+    @Test
+    public void testJitterOutOfRangeRejected() {
+        Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+        Assertions.assertTrue(validator.validate(backoffConfiguration).isEmpty());
+
+        backoffConfiguration.setJitter(1.0);
+        Assertions.assertEquals(1, validator.validate(backoffConfiguration).size());
+        backoffConfiguration.setJitter(-0.1);
+        Assertions.assertEquals(1, validator.validate(backoffConfiguration).size());
+
+        backoffConfiguration.setJitter(0.2);
+        PollingBackoffConfiguration.InstanceBackoff instanceBackoff = new PollingBackoffConfiguration.InstanceBackoff();
+        instanceBackoff.setJitter(1.5);
+        backoffConfiguration.getInstances().put(OTHER_INSTANCE_URL, instanceBackoff);
+        Assertions.assertEquals(1, validator.validate(backoffConfiguration).size());
+    }
+
+    @Test
+    public void testNextPoll() {
+        PipelineRun pipelineRun = pipelineRun(1L, GitlabRunState.running);
+        Assertions.assertTrue(pollingSchedule.isDue(pipelineRun, Instant.now()));
+
+        pollingSchedule.recordPoll(pipelineRun);
+        Assertions.assertFalse(pollingSchedule.isDue(pipelineRun, Instant.now()));
+        Assertions.assertTrue(pollingSchedule.isDue(pipelineRun, Instant.now().plusSeconds(11)));
+
+        // The delay grows while the status does not change, and restarts when it changes.
+        pollingSchedule.recordPoll(pipelineRun);
+        Assertions.assertFalse(pollingSchedule.isDue(pipelineRun, Instant.now().plusSeconds(11)));
+        Assertions.assertTrue(pollingSchedule.isDue(pipelineRun, Instant.now().plusSeconds(31)));
+        pipelineRun.setStatus(GitlabRunState.pending);
+        pollingSchedule.recordPoll(pipelineRun);
+        Assertions.assertTrue(pollingSchedule.isDue(pipelineRun, Instant.now().plusSeconds(6)));
+    }
+
+    @Test
+    public void testTerminalRunRemoved() {
+        PipelineRun pipelineRun = pipelineRun(2L, GitlabRunState.running);
+        pollingSchedule.recordPoll(pipelineRun);
+
+        pipelineRun.setStatus(GitlabRunState.success);
+        pollingSchedule.recordPoll(pipelineRun);
+        Assertions.assertFalse(pollingSchedule.isDue(pipelineRun, Instant.now().plusSeconds(3600)));
+
+        // Had the run become active again, it would be polled at once: its schedule was removed.
+        pipelineRun.setStatus(GitlabRunState.running);
+        Assertions.assertTrue(pollingSchedule.isDue(pipelineRun, Instant.now()));
+    }
+
+    @Test
+    public void testInactiveRunsForgotten() {
+        PipelineRun active = pipelineRun(3L, GitlabRunState.running);
+        PipelineRun inactive = pipelineRun(4L, GitlabRunState.running);
+        pollingSchedule.recordPoll(active);
+        pollingSchedule.recordPoll(inactive);
+
+        pollingSchedule.retainAll(Set.of(3L));
+
+        Assertions.assertFalse(pollingSchedule.isDue(active, Instant.now()));
+        Assertions.assertTrue(pollingSchedule.isDue(inactive, Instant.now()));
+    }
+
+    private void assertDelays(String gitlabInstanceUrl, GitlabRunState status, int... expectedSeconds) {
+        for (int attempt = 0; attempt < expectedSeconds.length; attempt++) {
+            Assertions.assertEquals(Duration.ofSeconds(expectedSeconds[attempt]),
+                    pollingSchedule.delay(gitlabInstanceUrl, status, attempt), "Attempt " + attempt);
+        }
+    }
+
+    private static PollingBackoffConfiguration.Curve curve(int initial, int max, double multiplier) {
+        PollingBackoffConfiguration.Curve curve = new PollingBackoffConfiguration.Curve();
+        curve.setInitial(initial);
+        curve.setMax(max);
+        curve.setMultiplier(multiplier);
+        return curve;
+    }
+
+    private static PipelineRun pipelineRun(Long taskId, GitlabRunState status) {
+        PipelineRun pipelineRun = new PipelineRun();
+        pipelineRun.setTaskId(taskId);
+        pipelineRun.setStatus(status);
+        pipelineRun.setGitlabInstanceUrl(INSTANCE_URL);
+        return pipelineRun;
+    }
+}
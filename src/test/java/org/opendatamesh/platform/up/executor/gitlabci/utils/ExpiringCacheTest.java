@@ -0,0 +1,68 @@
+package org.opendatamesh.platform.up.executor.gitlabci.utils;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+public class ExpiringCacheTest {
+
+    @Test
+    public void testEntryExpires() throws InterruptedException {
+        ExpiringCache<String, String> cache = new ExpiringCache<>(10);
+        cache.put("short", "value", Duration.ofMillis(50));
+        cache.put("eternal", "value", null);
+        Assertions.assertEquals("value", cache.get("short"));
+
+        Thread.sleep(100);
+        Assertions.assertNull(cache.get("short"));
+        Assertions.assertEquals("value", cache.get("eternal"));
+        Assertions.assertEquals(1, cache.evictionCount());
+    }
+
+    @Test
+    public void testExpiresWithin() {
+        ExpiringCache<String, String> cache = new ExpiringCache<>(10);
+        cache.put("key", "value", Duration.ofSeconds(10));
+        Assertions.assertTrue(cache.getEntry("key").expiresWithin(Duration.ofSeconds(30)));
+        Assertions.assertFalse(cache.getEntry("key").expiresWithin(Duration.ofSeconds(1)));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEvicted() {
+        ExpiringCache<String, String> cache = new ExpiringCache<>(2);
+        cache.put("a", "1", null);
+        cache.put("b", "2", null);
+        cache.get("a");
+        cache.put("c", "3", null);
+        Assertions.assertEquals("1", cache.get("a"));
+        Assertions.assertNull(cache.get("b"));
+        Assertions.assertEquals("3", cache.get("c"));
+    }
+
+    @Test
+    public void testPutIfVersionAfterInvalidate() {
+        ExpiringCache<String, String> cache = new ExpiringCache<>(10);
+        long version = cache.version();
+        cache.invalidate("key");
+        Assertions.assertFalse(cache.putIfVersion("key", "stale", null, version));
+        Assertions.assertNull(cache.get("key"));
+
+        Assertions.assertTrue(cache.putIfVersion("key", "fresh", null, cache.version()));
+        Assertions.assertEquals("fresh", cache.get("key"));
+
+        version = cache.version();
+        cache.invalidateAll();
+        Assertions.assertFalse(cache.putIfVersion("key", "stale", null, version));
+    }
+
+    @Test
+    public void testPutIfVersionAfterOtherKeyInvalidated() {
+        ExpiringCache<String, String> cache = new ExpiringCache<>(10);
+        // A load overlapping the invalidation of any key is discarded, and loaded again at the next read.
+        long version = cache.version();
+        cache.invalidate("other");
+        Assertions.assertFalse(cache.putIfVersion("key", "stale", null, version));
+        Assertions.assertTrue(cache.putIfVersion("key", "fresh", null, cache.version()));
+    }
+}
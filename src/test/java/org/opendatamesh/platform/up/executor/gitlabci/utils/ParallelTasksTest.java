@@ -0,0 +1,61 @@
+package org.opendatamesh.platform.up.executor.gitlabci.utils;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+public class ParallelTasksTest {
+
+    @Test
+    public void testRunAllOnExecutor() {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            List<String> threads = Collections.synchronizedList(new ArrayList<>());
+            List<Runnable> tasks = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                tasks.add(() -> threads.add(Thread.currentThread().getName()));
+            }
+
+            ParallelTasks.runAll(executor, tasks);
+
+            Assertions.assertEquals(5, threads.size());
+            Assertions.assertFalse(threads.contains(Thread.currentThread().getName()));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testRejectedTaskRunsOnCaller() {
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            // Every other task is rejected, as a saturated executor would do.
+            int[] submitted = {0};
+            Executor executor = task -> {
+                if (submitted[0]++ % 2 == 1) {
+                    throw new RejectedExecutionException("saturated");
+                }
+                pool.execute(task);
+            };
+            List<String> threads = Collections.synchronizedList(new ArrayList<>());
+            List<Runnable> tasks = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                tasks.add(() -> threads.add(Thread.currentThread().getName()));
+            }
+
+            ParallelTasks.runAll(executor, tasks);
+
+            Assertions.assertEquals(4, threads.size());
+            Assertions.assertEquals(2, Collections.frequency(threads, Thread.currentThread().getName()));
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
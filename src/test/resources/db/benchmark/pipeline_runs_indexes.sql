@@ -0,0 +1,121 @@
+-- Scan cost of the PIPELINE_RUNS hot-path queries before and after V1_8__pipeline_runs_timestamps.sql.
+--
+-- Run against a disposable PostgreSQL database:
+--   psql -v ON_ERROR_STOP=1 -f src/test/resources/db/benchmark/pipeline_runs_indexes.sql
+--
+-- One million runs are generated on 5 GitLab instances and 200 projects, 1% of them still active.
+-- Compare the plans (Seq Scan vs Index Scan), the "Buffers" lines and the execution times of each query
+-- in the two sections. Everything is created in the PIPELINE_RUNS_BENCHMARK schema, dropped at the end.
+
+\timing on
+
+DROP SCHEMA IF EXISTS PIPELINE_RUNS_BENCHMARK CASCADE;
+CREATE SCHEMA PIPELINE_RUNS_BENCHMARK;
+SET search_path TO PIPELINE_RUNS_BENCHMARK;
+
+-- Layout up to V1_7: string timestamps, no index on status, instance or run id.
+CREATE TABLE PIPELINE_RUNS (
+    PIPELINE_RUN_ID BIGINT PRIMARY KEY,
+    TASK_ID BIGINT UNIQUE,
+    RUN_ID VARCHAR(255),
+    PROJECT VARCHAR(255),
+    STATUS VARCHAR(255),
+    VARIABLES TEXT,
+    CREATED_AT VARCHAR(255),
+    FINISHED_AT VARCHAR(255),
+    GITLAB_INSTANCE_URL VARCHAR(255),
+    LAST_EVENT_AT TIMESTAMP WITH TIME ZONE
+);
+
+INSERT INTO PIPELINE_RUNS (PIPELINE_RUN_ID, TASK_ID, RUN_ID, PROJECT, STATUS, VARIABLES, CREATED_AT, FINISHED_AT, GITLAB_INSTANCE_URL, LAST_EVENT_AT)
+SELECT i,
+       i,
+       (1000000 + i)::TEXT,
+       (1000 + i % 200)::TEXT,
+       CASE WHEN i % 100 = 0 THEN 'running'
+            WHEN i % 100 = 1 THEN 'failed'
+            WHEN i % 100 = 2 THEN 'canceled'
+            ELSE 'success' END,
+       '[]',
+       to_char(created_at AT TIME ZONE 'UTC', 'YYYY-MM-DD"T"HH24:MI:SS.MS"Z"'),
+       CASE WHEN i % 100 = 0 THEN NULL
+            ELSE to_char((created_at + INTERVAL '10 minutes') AT TIME ZONE 'UTC', 'YYYY-MM-DD"T"HH24:MI:SS.MS"Z"') END,
+       'https://gitlab-' || (i % 5) || '.example.com',
+       CASE WHEN i % 3 = 0 THEN created_at + INTERVAL '1 minute' END
+FROM (SELECT i, TIMESTAMP WITH TIME ZONE '2023-01-01 00:00:00+00' + i * INTERVAL '30 seconds' AS created_at
+      FROM generate_series(1, 1000000) AS i) AS runs;
+
+ANALYZE PIPELINE_RUNS;
+
+\echo '==================== BEFORE ===================='
+
+\echo '--- Active runs without recent webhook events (PipelineStatusSynchronizer)'
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT * FROM PIPELINE_RUNS
+WHERE STATUS IN ('created', 'waiting_for_resource', 'preparing', 'pending', 'running', 'manual', 'scheduled')
+  AND (LAST_EVENT_AT IS NULL OR LAST_EVENT_AT < now() - INTERVAL '5 minutes');
+
+\echo '--- Active runs of an instance (FairPipelineScheduler)'
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT COUNT(*) FROM PIPELINE_RUNS
+WHERE GITLAB_INSTANCE_URL = 'https://gitlab-0.example.com'
+  AND STATUS IN ('created', 'waiting_for_resource', 'preparing', 'pending', 'running', 'manual', 'scheduled');
+
+\echo '--- Run of a webhook event'
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT * FROM PIPELINE_RUNS
+WHERE GITLAB_INSTANCE_URL = 'https://gitlab-2.example.com' AND RUN_ID = '1500002';
+
+\echo '--- Runs finished since an instant (string comparison, only correct for identical formats and offsets)'
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT COUNT(*) FROM PIPELINE_RUNS
+WHERE FINISHED_AT >= '2023-12-01T00:00:00.000Z';
+
+-- Migration under test, same statements as V1_8__pipeline_runs_timestamps.sql.
+CREATE OR REPLACE FUNCTION PIPELINE_RUNS_TO_TIMESTAMPTZ(value VARCHAR) RETURNS TIMESTAMP WITH TIME ZONE AS $$
+BEGIN
+    RETURN regexp_replace(value, '\[[^]]*\]$', '')::TIMESTAMP WITH TIME ZONE;
+EXCEPTION WHEN OTHERS THEN
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql IMMUTABLE;
+
+ALTER TABLE PIPELINE_RUNS
+    ALTER COLUMN CREATED_AT TYPE TIMESTAMP WITH TIME ZONE USING PIPELINE_RUNS_TO_TIMESTAMPTZ(CREATED_AT),
+    ALTER COLUMN FINISHED_AT TYPE TIMESTAMP WITH TIME ZONE USING PIPELINE_RUNS_TO_TIMESTAMPTZ(FINISHED_AT);
+
+DROP FUNCTION PIPELINE_RUNS_TO_TIMESTAMPTZ(VARCHAR);
+
+CREATE INDEX IF NOT EXISTS IDX_PIPELINE_RUNS_ACTIVE ON PIPELINE_RUNS (GITLAB_INSTANCE_URL, STATUS, LAST_EVENT_AT)
+    WHERE STATUS IN ('created', 'waiting_for_resource', 'preparing', 'pending', 'running', 'manual', 'scheduled');
+CREATE INDEX IF NOT EXISTS IDX_PIPELINE_RUNS_INSTANCE_RUN ON PIPELINE_RUNS (GITLAB_INSTANCE_URL, RUN_ID);
+CREATE INDEX IF NOT EXISTS IDX_PIPELINE_RUNS_FINISHED_AT ON PIPELINE_RUNS (FINISHED_AT) WHERE FINISHED_AT IS NOT NULL;
+
+ANALYZE PIPELINE_RUNS;
+
+\echo '==================== AFTER ===================='
+
+\echo '--- Active runs without recent webhook events (PipelineStatusSynchronizer)'
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT * FROM PIPELINE_RUNS
+WHERE STATUS IN ('created', 'waiting_for_resource', 'preparing', 'pending', 'running', 'manual', 'scheduled')
+  AND (LAST_EVENT_AT IS NULL OR LAST_EVENT_AT < now() - INTERVAL '5 minutes');
+
+\echo '--- Active runs of an instance (FairPipelineScheduler)'
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT COUNT(*) FROM PIPELINE_RUNS
+WHERE GITLAB_INSTANCE_URL = 'https://gitlab-0.example.com'
+  AND STATUS IN ('created', 'waiting_for_resource', 'preparing', 'pending', 'running', 'manual', 'scheduled');
+
+\echo '--- Run of a webhook event'
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT * FROM PIPELINE_RUNS
+WHERE GITLAB_INSTANCE_URL = 'https://gitlab-2.example.com' AND RUN_ID = '1500002';
+
+\echo '--- Runs finished since an instant'
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT COUNT(*) FROM PIPELINE_RUNS
+WHERE FINISHED_AT >= TIMESTAMP WITH TIME ZONE '2023-12-01 00:00:00+00';
+
+RESET search_path;
+DROP SCHEMA PIPELINE_RUNS_BENCHMARK CASCADE;